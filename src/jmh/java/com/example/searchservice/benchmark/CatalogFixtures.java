@@ -0,0 +1,112 @@
+package com.example.searchservice.benchmark;
+
+import com.example.searchservice.model.Category;
+import com.example.searchservice.model.Manufacturer;
+import com.example.searchservice.model.Product;
+import com.example.searchservice.model.Review;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Random;
+import java.util.UUID;
+
+/**
+ * Deterministic synthetic catalogs for benchmarks.
+ */
+public final class CatalogFixtures {
+
+    public static final int MANUFACTURER_COUNT = 500;
+
+    public static final String[] WORDS = {
+            "wireless", "mouse", "keyboard", "gaming", "office", "compact", "premium", "portable", "ergonomic",
+            "mechanical", "optical", "bluetooth", "charger", "cable", "monitor", "laptop", "stand", "desk", "chair",
+            "lamp", "speaker", "headphones", "microphone", "camera", "tripod", "battery", "adapter", "hub", "dock",
+            "router", "switch", "console", "controller", "joystick", "printer", "scanner", "tablet", "stylus",
+            "case", "cover", "sleeve", "backpack", "bottle", "mug", "kettle", "blender", "toaster", "oven", "pan",
+            "knife", "spoon", "fork", "plate", "bowl", "towel", "pillow", "blanket", "mattress", "sofa", "table",
+            "shelf", "cabinet", "drawer", "mirror", "rug", "curtain", "clock", "watch", "ring", "necklace",
+            "bracelet", "earrings", "shirt", "jacket", "shoes", "boots", "socks", "hat", "gloves", "scarf", "belt",
+            "wallet", "bag", "suitcase", "tent", "sleeping", "hiking", "running", "cycling", "helmet", "bike",
+            "ball", "racket", "puzzle", "board", "game", "toy", "doll", "book", "novel", "guide", "notebook",
+            "pen", "pencil", "paint", "brush", "canvas", "guitar", "piano", "drum", "violin", "vintage", "classic",
+            "modern", "durable", "lightweight", "waterproof", "stainless", "steel", "wooden", "leather", "cotton",
+            "silk", "glass", "ceramic", "plastic", "aluminium", "black", "white", "red", "blue", "green", "silver",
+            "gold", "small", "medium", "large", "extra", "pro", "ultra", "mini", "max", "smart", "digital", "analog",
+            "solar", "electric", "manual", "automatic", "professional", "beginner", "kids", "adult", "outdoor",
+            "indoor", "travel", "home", "kitchen", "garden", "garage", "studio", "design", "development", "software"
+    };
+
+    private static final Category[] CATEGORIES = Category.values();
+    private static final LocalDateTime EPOCH = LocalDateTime.of(2023, 1, 1, 0, 0);
+
+    private CatalogFixtures() {
+    }
+
+    public static List<Product> products(int size) {
+        Random random = new Random(42);
+        List<Manufacturer> manufacturers = manufacturers(random);
+        List<Product> products = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            products.add(product(random, i, manufacturers));
+        }
+        return products;
+    }
+
+    private static Product product(Random random, int i, List<Manufacturer> manufacturers) {
+        EnumSet<Category> categories = EnumSet.noneOf(Category.class);
+        int categoryCount = 1 + random.nextInt(4);
+        while (categories.size() < categoryCount) {
+            categories.add(CATEGORIES[random.nextInt(CATEGORIES.length)]);
+        }
+        List<Review> reviews = new ArrayList<>();
+        int reviewCount = random.nextInt(12);
+        for (int r = 0; r < reviewCount; r++) {
+            reviews.add(Review.builder()
+                    .reviewerName("Reviewer " + random.nextInt(10_000))
+                    .comment("Comment " + r + " for product " + i)
+                    .rating(1 + random.nextInt(5))
+                    .reviewDate(EPOCH.plusMinutes(random.nextInt(500_000)))
+                    .build());
+        }
+        LocalDateTime createdAt = EPOCH.plusMinutes(random.nextInt(500_000));
+        return Product.builder()
+                .id(new UUID(random.nextLong(), random.nextLong()))
+                .name(words(random, 2 + random.nextInt(2)) + " " + i)
+                .description("The " + words(random, 8 + random.nextInt(10)) + " for everyday use")
+                .price(BigDecimal.valueOf(100 + random.nextInt(1_000_000), 2))
+                .manufacturer(manufacturers.get(random.nextInt(manufacturers.size())))
+                .categories(new ArrayList<>(categories))
+                .createdAt(createdAt)
+                .updatedAt(createdAt.plusMinutes(random.nextInt(10_000)))
+                .reviews(reviews)
+                .build();
+    }
+
+    private static String words(Random random, int count) {
+        StringBuilder text = new StringBuilder();
+        for (int w = 0; w < count; w++) {
+            if (w > 0) {
+                text.append(' ');
+            }
+            double skew = random.nextDouble();
+            text.append(WORDS[(int) (skew * skew * WORDS.length)]);
+        }
+        return text.toString();
+    }
+
+    private static List<Manufacturer> manufacturers(Random random) {
+        List<Manufacturer> manufacturers = new ArrayList<>(MANUFACTURER_COUNT);
+        for (int i = 0; i < MANUFACTURER_COUNT; i++) {
+            manufacturers.add(Manufacturer.builder()
+                    .id(new UUID(random.nextLong(), random.nextLong()))
+                    .name("Manufacturer " + i)
+                    .address("Address " + i)
+                    .contact("contact" + i + "@example.com")
+                    .build());
+        }
+        return manufacturers;
+    }
+}
@@ -0,0 +1,75 @@
+package com.example.searchservice.benchmark;
+
+import com.example.searchservice.catalog.CategoryIndex;
+import com.example.searchservice.model.Category;
+import com.example.searchservice.model.Product;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.BitSet;
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the per-product {@code HashSet} containment check with the category bitmask index.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CategoryFilterBenchmark {
+
+    @Param({"10000", "100000"})
+    private int size;
+
+    private List<Product> products;
+    private CategoryIndex categoryIndex;
+    private List<Category> query;
+
+    @Setup
+    public void setUp() {
+        products = CatalogFixtures.products(size);
+        categoryIndex = CategoryIndex.build(products);
+        query = List.of(Category.ELECTRONICS, Category.GAMING);
+    }
+
+    @Benchmark
+    public void hashSetScan(Blackhole blackhole) {
+        for (Product product : products) {
+            if (new HashSet<>(product.getCategories()).containsAll(query)) {
+                blackhole.consume(product);
+            }
+        }
+    }
+
+    @Benchmark
+    public void maskScan(Blackhole blackhole) {
+        long required = CategoryIndex.mask(query);
+        for (int ordinal = 0; ordinal < products.size(); ordinal++) {
+            if (categoryIndex.containsAll(ordinal, required)) {
+                blackhole.consume(products.get(ordinal));
+            }
+        }
+    }
+
+    @Benchmark
+    public void postingIntersection(Blackhole blackhole) {
+        BitSet ordinals = categoryIndex.matchingAll(query);
+        for (int ordinal = ordinals.nextSetBit(0); ordinal >= 0; ordinal = ordinals.nextSetBit(ordinal + 1)) {
+            blackhole.consume(products.get(ordinal));
+        }
+    }
+}
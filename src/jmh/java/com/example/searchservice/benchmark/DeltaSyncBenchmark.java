@@ -0,0 +1,98 @@
+package com.example.searchservice.benchmark;
+
+import com.example.searchservice.catalog.CatalogSnapshot;
+import com.example.searchservice.model.Product;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of applying one delta sync to the catalog: {@code patch} indexes only the changed products over the current
+ * snapshot, {@code rebuild} builds every index again from the patched product list, as each delta did before
+ * patching. Half of the changes edit existing products (price, reviews and name), a quarter add products and a
+ * quarter delete them. {@code pending} is the share of the catalog already patched since the last full build, up to
+ * the default {@code catalog.compaction-ratio} at which the next delta compacts.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgs = {"-Xmx4g"})
+public class DeltaSyncBenchmark {
+
+    @Param({"100000", "1000000"})
+    private int size;
+
+    @Param({"100", "1000"})
+    private int changes;
+
+    @Param({"0", "0.05"})
+    private double pending;
+
+    @Param({"patch", "rebuild"})
+    private String sync;
+
+    private CatalogSnapshot current;
+    private List<Product> upserts;
+    private List<UUID> deletes;
+    private List<Product> patchedProducts;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(11);
+        List<Product> products = CatalogFixtures.products(size);
+        current = CatalogSnapshot.build(1, Instant.now(), products);
+        if (pending > 0) {
+            List<Product> edits = new ArrayList<>();
+            for (int i = 0; i < (int) (pending * size); i++) {
+                edits.add(edit(random, products.get(random.nextInt(products.size()))));
+            }
+            current = current.patch(2, Instant.now(), edits, List.of());
+        }
+        List<Product> live = current.products();
+        upserts = new ArrayList<>();
+        deletes = new ArrayList<>();
+        for (int i = 0; i < changes; i++) {
+            Product existing = live.get(random.nextInt(live.size()));
+            switch (i % 4) {
+                case 0, 1 -> upserts.add(edit(random, existing));
+                case 2 -> upserts.add(existing.toBuilder().id(UUID.randomUUID()).build());
+                default -> deletes.add(existing.getId());
+            }
+        }
+        patchedProducts = current.patch(3, Instant.now(), upserts, deletes).products();
+    }
+
+    @Benchmark
+    public CatalogSnapshot applyDelta() {
+        if (sync.equals("patch")) {
+            return current.patch(3, Instant.now(), upserts, deletes);
+        }
+        return CatalogSnapshot.build(3, Instant.now(), patchedProducts, current);
+    }
+
+    private static Product edit(Random random, Product product) {
+        return product.toBuilder()
+                .name(product.getName() + " " + CatalogFixtures.WORDS[random.nextInt(CatalogFixtures.WORDS.length)])
+                .price(product.getPrice().add(BigDecimal.ONE))
+                .reviews(product.getReviews().subList(0, product.getReviews().size() / 2))
+                .build();
+    }
+}
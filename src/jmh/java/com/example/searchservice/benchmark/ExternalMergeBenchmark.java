@@ -0,0 +1,66 @@
+package com.example.searchservice.benchmark;
+
+import com.example.searchservice.catalog.CatalogConfig;
+import com.example.searchservice.catalog.ProductCatalog;
+import com.example.searchservice.model.SearchOptions;
+import com.example.searchservice.model.SearchPage;
+import com.example.searchservice.service.ExternalMergeConfig;
+import com.example.searchservice.service.ResultCache;
+import com.example.searchservice.service.ResultCacheConfig;
+import com.example.searchservice.service.SearchMetrics;
+import com.example.searchservice.service.SearchService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Merge and id-based deduplication of the four upstream feeds behind {@code /search/products/external}, per
+ * {@link ExternalMergeConfig.DedupPolicy}. The feeds are served from memory, so this isolates the in-process cost
+ * from network and decoding; {@code -prof gc} shows the allocation per merge.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgs = {"-Xmx6g"})
+public class ExternalMergeBenchmark {
+
+    @Param({"10000", "100000", "1000000"})
+    private int size;
+
+    @Param({"FIRST_ARRIVAL", "SOURCE_PRIORITY"})
+    private ExternalMergeConfig.DedupPolicy dedup;
+
+    private SearchService searchService;
+
+    @Setup
+    public void setUp() {
+        FixtureShopClient client = new FixtureShopClient(CatalogFixtures.products(size));
+        ProductCatalog catalog = new ProductCatalog(client, new CatalogConfig(), new SimpleMeterRegistry());
+        ExternalMergeConfig mergeConfig = new ExternalMergeConfig();
+        mergeConfig.setDedup(dedup);
+        searchService = new SearchService(catalog, client, new SearchMetrics(new SimpleMeterRegistry()), mergeConfig,
+                new ResultCache(new ResultCacheConfig(), new SimpleMeterRegistry()));
+    }
+
+    @Benchmark
+    public void mergeDeduplicated(Blackhole blackhole) {
+        searchService.getAllProductsWithExternalOnes(SearchOptions.DEFAULT)
+                .flatMapMany(SearchPage::products)
+                .doOnNext(blackhole::consume)
+                .blockLast();
+    }
+}
@@ -0,0 +1,56 @@
+package com.example.searchservice.benchmark;
+
+import com.example.searchservice.client.ShopMockServiceClient;
+import com.example.searchservice.client.ShopMockServiceClientConfig;
+import com.example.searchservice.model.Product;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Flux;
+
+import java.util.List;
+
+/**
+ * Serves a fixed catalog from memory. The main feed returns every product and each external feed returns a quarter
+ * of them, so the external merge sees the same duplicate ratio as a real deployment where feeds overlap.
+ */
+final class FixtureShopClient extends ShopMockServiceClient {
+
+    private final List<Product> products;
+
+    FixtureShopClient(List<Product> products) {
+        super(WebClient.builder(), config(), CircuitBreakerRegistry.ofDefaults(), new SimpleMeterRegistry());
+        this.products = products;
+    }
+
+    @Override
+    public Flux<Product> getAllProducts() {
+        return Flux.fromIterable(products);
+    }
+
+    @Override
+    public Flux<Product> getAllGameProducts() {
+        return quarter(0);
+    }
+
+    @Override
+    public Flux<Product> getAllHardwareProducts() {
+        return quarter(1);
+    }
+
+    @Override
+    public Flux<Product> getAllSoftwareToolProducts() {
+        return quarter(2);
+    }
+
+    private Flux<Product> quarter(int index) {
+        int quarter = products.size() / 4;
+        return Flux.fromIterable(products.subList(index * quarter, (index + 1) * quarter));
+    }
+
+    private static ShopMockServiceClientConfig config() {
+        ShopMockServiceClientConfig config = new ShopMockServiceClientConfig();
+        config.setUrl("http://localhost");
+        return config;
+    }
+}
@@ -0,0 +1,100 @@
+package com.example.searchservice.benchmark;
+
+import com.example.searchservice.catalog.ManufacturerIndex;
+import com.example.searchservice.model.Manufacturer;
+import com.example.searchservice.model.NameMatch;
+import com.example.searchservice.model.Product;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Fuzzy manufacturer lookups for misspelled names as the number of distinct manufacturers grows: {@code trigram}
+ * goes through the index, {@code pairwise} checks the edit distance to every name, which is what the index replaces.
+ * Names are two or three random consonant-vowel syllables, so, as with real brand names, most trigrams are rare.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgs = {"-Xmx4g"})
+public class FuzzyManufacturerBenchmark {
+
+    private static final String CONSONANTS = "bcdfghjklmnprstvwxz";
+    private static final String VOWELS = "aeiouy";
+    private static final NameMatch FUZZY = new NameMatch(false, false, true);
+
+    @Param({"1000", "10000", "100000"})
+    private int manufacturers;
+
+    private ManufacturerIndex manufacturerIndex;
+    private String[] lowerNames;
+    private String[] queries;
+    private int next;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(7);
+        Set<String> names = new LinkedHashSet<>();
+        while (names.size() < manufacturers) {
+            StringBuilder name = new StringBuilder();
+            for (int syllables = 2 + random.nextInt(2); syllables > 0; syllables--) {
+                name.append(CONSONANTS.charAt(random.nextInt(CONSONANTS.length())))
+                        .append(VOWELS.charAt(random.nextInt(VOWELS.length())));
+                if (random.nextBoolean()) {
+                    name.append(CONSONANTS.charAt(random.nextInt(CONSONANTS.length())));
+                }
+            }
+            name.setCharAt(0, Character.toUpperCase(name.charAt(0)));
+            names.add(name.toString());
+        }
+        List<Product> products = names.stream()
+                .map(name -> Product.builder().manufacturer(Manufacturer.builder().name(name).build()).build())
+                .toList();
+        manufacturerIndex = ManufacturerIndex.build(products);
+        lowerNames = names.stream().map(name -> name.toLowerCase(Locale.ROOT)).toArray(String[]::new);
+        String[] sample = names.toArray(String[]::new);
+        queries = new String[256];
+        for (int i = 0; i < queries.length; i++) {
+            // swap two adjacent letters, the most common typo
+            char[] query = sample[random.nextInt(sample.length)].toCharArray();
+            int at = random.nextInt(query.length - 1);
+            char swapped = query[at];
+            query[at] = query[at + 1];
+            query[at + 1] = swapped;
+            queries[i] = new String(query);
+        }
+    }
+
+    @Benchmark
+    public int[] trigram() {
+        return manufacturerIndex.ids(queries[next++ & (queries.length - 1)], FUZZY);
+    }
+
+    @Benchmark
+    public int[] pairwise() {
+        String query = queries[next++ & (queries.length - 1)].toLowerCase(Locale.ROOT);
+        int maxEdits = NameMatch.maxEdits(query.length());
+        return Arrays.stream(lowerNames)
+                .filter(name -> NameMatch.withinEdits(query, name, maxEdits))
+                .mapToInt(name -> manufacturerIndex.id(name))
+                .toArray();
+    }
+}
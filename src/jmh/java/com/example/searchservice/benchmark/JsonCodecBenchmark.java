@@ -0,0 +1,71 @@
+package com.example.searchservice.benchmark;
+
+import com.example.searchservice.model.Product;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Jackson encoding of {@link Product} responses and decoding of upstream {@link Product} payloads, using the
+ * same {@link ObjectMapper} defaults as the WebFlux codecs. Scores are per product.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class JsonCodecBenchmark {
+
+    private static final int BATCH = 10_000;
+
+    private List<Product> products;
+    private byte[][] encoded;
+    private ObjectWriter writer;
+    private ObjectReader reader;
+
+    @Setup
+    public void setUp() throws IOException {
+        ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json().build();
+        writer = objectMapper.writerFor(Product.class);
+        reader = objectMapper.readerFor(Product.class);
+        products = CatalogFixtures.products(BATCH);
+        encoded = new byte[BATCH][];
+        for (int i = 0; i < BATCH; i++) {
+            encoded[i] = objectMapper.writeValueAsBytes(products.get(i));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH)
+    public void encodeProduct(Blackhole blackhole) throws IOException {
+        for (Product product : products) {
+            blackhole.consume(writer.writeValueAsBytes(product));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH)
+    public void decodeProduct(Blackhole blackhole) throws IOException {
+        for (byte[] json : encoded) {
+            blackhole.consume(reader.readValue(json));
+        }
+    }
+}
@@ -0,0 +1,181 @@
+package com.example.searchservice.benchmark;
+
+import com.example.searchservice.catalog.CatalogConfig;
+import com.example.searchservice.catalog.ProductCatalog;
+import com.example.searchservice.model.AdvancedSearchRequestBody;
+import com.example.searchservice.model.BatchSearchRequest;
+import com.example.searchservice.model.BatchSearchResult;
+import com.example.searchservice.model.Category;
+import com.example.searchservice.model.Facets;
+import com.example.searchservice.model.NameMatch;
+import com.example.searchservice.model.Product;
+import com.example.searchservice.model.SearchOptions;
+import com.example.searchservice.model.SearchPage;
+import com.example.searchservice.model.SortDirection;
+import com.example.searchservice.model.SortField;
+import com.example.searchservice.service.ExternalMergeConfig;
+import com.example.searchservice.service.ResultCache;
+import com.example.searchservice.service.ResultCacheConfig;
+import com.example.searchservice.service.SearchMetrics;
+import com.example.searchservice.service.SearchService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import reactor.core.publisher.Mono;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * End-to-end throughput of every {@link SearchService} filter against a loaded catalog snapshot, including
+ * emitting the matching products. Run with {@code -prof gc} to see the allocation rate per query.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgs = {"-Xmx6g"})
+public class SearchServiceBenchmark {
+
+    private static final AdvancedSearchRequestBody ELECTRONICS = new AdvancedSearchRequestBody(
+            null, null, List.of(Category.ELECTRONICS), null);
+    private static final List<BigDecimal> PRICE_BUCKETS = List.of(BigDecimal.valueOf(10), BigDecimal.valueOf(100),
+            BigDecimal.valueOf(1000));
+    private static final SearchOptions TOP_20_BY_PRICE = new SearchOptions(null, 20, SortField.PRICE, SortDirection.ASC, null);
+    /**
+     * Queries of one storefront page: category shelves plus broad price bands, best sellers and new arrivals, each
+     * a sorted top 20.
+     */
+    private static final List<BatchSearchRequest.Query> STOREFRONT = List.of(
+            shelf("electronics", null, List.of(Category.ELECTRONICS), null, null, null, SortField.RATING),
+            shelf("books", null, List.of(Category.BOOKS), null, null, null, SortField.RATING),
+            shelf("gaming", null, List.of(Category.GAMING, Category.GAMING_HARDWARE), null, null, null, SortField.PRICE),
+            shelf("garden", null, List.of(Category.GARDENING), 3.0, null, null, SortField.PRICE),
+            shelf("manufacturer", "Manufacturer 42", null, null, null, null, SortField.CREATED_AT),
+            shelf("under10", null, null, null, null, BigDecimal.TEN, SortField.RATING),
+            shelf("under100", null, null, null, BigDecimal.TEN, BigDecimal.valueOf(100), SortField.RATING),
+            shelf("under1000", null, null, null, BigDecimal.valueOf(100), BigDecimal.valueOf(1000), SortField.RATING),
+            shelf("premium", null, null, null, BigDecimal.valueOf(5000), null, SortField.RATING),
+            shelf("bestRated", null, null, 4.0, null, null, SortField.RATING),
+            shelf("cheapest", null, null, null, null, null, SortField.PRICE),
+            shelf("newest", null, null, null, null, null, SortField.CREATED_AT));
+
+    @Param({"10000", "100000", "1000000"})
+    private int size;
+
+    private SearchService searchService;
+    private SearchService cachedSearchService;
+
+    @Setup
+    public void setUp() {
+        FixtureShopClient client = new FixtureShopClient(CatalogFixtures.products(size));
+        ProductCatalog catalog = new ProductCatalog(client, new CatalogConfig(), new SimpleMeterRegistry());
+        catalog.snapshot().block();
+        ResultCacheConfig uncached = new ResultCacheConfig();
+        // every other benchmark has to select its page, otherwise it would measure cache lookups
+        uncached.setEnabled(false);
+        searchService = new SearchService(catalog, client, new SearchMetrics(new SimpleMeterRegistry()),
+                new ExternalMergeConfig(), new ResultCache(uncached, new SimpleMeterRegistry()));
+        cachedSearchService = new SearchService(catalog, client, new SearchMetrics(new SimpleMeterRegistry()),
+                new ExternalMergeConfig(), new ResultCache(new ResultCacheConfig(), new SimpleMeterRegistry()));
+    }
+
+    @Benchmark
+    public void allProducts(Blackhole blackhole) {
+        drain(searchService.getAllProducts(SearchOptions.DEFAULT), blackhole);
+    }
+
+    @Benchmark
+    public void category(Blackhole blackhole) {
+        drain(searchService.getProductsByCategory(List.of(Category.ELECTRONICS, Category.GAMING), SearchOptions.DEFAULT), blackhole);
+    }
+
+    @Benchmark
+    public void price(Blackhole blackhole) {
+        drain(searchService.getProductsByPrice(BigDecimal.valueOf(100), SearchOptions.DEFAULT), blackhole);
+    }
+
+    @Benchmark
+    public void priceRange(Blackhole blackhole) {
+        drain(searchService.getProductsByPriceRange(BigDecimal.valueOf(2500), BigDecimal.valueOf(2600), SearchOptions.DEFAULT), blackhole);
+    }
+
+    @Benchmark
+    public void manufacturer(Blackhole blackhole) {
+        drain(searchService.getProductsByManufacturer("Manufacturer 42", NameMatch.EXACT, SearchOptions.DEFAULT), blackhole);
+    }
+
+    @Benchmark
+    public void reviews(Blackhole blackhole) {
+        drain(searchService.getProductsByReviews(4.5, SearchOptions.DEFAULT), blackhole);
+    }
+
+    @Benchmark
+    public void text(Blackhole blackhole) {
+        drain(searchService.searchText("wireless keyboard", false, SearchOptions.DEFAULT), blackhole);
+    }
+
+    @Benchmark
+    public void advanced(Blackhole blackhole) {
+        drain(searchService.getProductsAdvancedSearch(new AdvancedSearchRequestBody(
+                "Manufacturer 42", BigDecimal.valueOf(5000), List.of(Category.ELECTRONICS), 3.0), SearchOptions.DEFAULT), blackhole);
+    }
+
+    @Benchmark
+    public void categoryAdvanced(Blackhole blackhole) {
+        drain(searchService.getProductsAdvancedSearch(ELECTRONICS, SearchOptions.DEFAULT), blackhole);
+    }
+
+    @Benchmark
+    public Facets categoryFacets() {
+        return searchService.facetAdvancedSearch(ELECTRONICS, PRICE_BUCKETS, 20).block();
+    }
+
+    @Benchmark
+    public void categoryAdvancedCached(Blackhole blackhole) {
+        drain(cachedSearchService.getProductsAdvancedSearch(ELECTRONICS, SearchOptions.DEFAULT), blackhole);
+    }
+
+    @Benchmark
+    public void sortedTopK(Blackhole blackhole) {
+        drain(searchService.getProductsByCategory(List.of(Category.ELECTRONICS), TOP_20_BY_PRICE), blackhole);
+    }
+
+    @Benchmark
+    public BatchSearchResult storefrontBatch() {
+        return searchService.batchAdvancedSearch(STOREFRONT, SearchOptions.DEFAULT).block();
+    }
+
+    @Benchmark
+    public void storefrontSequential(Blackhole blackhole) {
+        for (BatchSearchRequest.Query query : STOREFRONT) {
+            drain(searchService.getProductsAdvancedSearch(query.query(), query.query().searchOptions(SearchOptions.DEFAULT)),
+                    blackhole);
+        }
+    }
+
+    private static BatchSearchRequest.Query shelf(String id, String manufacturer, List<Category> categories,
+                                                  Double reviewRate, BigDecimal minPrice, BigDecimal maxPrice,
+                                                  SortField sort) {
+        return new BatchSearchRequest.Query(id, new AdvancedSearchRequestBody(manufacturer, null, categories, reviewRate,
+                minPrice, maxPrice, 20, sort, SortDirection.DESC, null));
+    }
+
+    private static void drain(Mono<SearchPage> page, Blackhole blackhole) {
+        page.flatMapMany(SearchPage::products)
+                .doOnNext(blackhole::consume)
+                .blockLast();
+    }
+}
@@ -0,0 +1,71 @@
+package com.example.searchservice.benchmark;
+
+import com.example.searchservice.catalog.CatalogSnapshot;
+import com.example.searchservice.catalog.CatalogSnapshotFile;
+import com.example.searchservice.model.Product;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Time until a starting instance has a searchable snapshot: {@code restore} reads the persisted snapshot file,
+ * {@code rebuild} indexes products that are already decoded in memory, which is what a cold start does after the
+ * upstream transfer and JSON decoding it leaves out.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgs = {"-Xmx4g"})
+public class SnapshotRestoreBenchmark {
+
+    @Param({"100000", "1000000"})
+    private int size;
+
+    @Param({"restore", "rebuild"})
+    private String startup;
+
+    private List<Product> products;
+    private CatalogSnapshotFile snapshotFile;
+
+    @Setup
+    public void setUp() throws IOException {
+        products = CatalogFixtures.products(size);
+        snapshotFile = new CatalogSnapshotFile(Files.createTempFile("catalog", ".snapshot"));
+        if (startup.equals("restore")) {
+            snapshotFile.write(new CatalogSnapshotFile.Contents(CatalogSnapshot.build(1, Instant.now(), products),
+                    null, null));
+            products = null;
+        }
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(snapshotFile.path());
+    }
+
+    @Benchmark
+    public CatalogSnapshot timeToReady() throws IOException {
+        if (products == null) {
+            return snapshotFile.read().orElseThrow().snapshot();
+        }
+        return CatalogSnapshot.build(1, Instant.now(), products);
+    }
+}
@@ -0,0 +1,63 @@
+package com.example.searchservice.benchmark;
+
+import com.example.searchservice.catalog.RatingIndex;
+import com.example.searchservice.catalog.SuggestIndex;
+import com.example.searchservice.model.Product;
+import com.example.searchservice.model.Suggestion;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-keystroke latency distribution of name completion: prefixes of one to eight characters of existing product
+ * names, so short prefixes match a large share of the catalog. The index footprint is printed once per fork.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgs = {"-Xmx6g"})
+public class SuggestBenchmark {
+
+    @Param({"100000", "1000000"})
+    private int size;
+
+    @Param({"10"})
+    private int limit;
+
+    private SuggestIndex suggestIndex;
+    private String[] prefixes;
+    private int next;
+
+    @Setup
+    public void setUp() {
+        List<Product> products = CatalogFixtures.products(size);
+        suggestIndex = SuggestIndex.build(products, RatingIndex.build(products));
+        System.out.printf("%n%d names, index footprint %.1f MB%n", suggestIndex.size(),
+                suggestIndex.footprintBytes() / (1024.0 * 1024.0));
+        Random random = new Random(7);
+        prefixes = new String[1024];
+        for (int i = 0; i < prefixes.length; i++) {
+            String name = products.get(random.nextInt(products.size())).getName();
+            prefixes[i] = name.substring(0, Math.min(name.length(), 1 + i % 8));
+        }
+    }
+
+    @Benchmark
+    public List<Suggestion> complete() {
+        return suggestIndex.complete(prefixes[next++ & (prefixes.length - 1)], limit);
+    }
+}
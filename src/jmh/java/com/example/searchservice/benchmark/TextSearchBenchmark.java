@@ -0,0 +1,62 @@
+package com.example.searchservice.benchmark;
+
+import com.example.searchservice.catalog.TextIndex;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Query latency distribution of the BM25 text index. {@code SampleTime} mode reports p50/p99 per catalog size.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgs = {"-Xmx6g"})
+public class TextSearchBenchmark {
+
+    @Param({"100000", "1000000"})
+    private int size;
+
+    @Param({"10"})
+    private int limit;
+
+    private TextIndex textIndex;
+    private String[] queries;
+    private int next;
+
+    @Setup
+    public void setUp() {
+        textIndex = TextIndex.build(CatalogFixtures.products(size), null);
+        Random random = new Random(7);
+        queries = new String[256];
+        for (int i = 0; i < queries.length; i++) {
+            String first = CatalogFixtures.WORDS[random.nextInt(CatalogFixtures.WORDS.length)];
+            String second = CatalogFixtures.WORDS[random.nextInt(CatalogFixtures.WORDS.length)];
+            queries[i] = switch (i % 3) {
+                case 0 -> first;
+                case 1 -> first + " " + second;
+                default -> "\"" + first + " " + second + "\"";
+            };
+        }
+    }
+
+    @Benchmark
+    public List<TextIndex.TextHit> search() {
+        String query = queries[next++ & (queries.length - 1)];
+        return textIndex.search(query, limit);
+    }
+}
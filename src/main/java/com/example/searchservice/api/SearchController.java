@@ -1,57 +1,233 @@
 package com.example.searchservice.api;
 
 import com.example.searchservice.model.AdvancedSearchRequestBody;
+import com.example.searchservice.model.BatchSearchRequest;
+import com.example.searchservice.model.BatchSearchResult;
 import com.example.searchservice.model.Category;
+import com.example.searchservice.model.Facets;
+import com.example.searchservice.model.NameMatch;
 import com.example.searchservice.model.Product;
+import com.example.searchservice.model.QueryPlan;
+import com.example.searchservice.model.SearchOptions;
+import com.example.searchservice.model.SearchPage;
+import com.example.searchservice.model.Suggestion;
 import com.example.searchservice.service.SearchService;
 import jakarta.validation.Valid;
 import jakarta.validation.constraints.NotBlank;
 import lombok.AllArgsConstructor;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.server.ServerWebInputException;
 import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
 
 import java.math.BigDecimal;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.stream.Stream;
 
+/**
+ * Results are written as a JSON array by default. Clients asking for {@code application/x-ndjson} or
+ * {@code text/event-stream} get every product flushed as soon as it passes the filters.
+ */
 @RestController
-@RequestMapping("/search/products")
+@RequestMapping(value = "/search/products",
+        produces = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_NDJSON_VALUE, MediaType.TEXT_EVENT_STREAM_VALUE})
 @AllArgsConstructor
 public class SearchController {
 
+    public static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+    public static final String STALENESS_HEADER = "X-Data-Staleness";
+
+    private static final int MAX_TEXT_RESULTS = 1000;
+    private static final int MAX_MANUFACTURER_FACETS = 1000;
+    private static final int MAX_SUGGESTIONS = 100;
+    private static final List<BigDecimal> DEFAULT_PRICE_BUCKETS = Stream.of(10, 25, 50, 100, 250, 500, 1000)
+            .map(BigDecimal::valueOf)
+            .toList();
+
     private final SearchService searchService;
 
     @GetMapping("external")
-    public Flux<Product> getAllProductsWithExternalOnes() {
-        return searchService.getAllProductsWithExternalOnes();
+    public Mono<ResponseEntity<Flux<Product>>> getAllProductsWithExternalOnes(@Valid @ModelAttribute final SearchOptions options,
+                                                                              final ServerWebExchange exchange) {
+        return respond(exchange, searchService.getAllProductsWithExternalOnes(options));
     }
 
     @GetMapping
-    public Flux<Product> getAllProducts() {
-        return searchService.getAllProducts();
+    public Mono<ResponseEntity<Flux<Product>>> getAllProducts(@Valid @ModelAttribute final SearchOptions options,
+                                                              final ServerWebExchange exchange) {
+        return respond(exchange, searchService.getAllProducts(options));
     }
 
     @GetMapping("categories")
-    public Flux<Product> getProductsByCategory(@RequestParam final List<Category> categories) {
-        return searchService.getProductsByCategory(categories);
+    public Mono<ResponseEntity<Flux<Product>>> getProductsByCategory(@RequestParam final List<Category> categories,
+                                                                     @Valid @ModelAttribute final SearchOptions options,
+                                                                     final ServerWebExchange exchange) {
+        return respond(exchange, searchService.getProductsByCategory(categories, options));
     }
 
     @GetMapping("price")
-    public Flux<Product> getProductsByCategory(@RequestParam final BigDecimal price) {
-        return searchService.getProductsByPrice(price);
+    public Mono<ResponseEntity<Flux<Product>>> getProductsByPrice(@RequestParam(required = false) final BigDecimal price,
+                                                                  @RequestParam(required = false) final BigDecimal minPrice,
+                                                                  @RequestParam(required = false) final BigDecimal maxPrice,
+                                                                  @Valid @ModelAttribute final SearchOptions options,
+                                                                  final ServerWebExchange exchange) {
+        if (price == null && minPrice == null && maxPrice == null) {
+            throw new ServerWebInputException("At least one of 'price', 'minPrice' or 'maxPrice' is required");
+        }
+        if (minPrice == null && maxPrice == null) {
+            return respond(exchange, searchService.getProductsByPrice(price, options));
+        }
+        return respond(exchange, searchService.getProductsByPriceRange(minPrice, lowerOf(price, maxPrice), options));
     }
 
     @GetMapping("manufacturer")
-    public Flux<Product> getProductsByManufacturer(@RequestParam final @NotBlank String manufacturer) {
-        return searchService.getProductsByManufacturer(manufacturer);
+    public Mono<ResponseEntity<Flux<Product>>> getProductsByManufacturer(@RequestParam final @NotBlank String manufacturer,
+                                                                         @RequestParam(defaultValue = "false") final boolean ignoreCase,
+                                                                         @RequestParam(defaultValue = "false") final boolean prefix,
+                                                                         @RequestParam(defaultValue = "false") final boolean fuzzy,
+                                                                         @Valid @ModelAttribute final SearchOptions options,
+                                                                         final ServerWebExchange exchange) {
+        if (prefix && fuzzy) {
+            throw new ServerWebInputException("'prefix' and 'fuzzy' cannot be combined");
+        }
+        return respond(exchange, searchService.getProductsByManufacturer(manufacturer,
+                new NameMatch(ignoreCase, prefix, fuzzy), options));
     }
 
     @GetMapping("reviews")
-    public Flux<Product> getProductsByReviews(@RequestParam final Double avgReview) {
-        return searchService.getProductsByReviews(avgReview);
+    public Mono<ResponseEntity<Flux<Product>>> getProductsByReviews(@RequestParam final Double avgReview,
+                                                                    @Valid @ModelAttribute final SearchOptions options,
+                                                                    final ServerWebExchange exchange) {
+        requireFiniteRating("avgReview", avgReview);
+        return respond(exchange, searchService.getProductsByReviews(avgReview, options));
+    }
+
+    @GetMapping("text")
+    public Mono<ResponseEntity<Flux<Product>>> searchText(@RequestParam final String q,
+                                                          @RequestParam(defaultValue = "false") final boolean fuzzy,
+                                                          @Valid @ModelAttribute final SearchOptions options,
+                                                          final ServerWebExchange exchange) {
+        if (q.isBlank()) {
+            throw new ServerWebInputException("Query 'q' must not be blank");
+        }
+        if (options.limit() != null && options.limit() > MAX_TEXT_RESULTS) {
+            throw new ServerWebInputException("'limit' must be between 1 and " + MAX_TEXT_RESULTS);
+        }
+        if (options.sort() != null) {
+            throw new ServerWebInputException("Text results are ordered by relevance and cannot be sorted");
+        }
+        return respond(exchange, searchService.searchText(q, fuzzy, options));
+    }
+
+    /**
+     * Typeahead completions of product and manufacturer names starting with {@code prefix}, ignoring case.
+     */
+    @GetMapping(value = "suggest", produces = MediaType.APPLICATION_JSON_VALUE)
+    public Mono<List<Suggestion>> suggest(@RequestParam final String prefix,
+                                          @RequestParam(defaultValue = "10") final int limit) {
+        if (prefix.isBlank()) {
+            throw new ServerWebInputException("'prefix' must not be blank");
+        }
+        if (limit < 1 || limit > MAX_SUGGESTIONS) {
+            throw new ServerWebInputException("'limit' must be between 1 and " + MAX_SUGGESTIONS);
+        }
+        return searchService.suggest(prefix, limit);
     }
 
     @PostMapping
-    public Flux<Product> getProductsAdvancedSearch(@RequestBody final @Valid AdvancedSearchRequestBody body) {
-        return searchService.getProductsAdvancedSearch(body);
+    public Mono<ResponseEntity<Flux<Product>>> getProductsAdvancedSearch(@RequestBody final @Valid AdvancedSearchRequestBody body,
+                                                                         @Valid @ModelAttribute final SearchOptions options,
+                                                                         final ServerWebExchange exchange) {
+        requireFiniteRating("reviewRate", body.reviewRate());
+        return respond(exchange, searchService.getProductsAdvancedSearch(body, body.searchOptions(options)));
+    }
+
+    /**
+     * Several advanced searches in one request, answered from one catalog version with the results grouped by query
+     * id. Query parameter options apply to every query unless its body sets them.
+     */
+    @PostMapping(value = "batch", produces = MediaType.APPLICATION_JSON_VALUE)
+    public Mono<BatchSearchResult> batchAdvancedSearch(@RequestBody final @Valid BatchSearchRequest body,
+                                                       @Valid @ModelAttribute final SearchOptions options) {
+        Set<String> ids = new HashSet<>();
+        for (BatchSearchRequest.Query query : body.queries()) {
+            if (!ids.add(query.id())) {
+                throw new ServerWebInputException("Duplicate query id '" + query.id() + "'");
+            }
+            requireFiniteRating("reviewRate", query.query().reviewRate());
+        }
+        return searchService.batchAdvancedSearch(body.queries(), options);
+    }
+
+    /**
+     * Counts of the products matching the advanced search, without the products themselves. {@code priceBuckets}
+     * lists the bucket boundaries, {@code manufacturers} caps the number of manufacturers reported.
+     */
+    @PostMapping(value = "facets", produces = MediaType.APPLICATION_JSON_VALUE)
+    public Mono<Facets> facetAdvancedSearch(@RequestBody final @Valid AdvancedSearchRequestBody body,
+                                            @RequestParam(required = false) final List<BigDecimal> priceBuckets,
+                                            @RequestParam(defaultValue = "20") final int manufacturers) {
+        if (manufacturers < 1 || manufacturers > MAX_MANUFACTURER_FACETS) {
+            throw new ServerWebInputException("'manufacturers' must be between 1 and " + MAX_MANUFACTURER_FACETS);
+        }
+        requireFiniteRating("reviewRate", body.reviewRate());
+        List<BigDecimal> boundaries = priceBuckets == null ? DEFAULT_PRICE_BUCKETS : priceBuckets;
+        return searchService.facetAdvancedSearch(body, boundaries, manufacturers);
+    }
+
+    @PostMapping(value = "explain", produces = MediaType.APPLICATION_JSON_VALUE)
+    public Mono<QueryPlan> explainAdvancedSearch(@RequestBody final @Valid AdvancedSearchRequestBody body) {
+        requireFiniteRating("reviewRate", body.reviewRate());
+        return searchService.explainAdvancedSearch(body);
+    }
+
+    /**
+     * Pages served from the catalog carry a strong entity tag. The tag covers the requested representation as well,
+     * since a JSON array and a stream of the same page differ byte for byte, and the response varies by
+     * {@code Accept} so that shared caches keep the representations apart. A {@code GET} whose
+     * {@code If-None-Match} still matches is answered with {@code 304 Not Modified} before the products are built.
+     */
+    private static Mono<ResponseEntity<Flux<Product>>> respond(final ServerWebExchange exchange,
+                                                               final Mono<SearchPage> page) {
+        return page.map(result -> {
+            ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+            if (result.entityTag() != null) {
+                String accept = exchange.getRequest().getHeaders().getFirst(HttpHeaders.ACCEPT);
+                response.eTag("\"" + result.entityTag() + "-" + Integer.toHexString(Objects.hashCode(accept)) + "\"")
+                        .varyBy(HttpHeaders.ACCEPT);
+            }
+            if (result.nextCursor() != null) {
+                response.header(NEXT_CURSOR_HEADER, result.nextCursor());
+            }
+            if (result.staleness() != null) {
+                // seconds since the served catalog data was loaded from shop-mock-service
+                response.header(STALENESS_HEADER, Long.toString(result.staleness().toSeconds()));
+            }
+            return response.body(result.products());
+        });
+    }
+
+    /**
+     * {@code NaN} and infinities parse as doubles but would land in the lowest or highest rating bucket, so a
+     * {@code NaN} threshold would match nearly every product.
+     */
+    private static void requireFiniteRating(final String name, final Double rating) {
+        if (rating != null && !Double.isFinite(rating)) {
+            throw new ServerWebInputException("'" + name + "' must be a finite number");
+        }
+    }
+
+    private static BigDecimal lowerOf(final BigDecimal first, final BigDecimal second) {
+        if (first == null || second == null) {
+            return first == null ? second : first;
+        }
+        return first.min(second);
     }
 }
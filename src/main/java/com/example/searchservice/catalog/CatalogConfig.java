@@ -0,0 +1,35 @@
+package com.example.searchservice.catalog;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.nio.file.Path;
+import java.time.Duration;
+
+@Component
+@ConfigurationProperties(prefix = "catalog")
+@Getter
+@Setter
+public class CatalogConfig {
+
+    private Duration refreshInterval = Duration.ofMinutes(1);
+    private Duration loadTimeout = Duration.ofSeconds(30);
+    private SyncMode syncMode = SyncMode.FULL;
+    private Duration fullResyncInterval = Duration.ofHours(1);
+    private double compactionRatio = 0.05;
+    private Path snapshotFile;
+
+    public enum SyncMode {
+        /**
+         * Every refresh reloads the whole catalog.
+         */
+        FULL,
+        /**
+         * Refreshes fetch only the products changed since the last sync, with a full resync on a change log gap and
+         * every {@code full-resync-interval}.
+         */
+        DELTA
+    }
+}
@@ -0,0 +1,259 @@
+package com.example.searchservice.catalog;
+
+import com.example.searchservice.model.Product;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.stream.IntStream;
+
+/**
+ * Immutable, fully built view of the product catalog. A snapshot is never modified after
+ * construction, so it can be shared freely between concurrent searches.
+ * <p>
+ * A delta is applied with {@link #patch}, which indexes only the changed products and layers them over the indexes
+ * of the last full build (see {@link Overlay}). Deleted products leave their ordinal unused, so ordinals of a patched
+ * snapshot are not dense: iterate {@link #ordinals()} rather than counting up to {@link #size()}. Patches accumulate
+ * until the snapshot is built in full again, which compacts them away.
+ */
+public final class CatalogSnapshot {
+
+    /**
+     * Products a patch touched, both as they were in the snapshot of {@code fromVersion} it was applied to and as
+     * they are now, so that results computed for that snapshot can be kept when none of them could match.
+     */
+    public record Delta(long fromVersion, List<Product> products) {
+    }
+
+    private final long version;
+    private final Instant loadedAt;
+    private final List<Product> products;
+    private final Map<UUID, Integer> ordinalsById;
+    private final CategoryIndex categoryIndex;
+    private final PriceIndex priceIndex;
+    private final RatingIndex ratingIndex;
+    private final ManufacturerIndex manufacturerIndex;
+    private final TextIndex textIndex;
+    private final SuggestIndex suggestIndex;
+    private final CatalogSnapshot base;
+    private final Overlay overlay;
+    private final Delta delta;
+
+    private CatalogSnapshot(long version, Instant loadedAt, List<Product> products, CatalogSnapshot previous,
+                            TextIndex textIndex) {
+        this.version = version;
+        this.loadedAt = loadedAt;
+        this.products = products;
+        this.ordinalsById = new HashMap<>(products.size() * 2);
+        for (int ordinal = 0; ordinal < products.size(); ordinal++) {
+            ordinalsById.put(products.get(ordinal).getId(), ordinal);
+        }
+        this.categoryIndex = CategoryIndex.build(products);
+        this.priceIndex = PriceIndex.build(products);
+        this.ratingIndex = RatingIndex.build(products, previous);
+        this.manufacturerIndex = ManufacturerIndex.build(products);
+        this.textIndex = textIndex != null ? textIndex : TextIndex.build(products, previous);
+        this.suggestIndex = SuggestIndex.build(products, ratingIndex);
+        this.base = null;
+        this.overlay = null;
+        this.delta = null;
+    }
+
+    /**
+     * Layers the changed products, by slot, over a fully built {@code base}.
+     */
+    private CatalogSnapshot(long version, Instant loadedAt, CatalogSnapshot base, Overlay overlay, List<Product> changed,
+                            CatalogSnapshot previous, List<Product> touched) {
+        this.version = version;
+        this.loadedAt = loadedAt;
+        this.products = changed;
+        this.ordinalsById = new HashMap<>(changed.size() * 2);
+        for (int slot = 0; slot < changed.size(); slot++) {
+            ordinalsById.put(changed.get(slot).getId(), overlay.ordinal(slot));
+        }
+        this.categoryIndex = CategoryIndex.patch(base.categoryIndex, CategoryIndex.build(changed), overlay);
+        this.priceIndex = PriceIndex.patch(base.priceIndex, PriceIndex.build(changed), overlay);
+        RatingIndex changedRatings = RatingIndex.build(changed, previous);
+        this.ratingIndex = RatingIndex.patch(base.ratingIndex, changedRatings, overlay);
+        this.manufacturerIndex = ManufacturerIndex.patch(base.manufacturerIndex, ManufacturerIndex.build(changed),
+                overlay);
+        this.textIndex = TextIndex.patch(base.textIndex, TextIndex.build(changed, previous, base.textIndex), overlay);
+        this.suggestIndex = SuggestIndex.patch(base, overlay, changed, changedRatings);
+        this.base = base;
+        this.overlay = overlay;
+        this.delta = new Delta(previous.version, touched);
+    }
+
+    public static CatalogSnapshot build(long version, Instant loadedAt, List<Product> products) {
+        return build(version, loadedAt, products, null);
+    }
+
+    /**
+     * Builds a snapshot, reusing work from {@code previous} for products that did not change.
+     */
+    public static CatalogSnapshot build(long version, Instant loadedAt, List<Product> products,
+                                        CatalogSnapshot previous) {
+        return new CatalogSnapshot(version, loadedAt, List.copyOf(products), previous, null);
+    }
+
+    /**
+     * Rebuilds a snapshot read back from a {@link CatalogSnapshotFile} around its persisted text index; only the
+     * numeric indexes are built again.
+     */
+    static CatalogSnapshot restore(long version, Instant loadedAt, List<Product> products, TextIndex textIndex) {
+        return new CatalogSnapshot(version, loadedAt, List.copyOf(products), null, textIndex);
+    }
+
+    /**
+     * Applies a delta: upserted products replace the product with their id in place or are appended, then deleted
+     * ids are removed, so a product both upserted and deleted ends up deleted. Only the products changed since the
+     * last full build are indexed again, and unchanged products keep their instances and analysis.
+     */
+    public CatalogSnapshot patch(long version, Instant loadedAt, Collection<Product> upserts,
+                                 Collection<UUID> deletes) {
+        CatalogSnapshot fullBuild = base != null ? base : this;
+        int baseSize = fullBuild.products.size();
+        BitSet tombstones = overlay != null ? (BitSet) overlay.tombstones().clone() : new BitSet(baseSize);
+        int limit = overlay != null ? overlay.limit() : baseSize;
+        SortedMap<Integer, Product> changed = new TreeMap<>();
+        if (overlay != null) {
+            for (int slot = 0; slot < products.size(); slot++) {
+                changed.put(overlay.ordinal(slot), products.get(slot));
+            }
+        }
+        Map<UUID, Integer> upserted = new HashMap<>();
+        List<Product> touched = new ArrayList<>();
+        for (Product upsert : upserts) {
+            int ordinal = upserted.computeIfAbsent(upsert.getId(), this::ordinal);
+            touched.add(upsert);
+            if (ordinal < 0) {
+                ordinal = limit++;
+                upserted.put(upsert.getId(), ordinal);
+            }
+            if (ordinal < baseSize) {
+                tombstones.set(ordinal);
+            }
+            changed.put(ordinal, upsert);
+        }
+        for (UUID id : deletes) {
+            int ordinal = upserted.getOrDefault(id, ordinal(id));
+            if (ordinal >= 0) {
+                changed.remove(ordinal);
+                if (ordinal < baseSize) {
+                    tombstones.set(ordinal);
+                }
+            }
+        }
+        for (UUID id : upserted.keySet()) {
+            addExisting(id, touched);
+        }
+        for (UUID id : deletes) {
+            addExisting(id, touched);
+        }
+        int[] ordinals = changed.keySet().stream().mapToInt(Integer::intValue).toArray();
+        return new CatalogSnapshot(version, loadedAt, fullBuild, new Overlay(baseSize, tombstones, ordinals, limit),
+                List.copyOf(changed.values()), this, List.copyOf(touched));
+    }
+
+    /**
+     * Returns what the patch that produced this snapshot touched, or {@code null} for a full build.
+     */
+    public Delta delta() {
+        return delta;
+    }
+
+    public boolean isFullBuild() {
+        return overlay == null;
+    }
+
+    /**
+     * Products replaced, deleted or added since the snapshot was last built in full; zero for a full build.
+     */
+    public int changedSinceBuild() {
+        return overlay != null ? overlay.changes() : 0;
+    }
+
+    public long version() {
+        return version;
+    }
+
+    public Instant loadedAt() {
+        return loadedAt;
+    }
+
+    /**
+     * Returns the products in catalog order. A patched snapshot collects them on every call.
+     */
+    public List<Product> products() {
+        return overlay != null ? ordinals().mapToObj(this::product).toList() : products;
+    }
+
+    public Product product(int ordinal) {
+        if (overlay != null) {
+            int slot = overlay.slot(ordinal);
+            return slot < 0 ? base.product(ordinal) : products.get(slot);
+        }
+        return products.get(ordinal);
+    }
+
+    public int ordinal(UUID id) {
+        Integer ordinal = ordinalsById.get(id);
+        if (ordinal != null) {
+            return ordinal;
+        }
+        if (overlay != null) {
+            int baseOrdinal = base.ordinal(id);
+            return baseOrdinal >= 0 && !overlay.tombstones().get(baseOrdinal) ? baseOrdinal : -1;
+        }
+        return -1;
+    }
+
+    /**
+     * Ordinals of the products in catalog order.
+     */
+    public IntStream ordinals() {
+        return overlay != null ? overlay.liveOrdinals() : IntStream.range(0, products.size());
+    }
+
+    public CategoryIndex categoryIndex() {
+        return categoryIndex;
+    }
+
+    public PriceIndex priceIndex() {
+        return priceIndex;
+    }
+
+    public RatingIndex ratingIndex() {
+        return ratingIndex;
+    }
+
+    public ManufacturerIndex manufacturerIndex() {
+        return manufacturerIndex;
+    }
+
+    public TextIndex textIndex() {
+        return textIndex;
+    }
+
+    public SuggestIndex suggestIndex() {
+        return suggestIndex;
+    }
+
+    public int size() {
+        return overlay != null ? overlay.baseSize() - overlay.tombstoneCount() + overlay.size() : products.size();
+    }
+
+    private void addExisting(UUID id, List<Product> products) {
+        int ordinal = ordinal(id);
+        if (ordinal >= 0) {
+            products.add(product(ordinal));
+        }
+    }
+}
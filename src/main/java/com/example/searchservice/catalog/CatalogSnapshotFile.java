@@ -0,0 +1,434 @@
+package com.example.searchservice.catalog;
+
+import com.example.searchservice.model.Category;
+import com.example.searchservice.model.Manufacturer;
+import com.example.searchservice.model.Product;
+import com.example.searchservice.model.Review;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+
+/**
+ * Versioned binary copy of a {@link CatalogSnapshot} on disk, so a restarted instance can serve the catalog it had
+ * before the restart instead of pulling everything from upstream first.
+ * <p>
+ * The file holds the products, their analyzed text documents, the text index postings and the sync watermarks.
+ * Manufacturers, reviewer names, categories and text terms are written once into dictionaries and referenced by id,
+ * and product fields use var-length integers. A file written by another format version is rejected rather than
+ * misread.
+ * <p>
+ * Reading decodes the whole file back into heap objects in one sequential pass; nothing is served from the file
+ * itself. What a restore saves is the upstream transfer, the JSON decoding and the text analysis and inversion:
+ * postings arrays are bulk-copied and only the cheap numeric indexes are rebuilt. The file is read through a
+ * {@link MappedFileInput}, so its size is not bounded by what a single mapping can hold.
+ */
+public final class CatalogSnapshotFile {
+
+    static final int MAGIC = 0x53435346;
+    static final int FORMAT_VERSION = 1;
+
+    private static final int END = ~MAGIC;
+    private static final int NONE = 0;
+
+    private final Path path;
+    private final int windowBytes;
+
+    public CatalogSnapshotFile(Path path) {
+        this(path, MappedFileInput.DEFAULT_WINDOW_BYTES);
+    }
+
+    CatalogSnapshotFile(Path path, int windowBytes) {
+        this.path = path;
+        this.windowBytes = windowBytes;
+    }
+
+    /**
+     * A snapshot together with the sync state it was loaded with.
+     */
+    public record Contents(CatalogSnapshot snapshot, LocalDateTime watermark, Instant lastFullSync) {
+    }
+
+    public Path path() {
+        return path;
+    }
+
+    /**
+     * Writes the contents to a temporary file next to the target and moves it into place, so readers only ever see
+     * a complete file. Only a fully built snapshot can be written, as the file holds its postings as they are.
+     */
+    public void write(Contents contents) throws IOException {
+        if (!contents.snapshot().isFullBuild()) {
+            throw new IllegalArgumentException("Catalog snapshot version " + contents.snapshot().version()
+                    + " is patched; only fully built snapshots are written");
+        }
+        Path directory = path.toAbsolutePath().getParent();
+        Files.createDirectories(directory);
+        Path temporary = Files.createTempFile(directory, path.getFileName().toString(), ".tmp");
+        try {
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temporary),
+                    1 << 16))) {
+                new Writer(out).write(contents);
+            }
+            Files.move(temporary, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temporary);
+        }
+    }
+
+    /**
+     * Reads the file back, or returns empty if there is none. A truncated, corrupt or foreign file fails with an
+     * {@link IOException}.
+     */
+    public Optional<Contents> read() throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            return Optional.of(new Reader(new MappedFileInput(channel, windowBytes)).read());
+        } catch (NoSuchFileException e) {
+            return Optional.empty();
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        } catch (RuntimeException e) {
+            throw new IOException("Catalog snapshot file " + path + " is corrupt", e);
+        }
+    }
+
+    private static final class Writer {
+
+        private final DataOutput out;
+        private final Map<Manufacturer, Integer> manufacturers = new HashMap<>();
+        private final Map<String, Integer> reviewers = new HashMap<>();
+        private final Map<String, Integer> terms = new HashMap<>();
+
+        private Writer(DataOutput out) {
+            this.out = out;
+        }
+
+        private void write(Contents contents) throws IOException {
+            CatalogSnapshot snapshot = contents.snapshot();
+            for (int ordinal = 0; ordinal < snapshot.size(); ordinal++) {
+                collectDictionaries(snapshot.product(ordinal), snapshot.textIndex().document(ordinal));
+            }
+
+            out.writeInt(MAGIC);
+            out.writeInt(FORMAT_VERSION);
+            out.writeLong(snapshot.version());
+            writeInstant(snapshot.loadedAt());
+            writeDateTime(contents.watermark());
+            writeInstant(contents.lastFullSync());
+
+            writeVarInt(Category.values().length);
+            for (Category category : Category.values()) {
+                writeString(category.name());
+            }
+            writeVarInt(manufacturers.size());
+            for (Manufacturer manufacturer : keysById(manufacturers)) {
+                writeUuid(manufacturer.getId());
+                writeString(manufacturer.getName());
+                writeString(manufacturer.getAddress());
+                writeString(manufacturer.getContact());
+            }
+            writeVarInt(reviewers.size());
+            for (String reviewer : keysById(reviewers)) {
+                writeString(reviewer);
+            }
+            writeVarInt(terms.size());
+            for (String term : keysById(terms)) {
+                writeString(term);
+            }
+
+            writeVarInt(snapshot.size());
+            for (int ordinal = 0; ordinal < snapshot.size(); ordinal++) {
+                writeProduct(snapshot.product(ordinal));
+                writeDocument(snapshot.textIndex().document(ordinal));
+            }
+            snapshot.textIndex().writePostings(out, terms::get);
+            out.writeInt(END);
+        }
+
+        private void collectDictionaries(Product product, String[] document) {
+            if (product.getManufacturer() != null) {
+                manufacturers.putIfAbsent(product.getManufacturer(), manufacturers.size());
+            }
+            if (product.getReviews() != null) {
+                for (Review review : product.getReviews()) {
+                    if (review.getReviewerName() != null) {
+                        reviewers.putIfAbsent(review.getReviewerName(), reviewers.size());
+                    }
+                }
+            }
+            for (String term : document) {
+                if (term != null) {
+                    terms.putIfAbsent(term, terms.size());
+                }
+            }
+        }
+
+        private void writeProduct(Product product) throws IOException {
+            writeUuid(product.getId());
+            writeString(product.getName());
+            writeString(product.getDescription());
+            writeDecimal(product.getPrice());
+            writeReference(manufacturers, product.getManufacturer());
+            List<Category> categories = product.getCategories();
+            writeVarInt(categories == null ? NONE : categories.size() + 1);
+            if (categories != null) {
+                for (Category category : categories) {
+                    writeVarInt(category == null ? NONE : category.ordinal() + 1);
+                }
+            }
+            writeDateTime(product.getCreatedAt());
+            writeDateTime(product.getUpdatedAt());
+            List<Review> reviews = product.getReviews();
+            writeVarInt(reviews == null ? NONE : reviews.size() + 1);
+            if (reviews != null) {
+                for (Review review : reviews) {
+                    writeReference(reviewers, review.getReviewerName());
+                    writeString(review.getComment());
+                    writeVarInt(review.getRating() << 1 ^ review.getRating() >> 31);
+                    writeDateTime(review.getReviewDate());
+                }
+            }
+        }
+
+        private void writeDocument(String[] document) throws IOException {
+            writeVarInt(document.length);
+            for (String term : document) {
+                writeReference(terms, term);
+            }
+        }
+
+        private <T> void writeReference(Map<T, Integer> dictionary, T value) throws IOException {
+            writeVarInt(value == null ? NONE : dictionary.get(value) + 1);
+        }
+
+        private void writeString(String value) throws IOException {
+            if (value == null) {
+                writeVarInt(NONE);
+                return;
+            }
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            writeVarInt(bytes.length + 1);
+            out.write(bytes);
+        }
+
+        private void writeUuid(UUID value) throws IOException {
+            out.writeBoolean(value != null);
+            if (value != null) {
+                out.writeLong(value.getMostSignificantBits());
+                out.writeLong(value.getLeastSignificantBits());
+            }
+        }
+
+        private void writeDecimal(BigDecimal value) throws IOException {
+            if (value == null) {
+                writeVarInt(NONE);
+                return;
+            }
+            byte[] unscaled = value.unscaledValue().toByteArray();
+            writeVarInt(unscaled.length + 1);
+            out.write(unscaled);
+            out.writeInt(value.scale());
+        }
+
+        private void writeDateTime(LocalDateTime value) throws IOException {
+            writeInstant(value == null ? null : value.toInstant(ZoneOffset.UTC));
+        }
+
+        private void writeInstant(Instant value) throws IOException {
+            out.writeBoolean(value != null);
+            if (value != null) {
+                out.writeLong(value.getEpochSecond());
+                writeVarInt(value.getNano());
+            }
+        }
+
+        private void writeVarInt(int value) throws IOException {
+            while ((value & ~0x7F) != 0) {
+                out.writeByte(value & 0x7F | 0x80);
+                value >>>= 7;
+            }
+            out.writeByte(value);
+        }
+
+        private static <T> List<T> keysById(Map<T, Integer> dictionary) {
+            List<T> keys = new ArrayList<>(Collections.nCopies(dictionary.size(), null));
+            dictionary.forEach((key, id) -> keys.set(id, key));
+            return keys;
+        }
+    }
+
+    private static final class Reader {
+
+        private final MappedFileInput input;
+        private byte[] scratch = new byte[256];
+
+        private Reader(MappedFileInput input) {
+            this.input = input;
+        }
+
+        private Contents read() throws IOException {
+            if (input.remaining() < 8 || input.getInt() != MAGIC) {
+                throw new IOException("Not a catalog snapshot file");
+            }
+            int formatVersion = input.getInt();
+            if (formatVersion != FORMAT_VERSION) {
+                throw new IOException("Unsupported catalog snapshot format version " + formatVersion
+                        + ", expected " + FORMAT_VERSION);
+            }
+            long version = input.getLong();
+            Instant loadedAt = readInstant();
+            LocalDateTime watermark = readDateTime();
+            Instant lastFullSync = readInstant();
+
+            Category[] categories = new Category[readVarInt()];
+            for (int i = 0; i < categories.length; i++) {
+                categories[i] = Category.valueOf(readString());
+            }
+            Manufacturer[] manufacturers = new Manufacturer[readVarInt()];
+            for (int i = 0; i < manufacturers.length; i++) {
+                manufacturers[i] = new Manufacturer(readUuid(), readString(), readString(), readString());
+            }
+            String[] reviewers = readStrings();
+            String[] terms = readStrings();
+
+            int size = readVarInt();
+            List<Product> products = new ArrayList<>(size);
+            String[][] documents = new String[size][];
+            for (int ordinal = 0; ordinal < size; ordinal++) {
+                products.add(readProduct(categories, manufacturers, reviewers));
+                documents[ordinal] = readDocument(terms);
+            }
+            TextIndex textIndex = TextIndex.readPostings(input, terms, documents);
+            if (input.getInt() != END) {
+                throw new IOException("Catalog snapshot file does not end where expected");
+            }
+            return new Contents(CatalogSnapshot.restore(version, loadedAt, products, textIndex), watermark,
+                    lastFullSync);
+        }
+
+        private Product readProduct(Category[] categories, Manufacturer[] manufacturers, String[] reviewers) {
+            Product product = new Product();
+            product.setId(readUuid());
+            product.setName(readString());
+            product.setDescription(readString());
+            product.setPrice(readDecimal());
+            product.setManufacturer(readReference(manufacturers));
+            int categoryCount = readVarInt();
+            if (categoryCount != NONE) {
+                List<Category> productCategories = new ArrayList<>(categoryCount - 1);
+                for (int i = 1; i < categoryCount; i++) {
+                    productCategories.add(readReference(categories));
+                }
+                product.setCategories(productCategories);
+            }
+            product.setCreatedAt(readDateTime());
+            product.setUpdatedAt(readDateTime());
+            int reviewCount = readVarInt();
+            if (reviewCount != NONE) {
+                List<Review> reviews = new ArrayList<>(reviewCount - 1);
+                for (int i = 1; i < reviewCount; i++) {
+                    String reviewer = readReference(reviewers);
+                    String comment = readString();
+                    int rating = readVarInt();
+                    reviews.add(new Review(reviewer, comment, rating >>> 1 ^ -(rating & 1), readDateTime()));
+                }
+                product.setReviews(reviews);
+            }
+            return product;
+        }
+
+        private String[] readDocument(String[] terms) {
+            String[] document = new String[readVarInt()];
+            for (int position = 0; position < document.length; position++) {
+                document[position] = readReference(terms);
+            }
+            return document;
+        }
+
+        private <T> T readReference(T[] dictionary) {
+            int reference = readVarInt();
+            return reference == NONE ? null : dictionary[reference - 1];
+        }
+
+        private String[] readStrings() {
+            String[] strings = new String[readVarInt()];
+            for (int i = 0; i < strings.length; i++) {
+                strings[i] = readString();
+            }
+            return strings;
+        }
+
+        private String readString() {
+            int length = readVarInt();
+            if (length == NONE) {
+                return null;
+            }
+            length--;
+            if (scratch.length < length) {
+                scratch = new byte[Math.max(length, scratch.length * 2)];
+            }
+            input.get(scratch, 0, length);
+            return new String(scratch, 0, length, StandardCharsets.UTF_8);
+        }
+
+        private UUID readUuid() {
+            return input.get() == 0 ? null : new UUID(input.getLong(), input.getLong());
+        }
+
+        private BigDecimal readDecimal() {
+            int length = readVarInt();
+            if (length == NONE) {
+                return null;
+            }
+            byte[] unscaled = new byte[length - 1];
+            input.get(unscaled);
+            return new BigDecimal(new BigInteger(unscaled), input.getInt());
+        }
+
+        private LocalDateTime readDateTime() {
+            Instant instant = readInstant();
+            return instant == null ? null : LocalDateTime.ofInstant(instant, ZoneOffset.UTC);
+        }
+
+        private Instant readInstant() {
+            if (input.get() == 0) {
+                return null;
+            }
+            long seconds = input.getLong();
+            return Instant.ofEpochSecond(seconds, readVarInt());
+        }
+
+        private int readVarInt() {
+            int value = 0;
+            for (int shift = 0; shift < 32; shift += 7) {
+                byte next = input.get();
+                value |= (next & 0x7F) << shift;
+                if (next >= 0) {
+                    return value;
+                }
+            }
+            throw new IllegalArgumentException("Malformed var-length integer");
+        }
+    }
+}
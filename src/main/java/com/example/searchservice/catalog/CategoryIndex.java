@@ -0,0 +1,154 @@
+package com.example.searchservice.catalog;
+
+import com.example.searchservice.model.Category;
+import com.example.searchservice.model.Product;
+
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Category lookups over a snapshot. Each product's categories are kept as a {@code long} bitmask indexed by
+ * {@link Category#ordinal()}, and every category has a posting bitmap of the product ordinals carrying it.
+ * <p>
+ * A patched index answers from the index of the last full build and an index of the products changed since, see
+ * {@link Overlay}.
+ */
+public final class CategoryIndex {
+
+    private static final int CATEGORY_COUNT = Category.values().length;
+
+    static {
+        if (CATEGORY_COUNT > Long.SIZE) {
+            throw new IllegalStateException("Category masks support at most " + Long.SIZE + " categories");
+        }
+    }
+
+    private final int size;
+    private final long[] masks;
+    private final BitSet[] postings;
+    private final int[] counts;
+    private final CategoryIndex base;
+    private final CategoryIndex changes;
+    private final Overlay overlay;
+
+    private CategoryIndex(int size, long[] masks, BitSet[] postings) {
+        this.size = size;
+        this.masks = masks;
+        this.postings = postings;
+        this.counts = new int[postings.length];
+        for (int category = 0; category < postings.length; category++) {
+            counts[category] = postings[category].cardinality();
+        }
+        this.base = null;
+        this.changes = null;
+        this.overlay = null;
+    }
+
+    private CategoryIndex(CategoryIndex base, CategoryIndex changes, Overlay overlay) {
+        this.size = 0;
+        this.masks = null;
+        this.postings = null;
+        this.counts = changes.counts.clone();
+        BitSet tombstones = overlay.tombstones();
+        for (int ordinal = tombstones.nextSetBit(0); ordinal >= 0; ordinal = tombstones.nextSetBit(ordinal + 1)) {
+            for (long remaining = base.mask(ordinal); remaining != 0; remaining &= remaining - 1) {
+                counts[Long.numberOfTrailingZeros(remaining)]--;
+            }
+        }
+        for (int category = 0; category < counts.length; category++) {
+            counts[category] += base.counts[category];
+        }
+        this.base = base;
+        this.changes = changes;
+        this.overlay = overlay;
+    }
+
+    public static CategoryIndex build(List<Product> products) {
+        int size = products.size();
+        long[] masks = new long[size];
+        BitSet[] postings = new BitSet[CATEGORY_COUNT];
+        for (int category = 0; category < CATEGORY_COUNT; category++) {
+            postings[category] = new BitSet(size);
+        }
+        for (int ordinal = 0; ordinal < size; ordinal++) {
+            List<Category> categories = products.get(ordinal).getCategories();
+            long mask = categories == null ? 0L : mask(categories);
+            masks[ordinal] = mask;
+            for (long remaining = mask; remaining != 0; remaining &= remaining - 1) {
+                postings[Long.numberOfTrailingZeros(remaining)].set(ordinal);
+            }
+        }
+        return new CategoryIndex(size, masks, postings);
+    }
+
+    /**
+     * Layers an index of the changed products over an index of the last full build; costs one pass over the
+     * tombstones.
+     */
+    static CategoryIndex patch(CategoryIndex base, CategoryIndex changes, Overlay overlay) {
+        return new CategoryIndex(base, changes, overlay);
+    }
+
+    public static long mask(Collection<Category> categories) {
+        long mask = 0L;
+        for (Category category : categories) {
+            mask |= 1L << category.ordinal();
+        }
+        return mask;
+    }
+
+    public long mask(int ordinal) {
+        if (overlay != null) {
+            int slot = overlay.slot(ordinal);
+            return slot < 0 ? base.mask(ordinal) : changes.mask(slot);
+        }
+        return masks[ordinal];
+    }
+
+    public boolean containsAll(int ordinal, long requiredMask) {
+        return (mask(ordinal) & requiredMask) == requiredMask;
+    }
+
+    public int count(Category category) {
+        return counts[category.ordinal()];
+    }
+
+    /**
+     * Returns the ordinals of products carrying every requested category, intersecting posting bitmaps from the
+     * rarest category up. An empty request matches the whole snapshot.
+     */
+    public BitSet matchingAll(Collection<Category> categories) {
+        if (overlay != null) {
+            return overlay.merge(base.matchingAll(categories), changes.matchingAll(categories));
+        }
+        if (categories == null || categories.isEmpty()) {
+            BitSet all = new BitSet(size);
+            all.set(0, size);
+            return all;
+        }
+        long remaining = mask(categories);
+        BitSet result = null;
+        while (remaining != 0 && (result == null || !result.isEmpty())) {
+            int category = rarestCategory(remaining);
+            remaining &= ~(1L << category);
+            if (result == null) {
+                result = (BitSet) postings[category].clone();
+            } else {
+                result.and(postings[category]);
+            }
+        }
+        return result;
+    }
+
+    private int rarestCategory(long categoryMask) {
+        int rarest = -1;
+        for (long remaining = categoryMask; remaining != 0; remaining &= remaining - 1) {
+            int category = Long.numberOfTrailingZeros(remaining);
+            if (rarest < 0 || counts[category] < counts[rarest]) {
+                rarest = category;
+            }
+        }
+        return rarest;
+    }
+}
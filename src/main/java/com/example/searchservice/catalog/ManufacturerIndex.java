@@ -0,0 +1,259 @@
+package com.example.searchservice.catalog;
+
+import com.example.searchservice.model.Manufacturer;
+import com.example.searchservice.model.NameMatch;
+import com.example.searchservice.model.Product;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.stream.IntStream;
+
+/**
+ * Dictionary of manufacturer names interned to dense integer ids, with a posting list of product ordinals per id.
+ * Exact lookups are a hash probe; case-insensitive lookups go through lower-cased names, prefix lookups through
+ * a sorted array of lower-cased names and fuzzy lookups through a {@link TrigramIndex} of lower-cased names.
+ * <p>
+ * A patched index keeps the dictionary of the last full build and gives names first seen among the changed products
+ * the next ids. Only the postings of manufacturers with tombstoned or changed products are merged per lookup; the
+ * others are served from the base as they are.
+ */
+public final class ManufacturerIndex {
+
+    public static final int UNKNOWN = -1;
+
+    private static final int[] NONE = new int[0];
+
+    private final String[] names;
+    private final Map<String, Integer> idsByName;
+    private final Map<String, int[]> idsByLowerName;
+    private final String[] sortedLowerNames;
+    private final int[] sortedIds;
+    private final TrigramIndex lowerNameGrams;
+    private final int[] idsByOrdinal;
+    private final int[][] postings;
+    private final ManufacturerIndex base;
+    private final ManufacturerIndex changes;
+    private final Overlay overlay;
+    // ids of the changed products' dictionary in this one, and the other way round for the names it added
+    private final int[] changedIds;
+    private final int[] addedIds;
+    private final BitSet touchedIds;
+
+    private ManufacturerIndex(String[] names, Map<String, Integer> idsByName, int[] idsByOrdinal, int[][] postings) {
+        this.names = names;
+        this.idsByName = idsByName;
+        this.idsByOrdinal = idsByOrdinal;
+        this.postings = postings;
+        this.base = null;
+        this.changes = null;
+        this.overlay = null;
+        this.changedIds = null;
+        this.addedIds = null;
+        this.touchedIds = null;
+
+        this.sortedIds = IntStream.range(0, names.length)
+                .boxed()
+                .sorted(Comparator.comparing(id -> names[id].toLowerCase(Locale.ROOT)))
+                .mapToInt(Integer::intValue)
+                .toArray();
+        this.sortedLowerNames = new String[names.length];
+        Map<String, List<Integer>> lowerNames = new HashMap<>();
+        for (int i = 0; i < sortedIds.length; i++) {
+            sortedLowerNames[i] = names[sortedIds[i]].toLowerCase(Locale.ROOT);
+            lowerNames.computeIfAbsent(sortedLowerNames[i], name -> new ArrayList<>()).add(sortedIds[i]);
+        }
+        this.idsByLowerName = new HashMap<>();
+        lowerNames.forEach((name, ids) -> idsByLowerName.put(name, ids.stream().mapToInt(Integer::intValue).toArray()));
+        this.lowerNameGrams = new TrigramIndex(lowerNames.keySet().toArray(String[]::new));
+    }
+
+    private ManufacturerIndex(ManufacturerIndex base, ManufacturerIndex changes, Overlay overlay) {
+        this.names = null;
+        this.idsByName = null;
+        this.idsByLowerName = null;
+        this.sortedLowerNames = null;
+        this.sortedIds = null;
+        this.lowerNameGrams = null;
+        this.idsByOrdinal = null;
+        this.postings = null;
+        this.base = base;
+        this.changes = changes;
+        this.overlay = overlay;
+        this.changedIds = new int[changes.size()];
+        this.touchedIds = new BitSet(base.size());
+        int[] addedIds = new int[changes.size()];
+        int added = 0;
+        for (int id = 0; id < changes.size(); id++) {
+            int baseId = base.id(changes.name(id));
+            if (baseId == UNKNOWN) {
+                baseId = base.size() + added;
+                addedIds[added++] = id;
+            } else {
+                touchedIds.set(baseId);
+            }
+            changedIds[id] = baseId;
+        }
+        this.addedIds = Arrays.copyOf(addedIds, added);
+        BitSet tombstones = overlay.tombstones();
+        for (int ordinal = tombstones.nextSetBit(0); ordinal >= 0; ordinal = tombstones.nextSetBit(ordinal + 1)) {
+            int id = base.manufacturerId(ordinal);
+            if (id != UNKNOWN) {
+                touchedIds.set(id);
+            }
+        }
+    }
+
+    public static ManufacturerIndex build(List<Product> products) {
+        Map<String, Integer> idsByName = new HashMap<>();
+        List<String> names = new ArrayList<>();
+        List<List<Integer>> postings = new ArrayList<>();
+        int[] idsByOrdinal = new int[products.size()];
+        for (int ordinal = 0; ordinal < products.size(); ordinal++) {
+            Manufacturer manufacturer = products.get(ordinal).getManufacturer();
+            if (manufacturer == null || manufacturer.getName() == null) {
+                idsByOrdinal[ordinal] = UNKNOWN;
+                continue;
+            }
+            int id = idsByName.computeIfAbsent(manufacturer.getName(), name -> {
+                names.add(name);
+                postings.add(new ArrayList<>());
+                return names.size() - 1;
+            });
+            idsByOrdinal[ordinal] = id;
+            postings.get(id).add(ordinal);
+        }
+        int[][] postingArrays = postings.stream()
+                .map(posting -> posting.stream().mapToInt(Integer::intValue).toArray())
+                .toArray(int[][]::new);
+        return new ManufacturerIndex(names.toArray(String[]::new), idsByName, idsByOrdinal, postingArrays);
+    }
+
+    /**
+     * Layers an index of the changed products over an index of the last full build, mapping the changed products'
+     * dictionary onto the base one.
+     */
+    static ManufacturerIndex patch(ManufacturerIndex base, ManufacturerIndex changes, Overlay overlay) {
+        return new ManufacturerIndex(base, changes, overlay);
+    }
+
+    public int size() {
+        return overlay != null ? base.size() + addedIds.length : names.length;
+    }
+
+    public String name(int id) {
+        if (overlay != null) {
+            return id < base.size() ? base.name(id) : changes.name(addedIds[id - base.size()]);
+        }
+        return names[id];
+    }
+
+    public int id(String name) {
+        if (overlay != null) {
+            int id = base.id(name);
+            if (id != UNKNOWN) {
+                return id;
+            }
+            id = changes.id(name);
+            return id == UNKNOWN ? UNKNOWN : changedIds[id];
+        }
+        Integer id = idsByName.get(name);
+        return id == null ? UNKNOWN : id;
+    }
+
+    public int manufacturerId(int ordinal) {
+        if (overlay != null) {
+            int slot = overlay.slot(ordinal);
+            if (slot < 0) {
+                return base.manufacturerId(ordinal);
+            }
+            int id = changes.manufacturerId(slot);
+            return id == UNKNOWN ? UNKNOWN : changedIds[id];
+        }
+        return idsByOrdinal[ordinal];
+    }
+
+    public int[] postings(int id) {
+        if (overlay != null) {
+            if (id >= base.size()) {
+                return overlay.merge(NONE, changes.postings(addedIds[id - base.size()]));
+            }
+            if (!touchedIds.get(id)) {
+                return base.postings(id);
+            }
+            int changedId = changes.id(base.name(id));
+            return overlay.merge(base.postings(id), changedId == UNKNOWN ? NONE : changes.postings(changedId));
+        }
+        return postings[id];
+    }
+
+    /**
+     * Resolves a requested name to the dictionary ids it matches. An empty result means no product can match.
+     */
+    public int[] ids(String name, NameMatch match) {
+        if (overlay != null) {
+            return IntStream.concat(Arrays.stream(base.ids(name, match)),
+                            Arrays.stream(changes.ids(name, match)).map(id -> changedIds[id]))
+                    .distinct()
+                    .toArray();
+        }
+        if (match.fuzzy()) {
+            String lowerName = name.toLowerCase(Locale.ROOT);
+            return Arrays.stream(lowerNameGrams.within(lowerName, NameMatch.maxEdits(lowerName.length())))
+                    .flatMap(lowerId -> Arrays.stream(idsByLowerName.get(lowerNameGrams.term(lowerId))))
+                    .toArray();
+        }
+        if (!match.prefix()) {
+            if (!match.ignoreCase()) {
+                int id = id(name);
+                return id == UNKNOWN ? NONE : new int[]{id};
+            }
+            return idsByLowerName.getOrDefault(name.toLowerCase(Locale.ROOT), NONE);
+        }
+        String lowerPrefix = name.toLowerCase(Locale.ROOT);
+        int from = lowerBound(lowerPrefix);
+        int to = from;
+        while (to < sortedLowerNames.length && sortedLowerNames[to].startsWith(lowerPrefix)) {
+            to++;
+        }
+        IntStream ids = Arrays.stream(sortedIds, from, to);
+        if (!match.ignoreCase()) {
+            ids = ids.filter(id -> names[id].startsWith(name));
+        }
+        return ids.toArray();
+    }
+
+    /**
+     * Returns the ordinals of products made by any of the given manufacturers, in catalog order.
+     */
+    public int[] ordinals(int[] ids) {
+        if (ids.length == 0) {
+            return NONE;
+        }
+        if (ids.length == 1) {
+            return postings(ids[0]);
+        }
+        int[] ordinals = Arrays.stream(ids).flatMap(id -> Arrays.stream(postings(id))).toArray();
+        Arrays.sort(ordinals);
+        return ordinals;
+    }
+
+    private int lowerBound(String lowerPrefix) {
+        int low = 0;
+        int high = sortedLowerNames.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (sortedLowerNames[mid].compareTo(lowerPrefix) < 0) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+}
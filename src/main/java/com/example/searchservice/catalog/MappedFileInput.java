@@ -0,0 +1,117 @@
+package com.example.searchservice.catalog;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.BufferUnderflowException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * Sequential big-endian reads over a file of any size, through a window of the file mapped into memory. A single
+ * mapping is capped at {@link Integer#MAX_VALUE} bytes, so the window is remapped at the read position whenever the
+ * next value would cross its end; windows are released once the garbage collector drops them.
+ */
+final class MappedFileInput {
+
+    static final int DEFAULT_WINDOW_BYTES = 1 << 30;
+
+    private final FileChannel channel;
+    private final long size;
+    private final int windowBytes;
+    private MappedByteBuffer window;
+    private long windowStart;
+
+    /**
+     * @param windowBytes bytes mapped at a time, at least as many as the widest single value read
+     */
+    MappedFileInput(FileChannel channel, int windowBytes) throws IOException {
+        this.channel = channel;
+        this.size = channel.size();
+        this.windowBytes = windowBytes;
+        map(0);
+    }
+
+    long remaining() {
+        return size - windowStart - window.position();
+    }
+
+    byte get() {
+        ensure(Byte.BYTES);
+        return window.get();
+    }
+
+    int getInt() {
+        ensure(Integer.BYTES);
+        return window.getInt();
+    }
+
+    long getLong() {
+        ensure(Long.BYTES);
+        return window.getLong();
+    }
+
+    double getDouble() {
+        ensure(Double.BYTES);
+        return window.getDouble();
+    }
+
+    void get(byte[] values) {
+        get(values, 0, values.length);
+    }
+
+    void get(byte[] values, int offset, int length) {
+        while (length > 0) {
+            ensure(Byte.BYTES);
+            int chunk = Math.min(length, window.remaining());
+            window.get(values, offset, chunk);
+            offset += chunk;
+            length -= chunk;
+        }
+    }
+
+    /**
+     * Bulk-copies {@code values.length} ints, a window at a time.
+     */
+    void get(int[] values) {
+        for (int offset = 0; offset < values.length; ) {
+            ensure(Integer.BYTES);
+            int chunk = Math.min(values.length - offset, window.remaining() / Integer.BYTES);
+            window.asIntBuffer().get(values, offset, chunk);
+            window.position(window.position() + chunk * Integer.BYTES);
+            offset += chunk;
+        }
+    }
+
+    /**
+     * Bulk-copies {@code values.length} floats, a window at a time.
+     */
+    void get(float[] values) {
+        for (int offset = 0; offset < values.length; ) {
+            ensure(Float.BYTES);
+            int chunk = Math.min(values.length - offset, window.remaining() / Float.BYTES);
+            window.asFloatBuffer().get(values, offset, chunk);
+            window.position(window.position() + chunk * Float.BYTES);
+            offset += chunk;
+        }
+    }
+
+    private void ensure(int bytes) {
+        if (window.remaining() >= bytes) {
+            return;
+        }
+        long position = windowStart + window.position();
+        if (size - position < bytes) {
+            throw new BufferUnderflowException();
+        }
+        try {
+            map(position);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void map(long position) throws IOException {
+        windowStart = position;
+        window = channel.map(FileChannel.MapMode.READ_ONLY, position, Math.min(windowBytes, size - position));
+    }
+}
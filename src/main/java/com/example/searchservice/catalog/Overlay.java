@@ -0,0 +1,156 @@
+package com.example.searchservice.catalog;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.NoSuchElementException;
+import java.util.PrimitiveIterator;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.IntStream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Products changed since the indexes of a snapshot were last built in full, layered over those base indexes. Upserted
+ * products keep their ordinal and new products are appended after the last one handed out, so ordinals stay stable
+ * and catalog order is unchanged. Base ordinals that were replaced or deleted are tombstoned; the changed products
+ * are indexed on their own, in indexes of the same kind, where they sit at a slot: their rank among the changed
+ * ordinals.
+ * <p>
+ * Slots are in ordinal order, so results of the changed products' indexes map onto ascending ordinals and merge with
+ * the live results of the base indexes in one pass.
+ */
+final class Overlay {
+
+    private final int baseSize;
+    private final BitSet tombstones;
+    private final int tombstoneCount;
+    private final int[] ordinals;
+    private final int limit;
+
+    /**
+     * @param baseSize   number of ordinals in the base indexes
+     * @param tombstones base ordinals replaced or deleted since the base was built
+     * @param ordinals   ordinals of the changed products, ascending
+     * @param limit      one past the highest ordinal handed out so far
+     */
+    Overlay(int baseSize, BitSet tombstones, int[] ordinals, int limit) {
+        this.baseSize = baseSize;
+        this.tombstones = tombstones;
+        this.tombstoneCount = tombstones.cardinality();
+        this.ordinals = ordinals;
+        this.limit = limit;
+    }
+
+    int baseSize() {
+        return baseSize;
+    }
+
+    int limit() {
+        return limit;
+    }
+
+    BitSet tombstones() {
+        return tombstones;
+    }
+
+    int tombstoneCount() {
+        return tombstoneCount;
+    }
+
+    /**
+     * Number of changed products.
+     */
+    int size() {
+        return ordinals.length;
+    }
+
+    int ordinal(int slot) {
+        return ordinals[slot];
+    }
+
+    /**
+     * Returns the slot of a changed ordinal, or {@code -1} for an ordinal the base indexes answer for.
+     */
+    int slot(int ordinal) {
+        if (ordinal < baseSize && !tombstones.get(ordinal)) {
+            return -1;
+        }
+        int slot = Arrays.binarySearch(ordinals, ordinal);
+        return slot < 0 ? -1 : slot;
+    }
+
+    /**
+     * Products replaced, deleted or added since the base was built, the amount of work a compaction would fold in.
+     */
+    int changes() {
+        int firstAppended = Arrays.binarySearch(ordinals, baseSize);
+        return tombstoneCount + ordinals.length - (firstAppended >= 0 ? firstAppended : -firstAppended - 1);
+    }
+
+    /**
+     * Live ordinals in ascending order, generated lazily.
+     */
+    IntStream liveOrdinals() {
+        PrimitiveIterator.OfInt iterator = new PrimitiveIterator.OfInt() {
+            private int base = nextBase(0);
+            private int slot;
+
+            @Override
+            public boolean hasNext() {
+                return base < baseSize || slot < ordinals.length;
+            }
+
+            @Override
+            public int nextInt() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                if (slot < ordinals.length && (base >= baseSize || ordinals[slot] < base)) {
+                    return ordinals[slot++];
+                }
+                int ordinal = base;
+                base = nextBase(base + 1);
+                return ordinal;
+            }
+        };
+        return StreamSupport.intStream(Spliterators.spliteratorUnknownSize(iterator,
+                Spliterator.ORDERED | Spliterator.SORTED | Spliterator.DISTINCT | Spliterator.NONNULL), false);
+    }
+
+    /**
+     * Merges base ordinals with changed products' slots into ascending live ordinals; both inputs are ascending.
+     */
+    int[] merge(int[] baseOrdinals, int[] slots) {
+        int[] merged = new int[baseOrdinals.length + slots.length];
+        int count = 0;
+        int slot = 0;
+        for (int ordinal : baseOrdinals) {
+            if (tombstones.get(ordinal)) {
+                continue;
+            }
+            while (slot < slots.length && ordinals[slots[slot]] < ordinal) {
+                merged[count++] = ordinals[slots[slot++]];
+            }
+            merged[count++] = ordinal;
+        }
+        while (slot < slots.length) {
+            merged[count++] = ordinals[slots[slot++]];
+        }
+        return count == merged.length ? merged : Arrays.copyOf(merged, count);
+    }
+
+    /**
+     * Turns a bitmap of base ordinals into one of live ordinals, adding the given changed products' slots.
+     */
+    BitSet merge(BitSet baseOrdinals, BitSet slots) {
+        baseOrdinals.andNot(tombstones);
+        for (int slot = slots.nextSetBit(0); slot >= 0; slot = slots.nextSetBit(slot + 1)) {
+            baseOrdinals.set(ordinals[slot]);
+        }
+        return baseOrdinals;
+    }
+
+    private int nextBase(int from) {
+        return from >= baseSize ? baseSize : Math.min(baseSize, tombstones.nextClearBit(from));
+    }
+}
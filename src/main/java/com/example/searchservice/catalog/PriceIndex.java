@@ -0,0 +1,167 @@
+package com.example.searchservice.catalog;
+
+import com.example.searchservice.model.Product;
+
+import java.math.RoundingMode;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.IntStream;
+
+/**
+ * Prices of a snapshot as fixed-point minor units (see {@link PriceRange#SCALE}), sorted for binary-search range
+ * lookups. Prices with more precision than the scale are rounded half-up at ingestion. Products without a price
+ * are left out of the sorted arrays, so no range matches them, and report {@link #NO_PRICE}, which sorts after every
+ * price.
+ * <p>
+ * After a delta the sorted arrays are not touched: a patched index keeps the prices of tombstoned ordinals sorted on
+ * the side to subtract them from counts, and merges range lookups with those of the changed products.
+ */
+public final class PriceIndex {
+
+    public static final long NO_PRICE = Long.MAX_VALUE;
+
+    private final long[] pricesByOrdinal;
+    private final BitSet unpriced;
+    private final long[] sortedPrices;
+    private final int[] sortedOrdinals;
+    private final long[] tombstonedPrices;
+    private final PriceIndex base;
+    private final PriceIndex changes;
+    private final Overlay overlay;
+
+    private PriceIndex(long[] pricesByOrdinal, BitSet unpriced, long[] sortedPrices, int[] sortedOrdinals) {
+        this(pricesByOrdinal, unpriced, sortedPrices, sortedOrdinals, null, null, null, null);
+    }
+
+    private PriceIndex(long[] pricesByOrdinal, BitSet unpriced, long[] sortedPrices, int[] sortedOrdinals,
+                       long[] tombstonedPrices, PriceIndex base, PriceIndex changes, Overlay overlay) {
+        this.pricesByOrdinal = pricesByOrdinal;
+        this.unpriced = unpriced;
+        this.sortedPrices = sortedPrices;
+        this.sortedOrdinals = sortedOrdinals;
+        this.tombstonedPrices = tombstonedPrices;
+        this.base = base;
+        this.changes = changes;
+        this.overlay = overlay;
+    }
+
+    public static PriceIndex build(List<Product> products) {
+        int size = products.size();
+        long[] pricesByOrdinal = new long[size];
+        BitSet unpriced = new BitSet();
+        for (int ordinal = 0; ordinal < size; ordinal++) {
+            Product product = products.get(ordinal);
+            if (product.getPrice() == null) {
+                pricesByOrdinal[ordinal] = NO_PRICE;
+                unpriced.set(ordinal);
+            } else {
+                pricesByOrdinal[ordinal] = PriceRange.toMinorUnits(product.getPrice(), RoundingMode.HALF_UP);
+            }
+        }
+        int[] sortedOrdinals = IntStream.range(0, size)
+                .filter(ordinal -> !unpriced.get(ordinal))
+                .boxed()
+                .sorted(Comparator.comparingLong(ordinal -> pricesByOrdinal[ordinal]))
+                .mapToInt(Integer::intValue)
+                .toArray();
+        long[] sortedPrices = new long[sortedOrdinals.length];
+        for (int i = 0; i < sortedOrdinals.length; i++) {
+            sortedPrices[i] = pricesByOrdinal[sortedOrdinals[i]];
+        }
+        return new PriceIndex(pricesByOrdinal, unpriced, sortedPrices, sortedOrdinals);
+    }
+
+    /**
+     * Layers an index of the changed products over an index of the last full build, sorting only the prices of the
+     * tombstoned ordinals.
+     */
+    static PriceIndex patch(PriceIndex base, PriceIndex changes, Overlay overlay) {
+        long[] tombstonedPrices = overlay.tombstones().stream()
+                .filter(base::hasPrice)
+                .mapToLong(base::price)
+                .sorted()
+                .toArray();
+        return new PriceIndex(null, null, null, null, tombstonedPrices, base, changes, overlay);
+    }
+
+    public boolean hasPrice(int ordinal) {
+        if (overlay != null) {
+            int slot = overlay.slot(ordinal);
+            return slot < 0 ? base.hasPrice(ordinal) : changes.hasPrice(slot);
+        }
+        return !unpriced.get(ordinal);
+    }
+
+    /**
+     * Per-ordinal form of {@link #range}: a product without a price is in no range.
+     */
+    public boolean matches(int ordinal, PriceRange range) {
+        return hasPrice(ordinal) && range.contains(price(ordinal));
+    }
+
+    public long price(int ordinal) {
+        if (overlay != null) {
+            int slot = overlay.slot(ordinal);
+            return slot < 0 ? base.price(ordinal) : changes.price(slot);
+        }
+        return pricesByOrdinal[ordinal];
+    }
+
+    public int count(PriceRange range) {
+        if (overlay != null) {
+            return base.count(range) - count(tombstonedPrices, range) + changes.count(range);
+        }
+        return count(sortedPrices, range);
+    }
+
+    /**
+     * Returns the ordinals priced within the range in catalog order. Cost depends on the number of matches only.
+     */
+    public int[] range(PriceRange range) {
+        if (overlay != null) {
+            return overlay.merge(base.range(range), changes.range(range));
+        }
+        int from = lowerBound(sortedPrices, range.min());
+        int to = upperBound(sortedPrices, range.max());
+        if (from >= to) {
+            return new int[0];
+        }
+        int[] ordinals = Arrays.copyOfRange(sortedOrdinals, from, to);
+        Arrays.sort(ordinals);
+        return ordinals;
+    }
+
+    private static int count(long[] sortedPrices, PriceRange range) {
+        return Math.max(0, upperBound(sortedPrices, range.max()) - lowerBound(sortedPrices, range.min()));
+    }
+
+    private static int lowerBound(long[] sortedPrices, long price) {
+        int low = 0;
+        int high = sortedPrices.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (sortedPrices[mid] < price) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    private static int upperBound(long[] sortedPrices, long price) {
+        int low = 0;
+        int high = sortedPrices.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (sortedPrices[mid] <= price) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+}
@@ -0,0 +1,56 @@
+package com.example.searchservice.catalog;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.math.RoundingMode;
+
+/**
+ * Inclusive price bounds in fixed-point minor units. Request bounds are converted once, so filtering compares
+ * plain {@code long}s.
+ */
+public record PriceRange(long min, long max) {
+
+    public static final int SCALE = 2;
+    public static final PriceRange UNBOUNDED = new PriceRange(Long.MIN_VALUE, Long.MAX_VALUE);
+
+    private static final int MAX_INTEGER_DIGITS = 20;
+
+    public static PriceRange of(BigDecimal minPrice, BigDecimal maxPrice) {
+        return new PriceRange(
+                minPrice == null ? Long.MIN_VALUE : toMinorUnits(minPrice, RoundingMode.CEILING),
+                maxPrice == null ? Long.MAX_VALUE : toMinorUnits(maxPrice, RoundingMode.FLOOR));
+    }
+
+    /**
+     * Converts a price to minor units. Prices beyond the range of a {@code long} saturate to {@link Long#MIN_VALUE}
+     * or {@link Long#MAX_VALUE}, so such a bound behaves like an open end instead of failing the request.
+     */
+    public static long toMinorUnits(BigDecimal price, RoundingMode roundingMode) {
+        int integerDigits = price.precision() - price.scale();
+        if (integerDigits > MAX_INTEGER_DIGITS) {
+            return price.signum() < 0 ? Long.MIN_VALUE : Long.MAX_VALUE;
+        }
+        if (integerDigits < -SCALE) {
+            // below a tenth of a minor unit the value only decides the rounding, and a huge scale would make
+            // setScale divide by an equally huge power of ten
+            price = BigDecimal.valueOf(price.signum(), SCALE + 2);
+        }
+        BigInteger minorUnits = price.setScale(SCALE, roundingMode).unscaledValue();
+        if (minorUnits.bitLength() >= Long.SIZE) {
+            return minorUnits.signum() < 0 ? Long.MIN_VALUE : Long.MAX_VALUE;
+        }
+        return minorUnits.longValue();
+    }
+
+    public PriceRange intersect(PriceRange other) {
+        return new PriceRange(Math.max(min, other.min), Math.min(max, other.max));
+    }
+
+    public boolean contains(long price) {
+        return price >= min && price <= max;
+    }
+
+    public boolean isBounded() {
+        return min != Long.MIN_VALUE || max != Long.MAX_VALUE;
+    }
+}
@@ -0,0 +1,380 @@
+package com.example.searchservice.catalog;
+
+import com.example.searchservice.client.ProductChanges;
+import com.example.searchservice.client.ShopMockServiceClient;
+import com.example.searchservice.error.ChangeLogGapException;
+import com.example.searchservice.error.InvalidExternalResponseException;
+import com.example.searchservice.model.Product;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.io.IOException;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Keeps the whole product catalog in memory. The catalog is loaded once, refreshed on a schedule and
+ * replaced atomically, so searches always run against a complete {@link CatalogSnapshot}.
+ * <p>
+ * In {@link CatalogConfig.SyncMode#DELTA} mode a refresh asks upstream only for the products changed since the
+ * {@code updatedAt} high-water mark of the last sync and patches them into the current snapshot as upserts and
+ * deletes, indexing only the changed products. Once the products changed since the last full build exceed
+ * {@code catalog.compaction-ratio} of the catalog, the patched snapshot is compacted into a full build. A gap in the
+ * upstream change log, a watermark that moves backwards or the periodic full resync fall back to reloading
+ * everything.
+ * <p>
+ * With a {@code catalog.snapshot-file} configured, every fully built snapshot is also written to disk in the
+ * background together with its watermark, and a restarted instance serves the persisted snapshot right away while
+ * the first scheduled sync catches up. Patched snapshots are not written, so the file is rewritten at the rate of
+ * compactions rather than deltas.
+ */
+@Slf4j
+@Service
+public class ProductCatalog {
+
+    private final ShopMockServiceClient shopMockServiceClient;
+    private final CatalogConfig config;
+    private final MeterRegistry meterRegistry;
+    private final Clock clock;
+    private final CatalogSnapshotFile snapshotFile;
+    private final Object snapshotFileLock = new Object();
+
+    private final AtomicReference<CatalogSnapshot> current = new AtomicReference<>();
+    private final AtomicLong versions = new AtomicLong();
+    private volatile Mono<CatalogSnapshot> inFlightLoad;
+    private volatile boolean lastLoadFailed;
+    private volatile boolean restored;
+    private volatile LocalDateTime watermark;
+    private volatile Instant lastFullSync;
+    private volatile Instant lastSyncedAt;
+
+    @Autowired
+    public ProductCatalog(ShopMockServiceClient shopMockServiceClient, CatalogConfig config,
+                          MeterRegistry meterRegistry) {
+        this(shopMockServiceClient, config, meterRegistry, Clock.systemUTC());
+    }
+
+    ProductCatalog(ShopMockServiceClient shopMockServiceClient, CatalogConfig config, MeterRegistry meterRegistry,
+                   Clock clock) {
+        this.shopMockServiceClient = shopMockServiceClient;
+        this.config = config;
+        this.meterRegistry = meterRegistry;
+        this.clock = clock;
+        this.snapshotFile = config.getSnapshotFile() == null ? null : new CatalogSnapshotFile(config.getSnapshotFile());
+
+        Gauge.builder("catalog.snapshot.size", this, catalog -> catalog.currentSize())
+                .description("Number of products in the current catalog snapshot")
+                .register(meterRegistry);
+        Gauge.builder("catalog.snapshot.age", this, catalog -> catalog.currentAgeSeconds())
+                .description("Time since the current catalog snapshot was loaded")
+                .baseUnit("seconds")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Serves the snapshot persisted by the previous run, if there is one, until the first sync replaces it. Runs
+     * before the application takes traffic; a missing or unreadable file just means loading from upstream as usual.
+     */
+    @PostConstruct
+    public void restore() {
+        if (snapshotFile == null) {
+            return;
+        }
+        long start = System.nanoTime();
+        try {
+            snapshotFile.read().ifPresent(contents -> {
+                CatalogSnapshot snapshot = contents.snapshot();
+                if (!current.compareAndSet(null, snapshot)) {
+                    return;
+                }
+                versions.set(snapshot.version());
+                watermark = contents.watermark();
+                lastFullSync = contents.lastFullSync();
+                restored = true;
+                loadPhase("restore").record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+                log.info("Catalog snapshot version {} restored from {} with {} products in {} ms", snapshot.version(),
+                        snapshotFile.path(), snapshot.size(), TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+            });
+        } catch (IOException e) {
+            log.warn("Could not restore the catalog from {}, loading it from upstream: {}", snapshotFile.path(),
+                    e.getMessage());
+        }
+    }
+
+    /**
+     * Returns the current snapshot, loading the catalog first if nothing has been loaded yet.
+     */
+    public Mono<CatalogSnapshot> snapshot() {
+        return Mono.defer(() -> {
+            CatalogSnapshot snapshot = current.get();
+            return snapshot != null ? Mono.just(snapshot) : startLoad(this::loadSnapshot);
+        });
+    }
+
+    /**
+     * Loads a fresh snapshot and swaps it in once fully built. Concurrent callers share one load.
+     */
+    public Mono<CatalogSnapshot> refresh() {
+        return Mono.defer(() -> startLoad(this::loadSnapshot));
+    }
+
+    /**
+     * Brings the catalog up to date the way the configured sync mode asks for: a delta when one can be applied,
+     * otherwise a full reload.
+     */
+    public Mono<CatalogSnapshot> sync() {
+        return Mono.defer(() -> startLoad(canSyncDelta() ? this::loadDelta : this::loadSnapshot));
+    }
+
+    /**
+     * Returns how old the snapshot is if the latest attempt to replace it failed or it was restored from disk and
+     * not synced yet, or {@code null} while the catalog is being refreshed successfully.
+     */
+    public Duration staleness(CatalogSnapshot snapshot) {
+        return lastLoadFailed || restored ? age(snapshot) : null;
+    }
+
+    /**
+     * Time since the snapshot was last known to match upstream. A delta sync without changes keeps the current
+     * snapshot but still counts as being in sync.
+     */
+    public Duration age(CatalogSnapshot snapshot) {
+        Instant syncedAt = lastSyncedAt;
+        Instant since = snapshot == current.get() && syncedAt != null ? syncedAt : snapshot.loadedAt();
+        return Duration.between(since, clock.instant());
+    }
+
+    @Scheduled(fixedDelayString = "#{@catalogConfig.refreshInterval.toMillis()}")
+    public void scheduledRefresh() {
+        sync()
+                .timeout(config.getLoadTimeout())
+                .doOnError(e -> log.warn("Catalog refresh failed, keeping snapshot version {}: {}",
+                        currentVersion(), e.getMessage()))
+                .onErrorComplete()
+                .block();
+    }
+
+    private synchronized Mono<CatalogSnapshot> startLoad(Supplier<Mono<CatalogSnapshot>> loader) {
+        if (inFlightLoad == null) {
+            inFlightLoad = loader.get()
+                    .doOnNext(this::swap)
+                    .doOnError(e -> lastLoadFailed = true)
+                    .doOnTerminate(this::clearInFlightLoad)
+                    .cache();
+        }
+        return inFlightLoad;
+    }
+
+    private synchronized void clearInFlightLoad() {
+        inFlightLoad = null;
+    }
+
+    private boolean canSyncDelta() {
+        return config.getSyncMode() == CatalogConfig.SyncMode.DELTA
+                && current.get() != null
+                && watermark != null
+                && lastFullSync != null
+                && clock.instant().isBefore(lastFullSync.plus(config.getFullResyncInterval()));
+    }
+
+    /**
+     * Records the load as two phases: {@code fetch} (upstream transfer and JSON decoding straight into
+     * {@link Product}) and {@code index} (building the snapshot indexes). When upstream answers with the products of
+     * the current snapshot, as it does when every feed replays a {@code 304 Not Modified}, the snapshot is kept
+     * with its version, so result cache entries and entity tags stay valid and nothing is re-indexed or persisted.
+     */
+    private Mono<CatalogSnapshot> loadSnapshot() {
+        return Mono.defer(() -> {
+            long start = System.nanoTime();
+            Instant syncStart = clock.instant();
+            return shopMockServiceClient.getAllProducts()
+                    .collectList()
+                    .doOnNext(products -> loadPhase("fetch").record(System.nanoTime() - start, TimeUnit.NANOSECONDS))
+                    .publishOn(Schedulers.boundedElastic())
+                    .map(products -> {
+                        CatalogSnapshot previous = current.get();
+                        CatalogSnapshot snapshot = isUnchanged(previous, products) ? previous : index(products);
+                        watermark = products.stream()
+                                .map(ProductCatalog::changedAt)
+                                .filter(Objects::nonNull)
+                                .max(LocalDateTime::compareTo)
+                                .orElse(null);
+                        lastFullSync = syncStart;
+                        return snapshot;
+                    });
+        });
+    }
+
+    /**
+     * Fetches the changes since the watermark and patches them into the current snapshot. An empty delta keeps the
+     * snapshot as is.
+     */
+    private Mono<CatalogSnapshot> loadDelta() {
+        CatalogSnapshot base = current.get();
+        LocalDateTime since = watermark;
+        return Mono.defer(() -> {
+            long start = System.nanoTime();
+            return shopMockServiceClient.getProductChanges(since)
+                    .doOnNext(changes -> loadPhase("delta").record(System.nanoTime() - start, TimeUnit.NANOSECONDS))
+                    .flatMap(changes -> {
+                        if (changes.watermark() != null && changes.watermark().isBefore(since)) {
+                            return Mono.error(new ChangeLogGapException("Upstream watermark moved back from " + since
+                                    + " to " + changes.watermark()));
+                        }
+                        changeCount().record(changes.upserts().size() + changes.deletes().size());
+                        LocalDateTime next = nextWatermark(since, changes);
+                        if (changes.isEmpty()) {
+                            watermark = next;
+                            return Mono.just(base);
+                        }
+                        return Mono.fromCallable(() -> patch(base, changes))
+                                .subscribeOn(Schedulers.boundedElastic())
+                                .doOnNext(snapshot -> watermark = next);
+                    })
+                    .onErrorResume(e -> e instanceof ChangeLogGapException || e instanceof InvalidExternalResponseException,
+                            e -> {
+                                log.info("Delta sync since {} not possible, resyncing the whole catalog: {}", since,
+                                        e.getMessage());
+                                return loadSnapshot();
+                            });
+        });
+    }
+
+    /**
+     * Replayed products are the instances of the previous response, so comparing them is mostly reference checks.
+     */
+    private static boolean isUnchanged(CatalogSnapshot snapshot, List<Product> products) {
+        return snapshot != null && snapshot.size() == products.size() && snapshot.products().equals(products);
+    }
+
+    private CatalogSnapshot index(List<Product> products) {
+        long start = System.nanoTime();
+        CatalogSnapshot snapshot = CatalogSnapshot.build(versions.incrementAndGet(), clock.instant(), products,
+                current.get());
+        loadPhase("index").record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        return snapshot;
+    }
+
+    /**
+     * Records the {@code patch} phase, whose cost follows the products changed since the last full build, and the
+     * {@code index} phase of a compaction separately. Unchanged products keep their instances, so a compaction
+     * reuses their analysis.
+     */
+    private CatalogSnapshot patch(CatalogSnapshot base, ProductChanges changes) {
+        long start = System.nanoTime();
+        CatalogSnapshot patched = base.patch(versions.incrementAndGet(), clock.instant(), changes.upserts(),
+                changes.deletes());
+        loadPhase("patch").record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        if (patched.changedSinceBuild() <= config.getCompactionRatio() * patched.size()) {
+            return patched;
+        }
+        start = System.nanoTime();
+        CatalogSnapshot compacted = CatalogSnapshot.build(patched.version(), patched.loadedAt(), patched.products(),
+                patched);
+        loadPhase("index").record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        return compacted;
+    }
+
+    private static LocalDateTime nextWatermark(LocalDateTime since, ProductChanges changes) {
+        if (changes.watermark() != null) {
+            return changes.watermark();
+        }
+        return changes.upserts().stream()
+                .map(ProductCatalog::changedAt)
+                .filter(Objects::nonNull)
+                .reduce(since, (first, second) -> first.isAfter(second) ? first : second);
+    }
+
+    private static LocalDateTime changedAt(Product product) {
+        return product.getUpdatedAt() != null ? product.getUpdatedAt() : product.getCreatedAt();
+    }
+
+    private DistributionSummary changeCount() {
+        return DistributionSummary.builder("catalog.sync.changes")
+                .description("Products upserted or deleted per delta sync")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+    }
+
+    private Timer loadPhase(String phase) {
+        return Timer.builder("catalog.load.phase")
+                .description("Time spent per catalog load phase")
+                .tag("phase", phase)
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+    }
+
+    private void swap(CatalogSnapshot snapshot) {
+        CatalogSnapshot previous = current.getAndSet(snapshot);
+        lastLoadFailed = false;
+        restored = false;
+        lastSyncedAt = clock.instant();
+        if (previous != snapshot) {
+            log.info("Catalog snapshot version {} loaded with {} products", snapshot.version(), snapshot.size());
+            if (snapshot.isFullBuild()) {
+                persist(new CatalogSnapshotFile.Contents(snapshot, watermark, lastFullSync));
+            }
+        }
+    }
+
+    private void persist(CatalogSnapshotFile.Contents contents) {
+        if (snapshotFile == null) {
+            return;
+        }
+        Mono.fromRunnable(() -> writeSnapshotFile(contents))
+                .subscribeOn(Schedulers.boundedElastic())
+                .subscribe();
+    }
+
+    /**
+     * Writes one snapshot at a time and skips snapshots that were already replaced while waiting, so the file never
+     * goes back to an older version.
+     */
+    private void writeSnapshotFile(CatalogSnapshotFile.Contents contents) {
+        synchronized (snapshotFileLock) {
+            if (current.get() != contents.snapshot()) {
+                return;
+            }
+            long start = System.nanoTime();
+            try {
+                snapshotFile.write(contents);
+                loadPhase("persist").record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            } catch (IOException e) {
+                log.warn("Could not write catalog snapshot version {} to {}: {}", contents.snapshot().version(),
+                        snapshotFile.path(), e.getMessage());
+            }
+        }
+    }
+
+    private long currentVersion() {
+        CatalogSnapshot snapshot = current.get();
+        return snapshot == null ? 0 : snapshot.version();
+    }
+
+    private double currentSize() {
+        CatalogSnapshot snapshot = current.get();
+        return snapshot == null ? 0 : snapshot.size();
+    }
+
+    private double currentAgeSeconds() {
+        CatalogSnapshot snapshot = current.get();
+        return snapshot == null ? Double.NaN : age(snapshot).toMillis() / 1000.0;
+    }
+}
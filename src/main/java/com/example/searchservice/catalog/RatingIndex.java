@@ -0,0 +1,160 @@
+package com.example.searchservice.catalog;
+
+import com.example.searchservice.model.Product;
+import com.example.searchservice.model.ReviewStats;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+
+/**
+ * Review statistics computed once per product at ingestion, plus buckets of product ordinals by average rating
+ * (one bucket per tenth of a star) for {@code average >= x} lookups that never touch review lists.
+ * <p>
+ * A patched index only counts the tombstoned ordinals per bucket, so estimates stay exact without rebucketing the
+ * catalog.
+ */
+public final class RatingIndex {
+
+    private static final int BUCKETS_PER_STAR = 10;
+    private static final int BUCKET_COUNT = 5 * BUCKETS_PER_STAR + 1;
+
+    private final ReviewStats[] stats;
+    private final double[] averages;
+    private final int[][] buckets;
+    private final int[] tombstonedBucketSizes;
+    private final RatingIndex base;
+    private final RatingIndex changes;
+    private final Overlay overlay;
+
+    private RatingIndex(ReviewStats[] stats, double[] averages, int[][] buckets) {
+        this.stats = stats;
+        this.averages = averages;
+        this.buckets = buckets;
+        this.tombstonedBucketSizes = null;
+        this.base = null;
+        this.changes = null;
+        this.overlay = null;
+    }
+
+    private RatingIndex(RatingIndex base, RatingIndex changes, Overlay overlay) {
+        this.stats = null;
+        this.averages = null;
+        this.buckets = null;
+        this.tombstonedBucketSizes = new int[BUCKET_COUNT];
+        BitSet tombstones = overlay.tombstones();
+        for (int ordinal = tombstones.nextSetBit(0); ordinal >= 0; ordinal = tombstones.nextSetBit(ordinal + 1)) {
+            tombstonedBucketSizes[bucket(base.average(ordinal))]++;
+        }
+        this.base = base;
+        this.changes = changes;
+        this.overlay = overlay;
+    }
+
+    public static RatingIndex build(List<Product> products) {
+        return build(products, null);
+    }
+
+    /**
+     * Builds the index, carrying over the review statistics of products that are the same instance as in
+     * {@code previous}.
+     */
+    public static RatingIndex build(List<Product> products, CatalogSnapshot previous) {
+        int size = products.size();
+        ReviewStats[] stats = new ReviewStats[size];
+        double[] averages = new double[size];
+        int[] bucketSizes = new int[BUCKET_COUNT];
+        for (int ordinal = 0; ordinal < size; ordinal++) {
+            stats[ordinal] = stats(products.get(ordinal), previous);
+            averages[ordinal] = stats[ordinal].average();
+            bucketSizes[bucket(averages[ordinal])]++;
+        }
+        int[][] buckets = new int[BUCKET_COUNT][];
+        for (int bucket = 0; bucket < BUCKET_COUNT; bucket++) {
+            buckets[bucket] = new int[bucketSizes[bucket]];
+            bucketSizes[bucket] = 0;
+        }
+        for (int ordinal = 0; ordinal < size; ordinal++) {
+            int bucket = bucket(averages[ordinal]);
+            buckets[bucket][bucketSizes[bucket]++] = ordinal;
+        }
+        return new RatingIndex(stats, averages, buckets);
+    }
+
+    /**
+     * Layers an index of the changed products over an index of the last full build.
+     */
+    static RatingIndex patch(RatingIndex base, RatingIndex changes, Overlay overlay) {
+        return new RatingIndex(base, changes, overlay);
+    }
+
+    public ReviewStats stats(int ordinal) {
+        if (overlay != null) {
+            int slot = overlay.slot(ordinal);
+            return slot < 0 ? base.stats(ordinal) : changes.stats(slot);
+        }
+        return stats[ordinal];
+    }
+
+    public double average(int ordinal) {
+        if (overlay != null) {
+            int slot = overlay.slot(ordinal);
+            return slot < 0 ? base.average(ordinal) : changes.average(slot);
+        }
+        return averages[ordinal];
+    }
+
+    public int estimateAtLeast(double minAverage) {
+        if (overlay != null) {
+            int count = base.estimateAtLeast(minAverage) + changes.estimateAtLeast(minAverage);
+            for (int bucket = bucket(minAverage); bucket < BUCKET_COUNT; bucket++) {
+                count -= tombstonedBucketSizes[bucket];
+            }
+            return count;
+        }
+        int count = 0;
+        for (int bucket = bucket(minAverage); bucket < BUCKET_COUNT; bucket++) {
+            count += buckets[bucket].length;
+        }
+        return count;
+    }
+
+    /**
+     * Returns the ordinals whose average rating is at least {@code minAverage}, in catalog order. Only the bucket
+     * containing the threshold is checked product by product.
+     */
+    public int[] atLeast(double minAverage) {
+        if (overlay != null) {
+            return overlay.merge(base.atLeast(minAverage), changes.atLeast(minAverage));
+        }
+        int boundary = bucket(minAverage);
+        int[] result = new int[estimateAtLeast(minAverage)];
+        int count = 0;
+        for (int ordinal : buckets[boundary]) {
+            if (averages[ordinal] >= minAverage) {
+                result[count++] = ordinal;
+            }
+        }
+        for (int bucket = boundary + 1; bucket < BUCKET_COUNT; bucket++) {
+            System.arraycopy(buckets[bucket], 0, result, count, buckets[bucket].length);
+            count += buckets[bucket].length;
+        }
+        int[] ordinals = Arrays.copyOf(result, count);
+        Arrays.sort(ordinals);
+        return ordinals;
+    }
+
+    private static ReviewStats stats(Product product, CatalogSnapshot previous) {
+        if (previous != null) {
+            int previousOrdinal = previous.ordinal(product.getId());
+            if (previousOrdinal >= 0 && previous.product(previousOrdinal) == product) {
+                return previous.ratingIndex().stats(previousOrdinal);
+            }
+        }
+        return ReviewStats.of(product.getReviews());
+    }
+
+    private static int bucket(double average) {
+        return (int) Math.max(0, Math.min(BUCKET_COUNT - 1, Math.floor(average * BUCKETS_PER_STAR)));
+    }
+}
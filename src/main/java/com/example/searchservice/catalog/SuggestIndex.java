@@ -0,0 +1,380 @@
+package com.example.searchservice.catalog;
+
+import com.example.searchservice.model.Product;
+import com.example.searchservice.model.ReviewStats;
+import com.example.searchservice.model.Suggestion;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+/**
+ * Typeahead completions over product and manufacturer names. Distinct lower-cased names are kept as sorted UTF-8 keys
+ * in a single byte array, so the names starting with a prefix form one contiguous range found by binary search. A
+ * segment tree holding the heaviest entry of each node yields the top completions of that range in
+ * {@code O(limit log n)}, however many names share a short prefix.
+ * <p>
+ * Entries are weighted by their review count, then by average rating; names with equal weights complete in
+ * alphabetical order.
+ * <p>
+ * Every entry also keeps its rating sum and product count, so a delta only recomputes the entries of the names it
+ * touches: a patched index hides those entries of the base, completes them from a small index of their updated
+ * totals and merges both rankings. Names left without products drop out.
+ */
+public final class SuggestIndex {
+
+    private static final int RATING_BITS = 16;
+    private static final long RATING_MASK = (1L << RATING_BITS) - 1;
+    private static final double RATING_SCALE = 1000.0;
+    private static final Suggestion.Kind[] KINDS = Suggestion.Kind.values();
+
+    private final byte[] keys;
+    private final int[] offsets;
+    private final String[] texts;
+    private final byte[] kinds;
+    // review count in the high bits, average rating in thousandths in the low RATING_BITS
+    private final long[] weights;
+    private final long[] ratingSums;
+    private final int[] productCounts;
+    private final int[] heaviest;
+    private final SuggestIndex base;
+    private final BitSet hidden;
+    private final SuggestIndex changes;
+
+    private SuggestIndex(byte[] keys, int[] offsets, String[] texts, byte[] kinds, long[] weights, long[] ratingSums,
+                         int[] productCounts) {
+        this.keys = keys;
+        this.offsets = offsets;
+        this.texts = texts;
+        this.kinds = kinds;
+        this.weights = weights;
+        this.ratingSums = ratingSums;
+        this.productCounts = productCounts;
+        this.base = null;
+        this.hidden = null;
+        this.changes = null;
+        int size = texts.length;
+        this.heaviest = new int[2 * size];
+        for (int entry = 0; entry < size; entry++) {
+            heaviest[size + entry] = entry;
+        }
+        for (int node = size - 1; node > 0; node--) {
+            heaviest[node] = heavier(heaviest[2 * node], heaviest[2 * node + 1]);
+        }
+    }
+
+    private SuggestIndex(SuggestIndex base, BitSet hidden, SuggestIndex changes) {
+        this.keys = null;
+        this.offsets = null;
+        this.texts = null;
+        this.kinds = null;
+        this.weights = null;
+        this.ratingSums = null;
+        this.productCounts = null;
+        this.heaviest = null;
+        this.base = base;
+        this.hidden = hidden;
+        this.changes = changes;
+    }
+
+    /**
+     * Builds the index; products sharing a name, ignoring case, complete as one entry carrying all of their reviews,
+     * as do the products of one manufacturer.
+     */
+    public static SuggestIndex build(List<Product> products, RatingIndex ratingIndex) {
+        Map<Suggestion.Kind, Map<String, Entry>> entries = new EnumMap<>(Suggestion.Kind.class);
+        for (Suggestion.Kind kind : KINDS) {
+            entries.put(kind, new HashMap<>());
+        }
+        for (int ordinal = 0; ordinal < products.size(); ordinal++) {
+            Product product = products.get(ordinal);
+            ReviewStats stats = ratingIndex.stats(ordinal);
+            add(entries, product, stats, 1, Entry::new);
+        }
+        return of(entries);
+    }
+
+    /**
+     * Layers the entries of the names touched since {@code base} was built over its suggest index. Costs a binary
+     * search per touched name, plus sorting the touched entries.
+     *
+     * @param changed        the products changed since the base was built, by slot
+     * @param changedRatings their review statistics, by slot
+     */
+    static SuggestIndex patch(CatalogSnapshot base, Overlay overlay, List<Product> changed,
+                              RatingIndex changedRatings) {
+        SuggestIndex index = base.suggestIndex();
+        BitSet hidden = new BitSet();
+        Map<Suggestion.Kind, Map<String, Entry>> entries = new EnumMap<>(Suggestion.Kind.class);
+        for (Suggestion.Kind kind : KINDS) {
+            entries.put(kind, new HashMap<>());
+        }
+        EntryFactory fromBase = (text, key, kind) -> {
+            int entry = index.find(key, kind);
+            if (entry < 0) {
+                return new Entry(text, key, kind);
+            }
+            hidden.set(entry);
+            return index.entry(entry);
+        };
+        BitSet tombstones = overlay.tombstones();
+        for (int ordinal = tombstones.nextSetBit(0); ordinal >= 0; ordinal = tombstones.nextSetBit(ordinal + 1)) {
+            add(entries, base.product(ordinal), base.ratingIndex().stats(ordinal), -1, fromBase);
+        }
+        for (int slot = 0; slot < changed.size(); slot++) {
+            add(entries, changed.get(slot), changedRatings.stats(slot), 1, fromBase);
+        }
+        entries.values().forEach(byName -> byName.values().removeIf(entry -> entry.products == 0));
+        return new SuggestIndex(index, hidden, of(entries));
+    }
+
+    private static SuggestIndex of(Map<Suggestion.Kind, Map<String, Entry>> entries) {
+        List<Entry> sorted = new ArrayList<>();
+        entries.values().forEach(byName -> sorted.addAll(byName.values()));
+        sorted.sort(Comparator.<Entry, byte[]>comparing(entry -> entry.key, Arrays::compareUnsigned)
+                .thenComparing(entry -> entry.kind));
+
+        int size = sorted.size();
+        int[] offsets = new int[size + 1];
+        for (int entry = 0; entry < size; entry++) {
+            offsets[entry + 1] = offsets[entry] + sorted.get(entry).key.length;
+        }
+        byte[] keys = new byte[offsets[size]];
+        String[] texts = new String[size];
+        byte[] kinds = new byte[size];
+        long[] weights = new long[size];
+        long[] ratingSums = new long[size];
+        int[] productCounts = new int[size];
+        for (int entry = 0; entry < size; entry++) {
+            Entry source = sorted.get(entry);
+            System.arraycopy(source.key, 0, keys, offsets[entry], source.key.length);
+            texts[entry] = source.text;
+            kinds[entry] = (byte) source.kind.ordinal();
+            weights[entry] = source.weight();
+            ratingSums[entry] = source.ratingSum;
+            productCounts[entry] = source.products;
+        }
+        return new SuggestIndex(keys, offsets, texts, kinds, weights, ratingSums, productCounts);
+    }
+
+    public int size() {
+        return base != null ? base.size() - hidden.cardinality() + changes.size() : texts.length;
+    }
+
+    /**
+     * Returns up to {@code limit} completions of {@code prefix}, heaviest first. Matching ignores case and leading
+     * whitespace.
+     */
+    public List<Suggestion> complete(String prefix, int limit) {
+        byte[] key = prefix.stripLeading().toLowerCase(Locale.ROOT).getBytes(StandardCharsets.UTF_8);
+        if (base == null) {
+            int[] entries = top(key, limit, null);
+            List<Suggestion> suggestions = new ArrayList<>(entries.length);
+            for (int entry : entries) {
+                suggestions.add(suggestion(entry));
+            }
+            return suggestions;
+        }
+        int[] fromBase = base.top(key, limit, hidden);
+        int[] fromChanges = changes.top(key, limit, null);
+        List<Suggestion> suggestions = new ArrayList<>(Math.min(limit, fromBase.length + fromChanges.length));
+        int i = 0;
+        int j = 0;
+        while (suggestions.size() < limit && (i < fromBase.length || j < fromChanges.length)) {
+            if (j == fromChanges.length
+                    || (i < fromBase.length && base.compareTo(fromBase[i], changes, fromChanges[j]) <= 0)) {
+                suggestions.add(base.suggestion(fromBase[i++]));
+            } else {
+                suggestions.add(changes.suggestion(fromChanges[j++]));
+            }
+        }
+        return suggestions;
+    }
+
+    /**
+     * Heap retained by the index, without the name strings it shares with the products.
+     */
+    public long footprintBytes() {
+        if (base != null) {
+            return base.footprintBytes() + hidden.size() / 8 + changes.footprintBytes();
+        }
+        long arrayHeaders = 8 * 16L;
+        return arrayHeaders + keys.length + 4L * offsets.length + 4L * texts.length + kinds.length
+                + 8L * weights.length + 8L * ratingSums.length + 4L * productCounts.length + 4L * heaviest.length;
+    }
+
+    /**
+     * Returns up to {@code limit} entries completing {@code key}, heaviest first, leaving out {@code skipped} ones.
+     */
+    private int[] top(byte[] key, int limit, BitSet skipped) {
+        int from = bound(key, false);
+        int to = bound(key, true);
+        int count = Math.min(limit, to - from);
+        if (count <= 0) {
+            return new int[0];
+        }
+        int[] entries = new int[count];
+        int found = 0;
+        // each range is queued with its heaviest entry; taking one splits the range around it
+        PriorityQueue<int[]> ranges = new PriorityQueue<>(2 * count + 1,
+                (first, second) -> compare(first[2], second[2]));
+        ranges.add(new int[]{from, to, heaviest(from, to)});
+        while (found < count && !ranges.isEmpty()) {
+            int[] range = ranges.poll();
+            int entry = range[2];
+            if (skipped == null || !skipped.get(entry)) {
+                entries[found++] = entry;
+            }
+            if (range[0] < entry) {
+                ranges.add(new int[]{range[0], entry, heaviest(range[0], entry)});
+            }
+            if (entry + 1 < range[1]) {
+                ranges.add(new int[]{entry + 1, range[1], heaviest(entry + 1, range[1])});
+            }
+        }
+        return found == count ? entries : Arrays.copyOf(entries, found);
+    }
+
+    /**
+     * Orders an entry of this index against one of {@code other} the way {@link #compare} orders entries of one
+     * index: heavier first, then by key and kind.
+     */
+    private int compareTo(int entry, SuggestIndex other, int otherEntry) {
+        int byWeight = Long.compare(other.weights[otherEntry], weights[entry]);
+        if (byWeight != 0) {
+            return byWeight;
+        }
+        int byKey = Arrays.compareUnsigned(keys, offsets[entry], offsets[entry + 1],
+                other.keys, other.offsets[otherEntry], other.offsets[otherEntry + 1]);
+        return byKey != 0 ? byKey : Integer.compare(kinds[entry], other.kinds[otherEntry]);
+    }
+
+    private int find(byte[] key, Suggestion.Kind kind) {
+        for (int entry = bound(key, false); entry < texts.length
+                && Arrays.equals(keys, offsets[entry], offsets[entry + 1], key, 0, key.length); entry++) {
+            if (kinds[entry] == kind.ordinal()) {
+                return entry;
+            }
+        }
+        return -1;
+    }
+
+    private Entry entry(int entry) {
+        Entry copy = new Entry(texts[entry], Arrays.copyOfRange(keys, offsets[entry], offsets[entry + 1]),
+                KINDS[kinds[entry]]);
+        copy.reviews = weights[entry] >>> RATING_BITS;
+        copy.ratingSum = ratingSums[entry];
+        copy.products = productCounts[entry];
+        return copy;
+    }
+
+    private Suggestion suggestion(int entry) {
+        long weight = weights[entry];
+        return new Suggestion(texts[entry], KINDS[kinds[entry]], (int) (weight >>> RATING_BITS),
+                (weight & RATING_MASK) / RATING_SCALE);
+    }
+
+    /**
+     * First entry whose key, cut to the length of {@code prefix}, sorts after {@code prefix}; or at or after it
+     * unless {@code after}.
+     */
+    private int bound(byte[] prefix, boolean after) {
+        int low = 0;
+        int high = texts.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            int keyEnd = Math.min(offsets[mid + 1], offsets[mid] + prefix.length);
+            int comparison = Arrays.compareUnsigned(keys, offsets[mid], keyEnd, prefix, 0, prefix.length);
+            if (comparison < 0 || (after && comparison == 0)) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    private int heaviest(int from, int to) {
+        int best = -1;
+        for (int low = from + texts.length, high = to + texts.length; low < high; low >>>= 1, high >>>= 1) {
+            if ((low & 1) == 1) {
+                best = heavier(best, heaviest[low++]);
+            }
+            if ((high & 1) == 1) {
+                best = heavier(best, heaviest[--high]);
+            }
+        }
+        return best;
+    }
+
+    private int heavier(int first, int second) {
+        if (first < 0 || second < 0) {
+            return Math.max(first, second);
+        }
+        return compare(first, second) <= 0 ? first : second;
+    }
+
+    private int compare(int first, int second) {
+        int byWeight = Long.compare(weights[second], weights[first]);
+        return byWeight != 0 ? byWeight : Integer.compare(first, second);
+    }
+
+    /**
+     * Adds a product to the entries of its name and manufacturer, or takes it out of them with a {@code sign} of -1.
+     */
+    private static void add(Map<Suggestion.Kind, Map<String, Entry>> entries, Product product, ReviewStats stats,
+                            int sign, EntryFactory factory) {
+        add(entries, Suggestion.Kind.PRODUCT, product.getName(), stats, sign, factory);
+        if (product.getManufacturer() != null) {
+            add(entries, Suggestion.Kind.MANUFACTURER, product.getManufacturer().getName(), stats, sign, factory);
+        }
+    }
+
+    private static void add(Map<Suggestion.Kind, Map<String, Entry>> entries, Suggestion.Kind kind, String name,
+                            ReviewStats stats, int sign, EntryFactory factory) {
+        if (name == null || name.isBlank()) {
+            return;
+        }
+        Entry entry = entries.get(kind).computeIfAbsent(name.toLowerCase(Locale.ROOT),
+                key -> factory.create(name, key.getBytes(StandardCharsets.UTF_8), kind));
+        entry.reviews += sign * (long) stats.count();
+        entry.ratingSum += sign * stats.ratingSum();
+        entry.products += sign;
+    }
+
+    @FunctionalInterface
+    private interface EntryFactory {
+
+        Entry create(String text, byte[] key, Suggestion.Kind kind);
+    }
+
+    private static final class Entry {
+
+        private final String text;
+        private final byte[] key;
+        private final Suggestion.Kind kind;
+        private long reviews;
+        private long ratingSum;
+        private int products;
+
+        private Entry(String text, byte[] key, Suggestion.Kind kind) {
+            this.text = text;
+            this.key = key;
+            this.kind = kind;
+        }
+
+        private long weight() {
+            long rating = reviews == 0 ? 0 : Math.round(RATING_SCALE * ratingSum / reviews);
+            long count = Math.min(reviews, Integer.MAX_VALUE);
+            return count << RATING_BITS | Math.max(0, Math.min(RATING_MASK, rating));
+        }
+    }
+}
@@ -0,0 +1,49 @@
+package com.example.searchservice.catalog;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * Splits text into lower-cased letter/digit tokens. Stop words keep their position as {@code null} entries so
+ * phrase positions stay accurate, and a {@code null} gap separates fields so phrases never span two fields.
+ */
+public final class TextAnalyzer {
+
+    private static final Set<String> STOP_WORDS = Set.of(
+            "a", "an", "and", "are", "as", "at", "be", "but", "by", "for", "if", "in", "into", "is", "it", "no",
+            "not", "of", "on", "or", "such", "that", "the", "their", "then", "there", "these", "they", "this", "to",
+            "was", "will", "with");
+
+    private TextAnalyzer() {
+    }
+
+    public static String[] analyze(String... fields) {
+        List<String> tokens = new ArrayList<>();
+        for (String field : fields) {
+            if (field == null) {
+                continue;
+            }
+            if (!tokens.isEmpty()) {
+                tokens.add(null);
+            }
+            tokenize(field, tokens);
+        }
+        return tokens.toArray(String[]::new);
+    }
+
+    private static void tokenize(String text, List<String> tokens) {
+        int start = -1;
+        for (int i = 0; i <= text.length(); i++) {
+            boolean tokenChar = i < text.length() && Character.isLetterOrDigit(text.charAt(i));
+            if (tokenChar && start < 0) {
+                start = i;
+            } else if (!tokenChar && start >= 0) {
+                String token = text.substring(start, i).toLowerCase(Locale.ROOT);
+                tokens.add(STOP_WORDS.contains(token) ? null : token);
+                start = -1;
+            }
+        }
+    }
+}
@@ -0,0 +1,578 @@
+package com.example.searchservice.catalog;
+
+import com.example.searchservice.model.NameMatch;
+import com.example.searchservice.model.Product;
+
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.function.ToIntFunction;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Positional inverted index over product name and description, ranked with BM25.
+ * <p>
+ * Analyzed documents are carried over from the previous snapshot for products whose text did not change, so a
+ * refresh only re-tokenizes new or edited products. Queries are evaluated document-at-a-time with MaxScore pruning,
+ * per-block score bounds that skip whole posting blocks, and a bounded top-K heap. Quoted phrases must match
+ * consecutively. Fuzzy queries also match the indexed terms within a few edits of each loose query term, found
+ * through a {@link TrigramIndex} of the term dictionary that is built on the first fuzzy query.
+ * <p>
+ * A delta does not re-invert the catalog. The changed products get postings of their own, scored with the document
+ * frequencies and average length of the last full build so their scores compare with the base ones, and searches
+ * merge the best hits of both while skipping tombstoned documents of the base. Until the next compaction the
+ * statistics lag behind the changes, much like deleted documents still counting in an unmerged Lucene segment.
+ */
+public final class TextIndex {
+
+    private static final int BLOCK_SIZE = 64;
+    private static final int MAX_EXPANSIONS = 16;
+    private static final double K1 = 1.2;
+    private static final double B = 0.75;
+    private static final Pattern PHRASE = Pattern.compile("\"([^\"]*)\"");
+    private static final Comparator<TextHit> WORST_FIRST = Comparator.comparingDouble(TextHit::score)
+            .thenComparing(Comparator.comparingInt(TextHit::ordinal).reversed());
+
+    private final String[][] documents;
+    private final int[] documentLengths;
+    private final double averageDocumentLength;
+    private final Map<String, Postings> postings;
+    private final TextIndex base;
+    private final TextIndex changes;
+    private final Overlay overlay;
+    private final int termCount;
+    private volatile TrigramIndex termGrams;
+
+    private TextIndex(String[][] documents, int[] documentLengths, double averageDocumentLength,
+                      Map<String, Postings> postings) {
+        this.documents = documents;
+        this.documentLengths = documentLengths;
+        this.averageDocumentLength = averageDocumentLength;
+        this.postings = postings;
+        this.base = null;
+        this.changes = null;
+        this.overlay = null;
+        this.termCount = postings.size();
+    }
+
+    private TextIndex(TextIndex base, TextIndex changes, Overlay overlay) {
+        this.documents = null;
+        this.documentLengths = null;
+        this.averageDocumentLength = base.averageDocumentLength;
+        this.postings = null;
+        this.base = base;
+        this.changes = changes;
+        this.overlay = overlay;
+        this.termCount = base.termCount + (int) changes.postings.keySet().stream()
+                .filter(term -> !base.postings.containsKey(term))
+                .count();
+    }
+
+    public record TextHit(int ordinal, double score) {
+    }
+
+    public static TextIndex build(List<Product> products, CatalogSnapshot previous) {
+        return build(products, previous, null);
+    }
+
+    /**
+     * Builds the index of the products changed since {@code corpus} was built, scoring them with its statistics.
+     */
+    static TextIndex build(List<Product> products, CatalogSnapshot previous, TextIndex corpus) {
+        int size = products.size();
+        String[][] documents = new String[size][];
+        int[] documentLengths = new int[size];
+        long totalLength = 0;
+        Map<String, PostingsBuilder> builders = new HashMap<>();
+        for (int ordinal = 0; ordinal < size; ordinal++) {
+            String[] document = analyzedDocument(products.get(ordinal), previous);
+            documents[ordinal] = document;
+            Map<String, PostingsBuilder> termsInDocument = new HashMap<>();
+            for (int position = 0; position < document.length; position++) {
+                String term = document[position];
+                if (term == null) {
+                    continue;
+                }
+                documentLengths[ordinal]++;
+                termsInDocument.computeIfAbsent(term, t -> builders.computeIfAbsent(t, key -> new PostingsBuilder()))
+                        .add(ordinal, position);
+            }
+            totalLength += documentLengths[ordinal];
+        }
+        double averageDocumentLength = corpus != null ? corpus.averageDocumentLength
+                : size == 0 ? 0 : (double) totalLength / size;
+        Map<String, Postings> postings = new HashMap<>(builders.size() * 2);
+        builders.forEach((term, builder) -> {
+            double idf = corpus != null ? corpus.idf(term, builder.documentCount) : idf(size, builder.documentCount);
+            postings.put(term, builder.build(idf, documentLengths, averageDocumentLength));
+        });
+        return new TextIndex(documents, documentLengths, averageDocumentLength, postings);
+    }
+
+    /**
+     * Layers the index of the changed products, built against {@code base}, over the index of the last full build.
+     */
+    static TextIndex patch(TextIndex base, TextIndex changes, Overlay overlay) {
+        return new TextIndex(base, changes, overlay);
+    }
+
+    /**
+     * Reads back postings written by {@link #writePostings} for the given analyzed documents, copying the arrays
+     * straight out of the mapped file instead of re-inverting the documents.
+     */
+    static TextIndex readPostings(MappedFileInput input, String[] terms, String[][] documents) {
+        int[] documentLengths = new int[documents.length];
+        long totalLength = 0;
+        for (int ordinal = 0; ordinal < documents.length; ordinal++) {
+            for (String term : documents[ordinal]) {
+                if (term != null) {
+                    documentLengths[ordinal]++;
+                }
+            }
+            totalLength += documentLengths[ordinal];
+        }
+        double averageDocumentLength = documents.length == 0 ? 0 : (double) totalLength / documents.length;
+        int termCount = input.getInt();
+        Map<String, Postings> postings = new HashMap<>(termCount * 2);
+        for (int i = 0; i < termCount; i++) {
+            String term = terms[input.getInt()];
+            int documentCount = input.getInt();
+            int[] postingDocuments = readInts(input, documentCount);
+            int[] frequencies = readInts(input, documentCount);
+            int[] positionStarts = new int[documentCount + 1];
+            for (int d = 0; d < documentCount; d++) {
+                positionStarts[d + 1] = positionStarts[d] + frequencies[d];
+            }
+            int[] positions = readInts(input, positionStarts[documentCount]);
+            float[] blockMaxScores = new float[(documentCount + BLOCK_SIZE - 1) / BLOCK_SIZE];
+            input.get(blockMaxScores);
+            double idf = input.getDouble();
+            double maxScore = input.getDouble();
+            postings.put(term, new Postings(postingDocuments, frequencies, positionStarts, positions, blockMaxScores,
+                    idf, maxScore));
+        }
+        return new TextIndex(documents, documentLengths, averageDocumentLength, postings);
+    }
+
+    /**
+     * Writes the postings of every term for a {@link CatalogSnapshotFile}, referring to terms by the ids the file
+     * assigned them. Arrays are written as fixed-width values so {@link #readPostings} can bulk-copy them.
+     */
+    void writePostings(DataOutput out, ToIntFunction<String> termIds) throws IOException {
+        out.writeInt(postings.size());
+        for (Map.Entry<String, Postings> entry : postings.entrySet()) {
+            Postings termPostings = entry.getValue();
+            out.writeInt(termIds.applyAsInt(entry.getKey()));
+            out.writeInt(termPostings.documents.length);
+            writeInts(out, termPostings.documents);
+            writeInts(out, termPostings.frequencies);
+            writeInts(out, termPostings.positions);
+            for (float blockMaxScore : termPostings.blockMaxScores) {
+                out.writeFloat(blockMaxScore);
+            }
+            out.writeDouble(termPostings.idf);
+            out.writeDouble(termPostings.maxScore);
+        }
+    }
+
+    String[] document(int ordinal) {
+        if (overlay != null) {
+            int slot = overlay.slot(ordinal);
+            return slot < 0 ? base.document(ordinal) : changes.document(slot);
+        }
+        return documents[ordinal];
+    }
+
+    public int termCount() {
+        return termCount;
+    }
+
+    /**
+     * Returns up to {@code limit} best matching products, best first.
+     */
+    public List<TextHit> search(String query, int limit) {
+        return search(query, limit, false);
+    }
+
+    /**
+     * Returns up to {@code limit} best matching products, best first. With {@code fuzzy}, each term outside quotes
+     * without digits also matches up to {@value #MAX_EXPANSIONS} indexed terms within {@link NameMatch#maxEdits} of
+     * it, closest first; phrases still match exactly.
+     */
+    public List<TextHit> search(String query, int limit, boolean fuzzy) {
+        if (overlay == null) {
+            return search(query, limit, fuzzy, null);
+        }
+        List<TextHit> hits = new ArrayList<>(base.search(query, limit, fuzzy, overlay.tombstones()));
+        for (TextHit hit : changes.search(query, limit, fuzzy, null)) {
+            hits.add(new TextHit(overlay.ordinal(hit.ordinal()), hit.score()));
+        }
+        hits.sort(WORST_FIRST.reversed());
+        return hits.size() > limit ? List.copyOf(hits.subList(0, limit)) : hits;
+    }
+
+    /**
+     * @param excluded documents that must not be returned, or {@code null}
+     */
+    private List<TextHit> search(String query, int limit, boolean fuzzy, BitSet excluded) {
+        List<String[]> phrases = new ArrayList<>();
+        Matcher matcher = PHRASE.matcher(query);
+        while (matcher.find()) {
+            phrases.add(TextAnalyzer.analyze(matcher.group(1)));
+        }
+        Set<String> terms = new LinkedHashSet<>();
+        for (String token : TextAnalyzer.analyze(query.replace('"', ' '))) {
+            if (token != null) {
+                terms.add(token);
+            }
+        }
+        for (String[] phrase : phrases) {
+            for (String token : phrase) {
+                if (token != null && !postings.containsKey(token)) {
+                    return List.of();
+                }
+            }
+        }
+        if (fuzzy) {
+            terms = expand(terms);
+        }
+        Cursor[] cursors = terms.stream()
+                .map(postings::get)
+                .filter(Objects::nonNull)
+                .map(Cursor::new)
+                .sorted(Comparator.comparingDouble(cursor -> cursor.postings.maxScore))
+                .toArray(Cursor[]::new);
+        if (cursors.length == 0 || limit <= 0) {
+            return List.of();
+        }
+        return topK(cursors, phrases, limit, excluded);
+    }
+
+    private Set<String> expand(Set<String> terms) {
+        TrigramIndex grams = termGrams();
+        Set<String> expanded = new LinkedHashSet<>();
+        for (String term : terms) {
+            expanded.add(term);
+            if (hasDigit(term)) {
+                continue;
+            }
+            int[] similar = grams.within(term, NameMatch.maxEdits(term.length()));
+            for (int i = 0; i < Math.min(similar.length, MAX_EXPANSIONS); i++) {
+                expanded.add(grams.term(similar[i]));
+            }
+        }
+        return expanded;
+    }
+
+    /**
+     * Model numbers and sizes are not spelled, so terms with digits neither get nor serve as fuzzy variants.
+     */
+    private static boolean hasDigit(String term) {
+        return term.chars().anyMatch(Character::isDigit);
+    }
+
+    private TrigramIndex termGrams() {
+        TrigramIndex grams = termGrams;
+        if (grams == null) {
+            synchronized (this) {
+                grams = termGrams;
+                if (grams == null) {
+                    grams = new TrigramIndex(postings.keySet().stream()
+                            .filter(term -> !hasDigit(term))
+                            .toArray(String[]::new));
+                    termGrams = grams;
+                }
+            }
+        }
+        return grams;
+    }
+
+    private List<TextHit> topK(Cursor[] cursors, List<String[]> phrases, int limit, BitSet excluded) {
+        double[] upperBounds = new double[cursors.length];
+        double cumulative = 0;
+        for (int i = 0; i < cursors.length; i++) {
+            cumulative += cursors[i].postings.maxScore;
+            upperBounds[i] = cumulative;
+        }
+        PriorityQueue<TextHit> heap = new PriorityQueue<>(limit + 1, WORST_FIRST);
+        double threshold = 0;
+        int firstEssential = 0;
+        while (firstEssential < cursors.length) {
+            int document = Integer.MAX_VALUE;
+            for (int i = firstEssential; i < cursors.length; i++) {
+                document = Math.min(document, cursors[i].document());
+            }
+            if (document == Integer.MAX_VALUE) {
+                break;
+            }
+            if (heap.size() == limit) {
+                double blockBound = firstEssential == 0 ? 0 : upperBounds[firstEssential - 1];
+                int blockEnd = Integer.MAX_VALUE;
+                for (int i = firstEssential; i < cursors.length; i++) {
+                    if (cursors[i].document() != Integer.MAX_VALUE) {
+                        blockBound += cursors[i].blockMaxScore();
+                        blockEnd = Math.min(blockEnd, cursors[i].blockLastDocument());
+                    }
+                }
+                if (blockBound <= threshold) {
+                    for (int i = firstEssential; i < cursors.length; i++) {
+                        cursors[i].advance(blockEnd + 1);
+                    }
+                    continue;
+                }
+            }
+            double score = 0;
+            for (int i = firstEssential; i < cursors.length; i++) {
+                if (cursors[i].document() == document) {
+                    score += cursors[i].score(documentLengths[document], averageDocumentLength);
+                }
+            }
+            for (int i = firstEssential - 1; i >= 0 && score + upperBounds[i] > threshold; i--) {
+                if (cursors[i].advance(document) == document) {
+                    score += cursors[i].score(documentLengths[document], averageDocumentLength);
+                }
+            }
+            if ((heap.size() < limit || score > threshold) && (excluded == null || !excluded.get(document))
+                    && matchesPhrases(document, phrases)) {
+                heap.add(new TextHit(document, score));
+                if (heap.size() > limit) {
+                    heap.poll();
+                }
+                if (heap.size() == limit) {
+                    threshold = heap.peek().score();
+                    while (firstEssential < cursors.length && upperBounds[firstEssential] <= threshold) {
+                        firstEssential++;
+                    }
+                }
+            }
+            for (int i = firstEssential; i < cursors.length; i++) {
+                if (cursors[i].document() == document) {
+                    cursors[i].next();
+                }
+            }
+        }
+        List<TextHit> hits = new ArrayList<>(heap);
+        hits.sort(WORST_FIRST.reversed());
+        return hits;
+    }
+
+    private boolean matchesPhrases(int document, List<String[]> phrases) {
+        for (String[] phrase : phrases) {
+            if (!matchesPhrase(document, phrase)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private boolean matchesPhrase(int document, String[] phrase) {
+        int anchor = -1;
+        for (int offset = 0; offset < phrase.length; offset++) {
+            if (phrase[offset] != null) {
+                anchor = offset;
+                break;
+            }
+        }
+        if (anchor < 0) {
+            return true;
+        }
+        Postings anchorPostings = postings.get(phrase[anchor]);
+        int index = Arrays.binarySearch(anchorPostings.documents, document);
+        if (index < 0) {
+            return false;
+        }
+        for (int p = anchorPostings.positionStarts[index]; p < anchorPostings.positionStarts[index + 1]; p++) {
+            if (matchesPhraseAt(document, phrase, anchorPostings.positions[p] - anchor)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private boolean matchesPhraseAt(int document, String[] phrase, int start) {
+        for (int offset = 0; offset < phrase.length; offset++) {
+            if (phrase[offset] != null && !postings.get(phrase[offset]).hasPosition(document, start + offset)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static String[] analyzedDocument(Product product, CatalogSnapshot previous) {
+        if (previous != null) {
+            int previousOrdinal = previous.ordinal(product.getId());
+            if (previousOrdinal >= 0) {
+                Product previousProduct = previous.product(previousOrdinal);
+                if (Objects.equals(previousProduct.getName(), product.getName())
+                        && Objects.equals(previousProduct.getDescription(), product.getDescription())) {
+                    return previous.textIndex().document(previousOrdinal);
+                }
+            }
+        }
+        return TextAnalyzer.analyze(product.getName(), product.getDescription());
+    }
+
+    private static int[] readInts(MappedFileInput input, int length) {
+        int[] values = new int[length];
+        input.get(values);
+        return values;
+    }
+
+    private static void writeInts(DataOutput out, int[] values) throws IOException {
+        for (int value : values) {
+            out.writeInt(value);
+        }
+    }
+
+    private double idf(String term, int documentCount) {
+        Postings termPostings = postings.get(term);
+        return termPostings != null ? termPostings.idf : idf(documents.length, documentCount);
+    }
+
+    private static double idf(int corpusSize, int documentCount) {
+        return Math.log(1 + (corpusSize - documentCount + 0.5) / (documentCount + 0.5));
+    }
+
+    private static double score(int frequency, double idf, int documentLength, double averageDocumentLength) {
+        double norm = K1 * (1 - B + B * documentLength / averageDocumentLength);
+        return idf * frequency * (K1 + 1) / (frequency + norm);
+    }
+
+    private static final class Postings {
+
+        private final int[] documents;
+        private final int[] frequencies;
+        private final int[] positionStarts;
+        private final int[] positions;
+        private final float[] blockMaxScores;
+        private final double idf;
+        private final double maxScore;
+
+        private Postings(int[] documents, int[] frequencies, int[] positionStarts, int[] positions,
+                         float[] blockMaxScores, double idf, double maxScore) {
+            this.documents = documents;
+            this.frequencies = frequencies;
+            this.positionStarts = positionStarts;
+            this.positions = positions;
+            this.blockMaxScores = blockMaxScores;
+            this.idf = idf;
+            this.maxScore = maxScore;
+        }
+
+        private boolean hasPosition(int document, int position) {
+            int index = Arrays.binarySearch(documents, document);
+            return index >= 0
+                    && Arrays.binarySearch(positions, positionStarts[index], positionStarts[index + 1], position) >= 0;
+        }
+    }
+
+    private static final class PostingsBuilder {
+
+        private int[] documents = new int[4];
+        private int[] frequencies = new int[4];
+        private int[] positions = new int[4];
+        private int documentCount;
+        private int positionCount;
+
+        private void add(int document, int position) {
+            if (documentCount == 0 || documents[documentCount - 1] != document) {
+                if (documentCount == documents.length) {
+                    documents = Arrays.copyOf(documents, documentCount * 2);
+                    frequencies = Arrays.copyOf(frequencies, documentCount * 2);
+                }
+                documents[documentCount++] = document;
+            }
+            frequencies[documentCount - 1]++;
+            if (positionCount == positions.length) {
+                positions = Arrays.copyOf(positions, positionCount * 2);
+            }
+            positions[positionCount++] = position;
+        }
+
+        private Postings build(double idf, int[] documentLengths, double averageDocumentLength) {
+            int[] positionStarts = new int[documentCount + 1];
+            for (int i = 0; i < documentCount; i++) {
+                positionStarts[i + 1] = positionStarts[i] + frequencies[i];
+            }
+            float[] blockMaxScores = new float[(documentCount + BLOCK_SIZE - 1) / BLOCK_SIZE];
+            double maxScore = 0;
+            for (int i = 0; i < documentCount; i++) {
+                double score = score(frequencies[i], idf, documentLengths[documents[i]], averageDocumentLength);
+                // Rounded up so the float bound never undercuts the exact score.
+                float blockScore = Math.nextUp((float) score);
+                blockMaxScores[i / BLOCK_SIZE] = Math.max(blockMaxScores[i / BLOCK_SIZE], blockScore);
+                maxScore = Math.max(maxScore, score);
+            }
+            return new Postings(Arrays.copyOf(documents, documentCount), Arrays.copyOf(frequencies, documentCount),
+                    positionStarts, Arrays.copyOf(positions, positionCount), blockMaxScores, idf, maxScore);
+        }
+    }
+
+    private static final class Cursor {
+
+        private final Postings postings;
+        private int index;
+
+        private Cursor(Postings postings) {
+            this.postings = postings;
+        }
+
+        private int document() {
+            return index < postings.documents.length ? postings.documents[index] : Integer.MAX_VALUE;
+        }
+
+        private void next() {
+            index++;
+        }
+
+        private int advance(int target) {
+            int[] documents = postings.documents;
+            if (index >= documents.length || documents[index] >= target) {
+                return document();
+            }
+            int step = 1;
+            int low = index;
+            int high = index + 1;
+            while (high < documents.length && documents[high] < target) {
+                low = high;
+                step <<= 1;
+                high = low + step;
+            }
+            high = Math.min(high, documents.length);
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (documents[mid] < target) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            index = low;
+            return document();
+        }
+
+        private double blockMaxScore() {
+            return postings.blockMaxScores[index / BLOCK_SIZE];
+        }
+
+        private int blockLastDocument() {
+            int last = Math.min(postings.documents.length, (index / BLOCK_SIZE + 1) * BLOCK_SIZE) - 1;
+            return postings.documents[last];
+        }
+
+        private double score(int documentLength, double averageDocumentLength) {
+            return TextIndex.score(postings.frequencies[index], postings.idf, documentLength, averageDocumentLength);
+        }
+    }
+}
@@ -0,0 +1,160 @@
+package com.example.searchservice.catalog;
+
+import com.example.searchservice.model.NameMatch;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Character trigram index over a dictionary of lower-cased terms, for typo-tolerant lookups. Terms are padded with
+ * two sentinels on either side, so every character takes part in three trigrams and a single edit changes at most
+ * three of them. A term within {@code k} edits of the query thus shares at least {@code d - 3k} of the query's
+ * {@code d} distinct trigrams, and only terms passing that count filter reach the bounded Levenshtein check.
+ * <p>
+ * A candidate that must appear in {@code t} of {@code n} posting lists appears in at least one of the
+ * {@code n - t + 1} shortest, so only those are merged and the longer lists are probed per candidate. Lookups cost
+ * in proportion to the rarest trigrams of the query rather than to the size of the dictionary.
+ */
+final class TrigramIndex {
+
+    private static final char PAD = '\u0000';
+    private static final int[] NONE = new int[0];
+
+    private final String[] terms;
+    private final int[] lengths;
+    private final long[] grams;
+    private final int[][] postings;
+
+    TrigramIndex(String[] terms) {
+        this.terms = terms;
+        this.lengths = Arrays.stream(terms).mapToInt(String::length).toArray();
+        Map<Long, PostingsBuilder> builders = new HashMap<>();
+        for (int id = 0; id < terms.length; id++) {
+            for (long gram : distinctGrams(terms[id])) {
+                builders.computeIfAbsent(gram, key -> new PostingsBuilder()).add(id);
+            }
+        }
+        this.grams = builders.keySet().stream().mapToLong(Long::longValue).sorted().toArray();
+        this.postings = new int[grams.length][];
+        for (int i = 0; i < grams.length; i++) {
+            postings[i] = builders.get(grams[i]).build();
+        }
+    }
+
+    int size() {
+        return terms.length;
+    }
+
+    String term(int id) {
+        return terms[id];
+    }
+
+    /**
+     * Returns the ids of the terms at most {@code maxEdits} edits away from {@code term}, closest first and in id
+     * order within a distance.
+     */
+    int[] within(String term, int maxEdits) {
+        long[] queryGrams = distinctGrams(term);
+        int threshold = queryGrams.length - 3 * maxEdits;
+        if (threshold <= 0) {
+            // too short or too repetitive for the count filter to rule anything out
+            return verify(term, maxEdits, allIds());
+        }
+        int[][] lists = new int[queryGrams.length][];
+        for (int i = 0; i < queryGrams.length; i++) {
+            int index = Arrays.binarySearch(grams, queryGrams[i]);
+            lists[i] = index >= 0 ? postings[index] : NONE;
+        }
+        Arrays.sort(lists, Comparator.comparingInt(list -> list.length));
+        int merged = lists.length - threshold + 1;
+        int[] heads = new int[merged];
+        int[] passed = new int[16];
+        int passedCount = 0;
+        while (true) {
+            // the shortest lists are merged head by head, counting how many of them hold the smallest id
+            int id = Integer.MAX_VALUE;
+            for (int i = 0; i < merged; i++) {
+                if (heads[i] < lists[i].length) {
+                    id = Math.min(id, lists[i][heads[i]]);
+                }
+            }
+            if (id == Integer.MAX_VALUE) {
+                break;
+            }
+            int count = 0;
+            for (int i = 0; i < merged; i++) {
+                if (heads[i] < lists[i].length && lists[i][heads[i]] == id) {
+                    heads[i]++;
+                    count++;
+                }
+            }
+            if (Math.abs(lengths[id] - term.length()) > maxEdits) {
+                continue;
+            }
+            for (int i = merged; i < lists.length && count < threshold && count + lists.length - i >= threshold; i++) {
+                if (Arrays.binarySearch(lists[i], id) >= 0) {
+                    count++;
+                }
+            }
+            if (count >= threshold) {
+                if (passedCount == passed.length) {
+                    passed = Arrays.copyOf(passed, passedCount * 2);
+                }
+                passed[passedCount++] = id;
+            }
+        }
+        return verify(term, maxEdits, Arrays.copyOf(passed, passedCount));
+    }
+
+    private int[] verify(String term, int maxEdits, int[] candidates) {
+        // distance in the high bits so that sorting orders by distance, then id
+        long[] matches = new long[candidates.length];
+        int count = 0;
+        for (int id : candidates) {
+            int distance = NameMatch.editDistance(term, terms[id], maxEdits);
+            if (distance <= maxEdits) {
+                matches[count++] = (long) distance << 32 | id;
+            }
+        }
+        Arrays.sort(matches, 0, count);
+        int[] ids = new int[count];
+        for (int i = 0; i < count; i++) {
+            ids[i] = (int) matches[i];
+        }
+        return ids;
+    }
+
+    private int[] allIds() {
+        int[] ids = new int[terms.length];
+        Arrays.setAll(ids, id -> id);
+        return ids;
+    }
+
+    private static long[] distinctGrams(String term) {
+        String padded = "" + PAD + PAD + term + PAD + PAD;
+        long[] grams = new long[padded.length() - 2];
+        for (int i = 0; i < grams.length; i++) {
+            grams[i] = (long) padded.charAt(i) << 32 | (long) padded.charAt(i + 1) << 16 | padded.charAt(i + 2);
+        }
+        return Arrays.stream(grams).sorted().distinct().toArray();
+    }
+
+    private static final class PostingsBuilder {
+
+        private int[] ids = new int[2];
+        private int size;
+
+        private void add(int id) {
+            if (size == ids.length) {
+                ids = Arrays.copyOf(ids, size * 2);
+            }
+            ids[size++] = id;
+        }
+
+        private int[] build() {
+            return Arrays.copyOf(ids, size);
+        }
+    }
+}
@@ -0,0 +1,23 @@
+package com.example.searchservice.client;
+
+import com.example.searchservice.model.Product;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Products created, updated or deleted upstream since a watermark. {@code watermark} is the point the next request
+ * should continue from.
+ */
+public record ProductChanges(LocalDateTime watermark, List<Product> upserts, List<UUID> deletes) {
+
+    public ProductChanges {
+        upserts = upserts == null ? List.of() : upserts;
+        deletes = deletes == null ? List.of() : deletes;
+    }
+
+    public boolean isEmpty() {
+        return upserts.isEmpty() && deletes.isEmpty();
+    }
+}
@@ -0,0 +1,100 @@
+package com.example.searchservice.client;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.web.reactive.function.client.ClientRequest;
+import org.springframework.web.reactive.function.client.ExchangeFilterFunction;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.SignalType;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Per-endpoint metrics of upstream exchanges: latency until the last product is decoded (tagged with outcome and
+ * exception class), response payload size and number of products per response. All of them publish histogram
+ * buckets so dashboards can compute percentiles.
+ */
+class ShopClientMetrics {
+
+    static final String ENDPOINT_ATTRIBUTE = ShopClientMetrics.class.getName() + ".endpoint";
+
+    private final MeterRegistry meterRegistry;
+
+    ShopClientMetrics(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    /**
+     * Counts response body bytes as they arrive, before decoding.
+     */
+    ExchangeFilterFunction payloadSize() {
+        return (request, next) -> next.exchange(request)
+                .map(response -> {
+                    String endpoint = endpoint(request);
+                    AtomicLong bytes = new AtomicLong();
+                    return response.mutate()
+                            .body(body -> body
+                                    .doOnNext(buffer -> bytes.addAndGet(buffer.readableByteCount()))
+                                    .doFinally(signal -> responseBytes(endpoint).record(bytes.get())))
+                            .build();
+                });
+    }
+
+    <T> Flux<T> instrument(String endpoint, Flux<T> exchange) {
+        return Flux.defer(() -> {
+            Timer.Sample sample = Timer.start(meterRegistry);
+            AtomicLong products = new AtomicLong();
+            return exchange
+                    .doOnNext(product -> products.incrementAndGet())
+                    .doOnError(e -> sample.stop(requests(endpoint, "ERROR", e.getClass().getSimpleName())))
+                    .doFinally(signal -> {
+                        if (signal == SignalType.ON_COMPLETE) {
+                            sample.stop(requests(endpoint, "SUCCESS", "none"));
+                            responseProducts(endpoint).record(products.get());
+                        } else if (signal == SignalType.CANCEL) {
+                            sample.stop(requests(endpoint, "CANCELLED", "none"));
+                        }
+                    });
+        });
+    }
+
+    Counter notModified(String endpoint) {
+        return Counter.builder("shop.client.not.modified")
+                .description("Upstream exchanges answered with 304 and served from the last decoded response")
+                .tag("endpoint", endpoint)
+                .register(meterRegistry);
+    }
+
+    private Timer requests(String endpoint, String outcome, String exception) {
+        return Timer.builder("shop.client.requests")
+                .description("Upstream exchanges until the last product was decoded")
+                .tag("endpoint", endpoint)
+                .tag("outcome", outcome)
+                .tag("exception", exception)
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+    }
+
+    private DistributionSummary responseBytes(String endpoint) {
+        return DistributionSummary.builder("shop.client.response.size")
+                .description("Upstream response body size")
+                .baseUnit("bytes")
+                .tag("endpoint", endpoint)
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+    }
+
+    private DistributionSummary responseProducts(String endpoint) {
+        return DistributionSummary.builder("shop.client.response.products")
+                .description("Products decoded from an upstream response")
+                .tag("endpoint", endpoint)
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+    }
+
+    private static String endpoint(ClientRequest request) {
+        return request.attribute(ENDPOINT_ATTRIBUTE).map(Object::toString).orElse("unknown");
+    }
+}
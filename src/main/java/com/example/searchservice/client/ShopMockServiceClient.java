@@ -1,9 +1,16 @@
 package com.example.searchservice.client;
 
-import com.example.searchservice.dto.ProductDTO;
+import com.example.searchservice.error.ChangeLogGapException;
 import com.example.searchservice.error.ExternalServiceUnavailableException;
 import com.example.searchservice.error.InvalidExternalResponseException;
+import com.example.searchservice.model.Product;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import io.github.resilience4j.reactor.circuitbreaker.operator.CircuitBreakerOperator;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.HttpStatusCode;
 import org.springframework.stereotype.Service;
 import org.springframework.web.reactive.function.client.WebClient;
@@ -12,61 +19,143 @@ import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
 import java.net.URI;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Consumer;
+import java.util.function.Function;
 
 @Service
 public class ShopMockServiceClient {
 
+    public static final String CIRCUIT_BREAKER = "shop-mock-service";
+
+    private static final Consumer<HttpHeaders> NO_CONDITIONS = headers -> {
+    };
+
     private final WebClient webClient;
     private final ShopMockServiceClientConfig config;
+    private final SingleFlight singleFlight;
+    private final ShopClientMetrics metrics;
+    private final CircuitBreaker circuitBreaker;
+    private final ConcurrentMap<String, Validated> validated = new ConcurrentHashMap<>();
 
     @Autowired
-    public ShopMockServiceClient(WebClient.Builder webClientBuilder, ShopMockServiceClientConfig config) {
-        this.webClient = webClientBuilder.baseUrl(config.getUrl()).build();
+    public ShopMockServiceClient(WebClient.Builder webClientBuilder, ShopMockServiceClientConfig config,
+                                 CircuitBreakerRegistry circuitBreakerRegistry, MeterRegistry meterRegistry) {
+        this.metrics = new ShopClientMetrics(meterRegistry);
+        this.webClient = webClientBuilder.baseUrl(config.getUrl())
+                .filter(metrics.payloadSize())
+                .build();
         this.config = config;
+        this.singleFlight = new SingleFlight(meterRegistry);
+        this.circuitBreaker = circuitBreakerRegistry.circuitBreaker(CIRCUIT_BREAKER);
     }
 
-    public Flux<ProductDTO> getAllProducts() {
-        return webClient.get()
-                .uri(UriBuilder::build)
-                .retrieve()
-                .onStatus(HttpStatusCode::is5xxServerError, response ->
-                        Mono.error(new ExternalServiceUnavailableException("Shop-mock-service is currently unavailable")))
-                .onStatus(HttpStatusCode::is4xxClientError, response ->
-                        Mono.error(new InvalidExternalResponseException("Invalid response from shop-mock-service.")))
-                .bodyToFlux(ProductDTO.class);
+    /**
+     * Whether calls currently go through to shop-mock-service. While the circuit is open or probing, calls that are
+     * not permitted fail fast with {@link io.github.resilience4j.circuitbreaker.CallNotPermittedException}.
+     */
+    public boolean isCircuitClosed() {
+        return circuitBreaker.getState() == CircuitBreaker.State.CLOSED;
     }
 
-    public Flux<ProductDTO> getAllGameProducts() {
-        return webClient.get()
-                .uri(uri -> URI.create(config.getUrl() + "/external/games"))
-                .retrieve()
-                .onStatus(HttpStatusCode::is5xxServerError, response ->
-                        Mono.error(new ExternalServiceUnavailableException("Shop-mock-service is currently unavailable")))
-                .onStatus(HttpStatusCode::is4xxClientError, response ->
-                        Mono.error(new InvalidExternalResponseException("Invalid response from shop-mock-service.")))
-                .bodyToFlux(ProductDTO.class);
+    public Flux<Product> getAllProducts() {
+        return fetch("products", UriBuilder::build);
     }
 
-    public Flux<ProductDTO> getAllHardwareProducts() {
-        return webClient.get()
-                .uri(uri -> URI.create(config.getUrl() + "/external/hardware"))
-                .retrieve()
-                .onStatus(HttpStatusCode::is5xxServerError, response ->
-                        Mono.error(new ExternalServiceUnavailableException("Shop-mock-service is currently unavailable")))
-                .onStatus(HttpStatusCode::is4xxClientError, response ->
-                        Mono.error(new InvalidExternalResponseException("Invalid response from shop-mock-service.")))
-                .bodyToFlux(ProductDTO.class);
+    /**
+     * Fetches what changed since {@code since}, inclusive, from {@code /products/changes}. Fails with
+     * {@link ChangeLogGapException} when the upstream change log no longer reaches back that far.
+     */
+    public Mono<ProductChanges> getProductChanges(LocalDateTime since) {
+        return retrieve("changes", uri -> uri.path("/changes").queryParam("since", since).build(), NO_CONDITIONS,
+                spec -> spec.bodyToFlux(ProductChanges.class))
+                .next();
+    }
+
+    public Flux<Product> getAllGameProducts() {
+        return fetch("games", uri -> URI.create(config.getUrl() + "/external/games"));
+    }
+
+    public Flux<Product> getAllHardwareProducts() {
+        return fetch("hardware", uri -> URI.create(config.getUrl() + "/external/hardware"));
+    }
+
+    public Flux<Product> getAllSoftwareToolProducts() {
+        return fetch("software-tools", uri -> URI.create(config.getUrl() + "/external/software-tools"));
     }
 
-    public Flux<ProductDTO> getAllSoftwareToolProducts() {
-        return webClient.get()
-                .uri(uri -> URI.create(config.getUrl() + "/external/software-tools"))
+    /**
+     * Fetches a whole feed conditionally. The validators of the last complete response are sent as
+     * {@code If-None-Match}/{@code If-Modified-Since}, and a {@code 304 Not Modified} replays the products decoded
+     * from that response instead of transferring and decoding them again.
+     */
+    private Flux<Product> fetch(String endpoint, Function<UriBuilder, URI> uri) {
+        return singleFlight.execute(endpoint, () -> Flux.defer(() -> {
+            Validated previous = validated.get(endpoint);
+            return retrieve(endpoint, uri, previous == null ? NO_CONDITIONS : previous::addConditions,
+                    spec -> spec.toEntityFlux(Product.class).flatMapMany(entity -> {
+                        if (entity.getStatusCode().isSameCodeAs(HttpStatus.NOT_MODIFIED)) {
+                            if (previous == null) {
+                                return Flux.error(new InvalidExternalResponseException(
+                                        "Unsolicited 304 response from shop-mock-service."));
+                            }
+                            metrics.notModified(endpoint).increment();
+                            return Flux.fromIterable(previous.products());
+                        }
+                        return remember(endpoint, entity.getHeaders(), entity.getBody());
+                    }));
+        }));
+    }
+
+    /**
+     * Collects the products of a response that carries validators, and keeps them once the body is complete.
+     */
+    private Flux<Product> remember(String endpoint, HttpHeaders headers, Flux<Product> body) {
+        String entityTag = headers.getETag();
+        String lastModified = headers.getFirst(HttpHeaders.LAST_MODIFIED);
+        if (entityTag == null && lastModified == null) {
+            validated.remove(endpoint);
+            return body;
+        }
+        List<Product> products = new ArrayList<>();
+        return body.doOnNext(products::add)
+                .doOnComplete(() -> validated.put(endpoint, new Validated(entityTag, lastModified, products)));
+    }
+
+    private <T> Flux<T> retrieve(String endpoint, Function<UriBuilder, URI> uri, Consumer<HttpHeaders> conditions,
+                                 Function<WebClient.ResponseSpec, Flux<T>> body) {
+        WebClient.ResponseSpec spec = webClient.get()
+                .uri(uri)
+                .headers(conditions)
+                .attribute(ShopClientMetrics.ENDPOINT_ATTRIBUTE, endpoint)
                 .retrieve()
+                .onStatus(status -> status.isSameCodeAs(HttpStatus.GONE), response ->
+                        Mono.error(new ChangeLogGapException("Shop-mock-service change log does not reach back far enough")))
                 .onStatus(HttpStatusCode::is5xxServerError, response ->
                         Mono.error(new ExternalServiceUnavailableException("Shop-mock-service is currently unavailable")))
                 .onStatus(HttpStatusCode::is4xxClientError, response ->
-                        Mono.error(new InvalidExternalResponseException("Invalid response from shop-mock-service.")))
-                .bodyToFlux(ProductDTO.class);
+                        Mono.error(new InvalidExternalResponseException("Invalid response from shop-mock-service.")));
+        return metrics.instrument(endpoint, body.apply(spec)
+                .timeout(config.getTimeout())
+                .transformDeferred(CircuitBreakerOperator.of(circuitBreaker)));
     }
 
+    /**
+     * The validators and decoded products of the last complete response of a feed.
+     */
+    private record Validated(String entityTag, String lastModified, List<Product> products) {
+
+        void addConditions(HttpHeaders headers) {
+            if (entityTag != null) {
+                headers.set(HttpHeaders.IF_NONE_MATCH, entityTag);
+            }
+            if (lastModified != null) {
+                headers.set(HttpHeaders.IF_MODIFIED_SINCE, lastModified);
+            }
+        }
+    }
 }
@@ -5,6 +5,8 @@ import lombok.Setter;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.stereotype.Component;
 
+import java.time.Duration;
+
 @Component
 @ConfigurationProperties(prefix = "external.api.shop-mock-service")
 @Getter
@@ -12,4 +14,5 @@ import org.springframework.stereotype.Component;
 public class ShopMockServiceClientConfig {
 
     private String url;
+    private Duration timeout = Duration.ofSeconds(10);
 }
@@ -0,0 +1,31 @@
+package com.example.searchservice.client;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+
+/**
+ * Connection pool and transport settings of the WebClient used for shop-mock-service.
+ */
+@Component
+@ConfigurationProperties(prefix = "external.api.shop-mock-service.http")
+@Getter
+@Setter
+public class ShopMockServiceHttpConfig {
+
+    private int maxConnections = 50;
+    private int pendingAcquireMaxCount = 200;
+    private Duration pendingAcquireTimeout = Duration.ofSeconds(5);
+    private Duration maxIdleTime = Duration.ofSeconds(30);
+    private Duration maxLifeTime = Duration.ofMinutes(5);
+    private Duration evictionInterval = Duration.ofSeconds(30);
+    private Duration connectTimeout = Duration.ofSeconds(2);
+    private Duration responseTimeout = Duration.ofSeconds(10);
+    private boolean compression = true;
+    private boolean http2 = true;
+    private DataSize maxInMemorySize = DataSize.ofMegabytes(16);
+}
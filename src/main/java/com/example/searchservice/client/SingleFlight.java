@@ -0,0 +1,71 @@
+package com.example.searchservice.client;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import reactor.core.publisher.Flux;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Coalesces concurrent identical upstream calls. While an exchange for a key is in flight, new subscribers join it
+ * and receive every element from the start instead of starting another exchange. The exchange is cancelled once all
+ * of its subscribers have cancelled.
+ */
+class SingleFlight {
+
+    private final ConcurrentMap<String, Exchange<?>> inFlight = new ConcurrentHashMap<>();
+    private final MeterRegistry meterRegistry;
+
+    SingleFlight(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    @SuppressWarnings("unchecked")
+    <T> Flux<T> execute(String key, Supplier<Flux<T>> call) {
+        return Flux.defer(() -> {
+            Exchange<T> created = new Exchange<>(key, call);
+            Exchange<T> exchange = (Exchange<T>) inFlight.putIfAbsent(key, created);
+            if (exchange == null) {
+                exchange = created;
+            } else {
+                coalescedCalls(key).increment();
+            }
+            exchange.subscribers.incrementAndGet();
+            return exchange.shared;
+        });
+    }
+
+    private Counter coalescedCalls(String key) {
+        return Counter.builder("shop.client.coalesced.calls")
+                .description("Upstream calls served by joining an in-flight exchange")
+                .tag("endpoint", key)
+                .register(meterRegistry);
+    }
+
+    private DistributionSummary fanOut(String key) {
+        return DistributionSummary.builder("shop.client.exchange.fanout")
+                .description("Subscribers served by a single upstream exchange")
+                .tag("endpoint", key)
+                .register(meterRegistry);
+    }
+
+    private final class Exchange<T> {
+
+        private final AtomicInteger subscribers = new AtomicInteger();
+        private final Flux<T> shared;
+
+        private Exchange(String key, Supplier<Flux<T>> call) {
+            this.shared = Flux.defer(call)
+                    .doFinally(signal -> {
+                        inFlight.remove(key, this);
+                        fanOut(key).record(subscribers.get());
+                    })
+                    .replay()
+                    .refCount();
+        }
+    }
+}
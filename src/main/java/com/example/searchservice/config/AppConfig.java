@@ -1,14 +1,60 @@
 package com.example.searchservice.config;
 
+import com.example.searchservice.client.ShopMockServiceClientConfig;
+import com.example.searchservice.client.ShopMockServiceHttpConfig;
+import io.netty.channel.ChannelOption;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
 import org.springframework.web.reactive.function.client.WebClient;
+import reactor.netty.http.HttpProtocol;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
 
 @Configuration
 public class AppConfig {
 
+    static final String CONNECTION_POOL = "shop-mock-service";
+
+    /**
+     * Pool metrics are registered with the global Micrometer registry, which Spring Boot bridges to Prometheus as
+     * {@code reactor_netty_connection_provider_*}.
+     */
+    @Bean(destroyMethod = "dispose")
+    public ConnectionProvider shopMockServiceConnectionProvider(final ShopMockServiceHttpConfig http) {
+        return ConnectionProvider.builder(CONNECTION_POOL)
+                .maxConnections(http.getMaxConnections())
+                .pendingAcquireMaxCount(http.getPendingAcquireMaxCount())
+                .pendingAcquireTimeout(http.getPendingAcquireTimeout())
+                .maxIdleTime(http.getMaxIdleTime())
+                .maxLifeTime(http.getMaxLifeTime())
+                .evictInBackground(http.getEvictionInterval())
+                .metrics(true)
+                .build();
+    }
+
     @Bean
-    public WebClient.Builder webClientBuilder() {
-        return WebClient.builder();
+    public WebClient.Builder webClientBuilder(final ConnectionProvider shopMockServiceConnectionProvider,
+                                              final ShopMockServiceHttpConfig http,
+                                              final ShopMockServiceClientConfig client) {
+        return webClientBuilder(shopMockServiceConnectionProvider, http, client.getUrl());
+    }
+
+    static WebClient.Builder webClientBuilder(final ConnectionProvider connectionProvider,
+                                              final ShopMockServiceHttpConfig http, final String url) {
+        HttpClient httpClient = HttpClient.create(connectionProvider)
+                .option(ChannelOption.CONNECT_TIMEOUT_MILLIS, Math.toIntExact(http.getConnectTimeout().toMillis()))
+                .responseTimeout(http.getResponseTimeout())
+                .compress(http.isCompression());
+        if (http.isHttp2()) {
+            // TLS negotiates h2 through ALPN, plain connections try an h2c upgrade and stay on HTTP/1.1 if refused
+            httpClient = url != null && url.startsWith("https")
+                    ? httpClient.secure().protocol(HttpProtocol.H2, HttpProtocol.HTTP11)
+                    : httpClient.protocol(HttpProtocol.HTTP11, HttpProtocol.H2C);
+        }
+        int maxInMemorySize = Math.toIntExact(http.getMaxInMemorySize().toBytes());
+        return WebClient.builder()
+                .clientConnector(new ReactorClientHttpConnector(httpClient))
+                .codecs(codecs -> codecs.defaultCodecs().maxInMemorySize(maxInMemorySize));
     }
 }
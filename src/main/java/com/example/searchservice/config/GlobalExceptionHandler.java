@@ -1,7 +1,9 @@
 package com.example.searchservice.config;
 
 import com.example.searchservice.error.ExternalServiceUnavailableException;
+import com.example.searchservice.error.InvalidCursorException;
 import com.example.searchservice.error.InvalidExternalResponseException;
+import io.github.resilience4j.circuitbreaker.CallNotPermittedException;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.ExceptionHandler;
@@ -21,9 +23,19 @@ public class GlobalExceptionHandler {
         return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body(ex.getMessage());
     }
 
+    @ExceptionHandler(CallNotPermittedException.class)
+    public ResponseEntity<String> handleCircuitOpen(CallNotPermittedException ex) {
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body("Shop-mock-service is currently unavailable");
+    }
+
     @ExceptionHandler(InvalidExternalResponseException.class)
     public ResponseEntity<String> handleInvalidResponse(InvalidExternalResponseException ex) {
         return ResponseEntity.status(HttpStatus.BAD_GATEWAY).body(ex.getMessage());
     }
+
+    @ExceptionHandler(InvalidCursorException.class)
+    public ResponseEntity<String> handleInvalidCursor(InvalidCursorException ex) {
+        return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(ex.getMessage());
+    }
 }
 
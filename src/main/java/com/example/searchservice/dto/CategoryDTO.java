@@ -1,49 +0,0 @@
-package com.example.searchservice.dto;
-
-public enum CategoryDTO {
-    ELECTRONICS,
-    CLOTHING,
-    GROCERY,
-    BEAUTY,
-    BOOKS,
-    SPORTS_EQUIPMENT,
-    TOYS_GAMES,
-    JEWELRY,
-    HOME_DECOR,
-    GARDENING,
-    PETS_SUPPLIES,
-    OFFICE_SUPPLIES,
-    MUSICAL_INSTRUMENTS,
-    MOVIES_MUSIC,
-    HEALTH_WELLNESS,
-    AUTOMOTIVE,
-    DIY_TOOLS,
-    FOOTWEAR,
-    TRAVEL_ACCESSORIES,
-    FURNITURE,
-    ARTS_CRAFTS,
-    STATIONERY,
-    BABY_PRODUCTS,
-    GOURMET_FOOD,
-    BEVERAGES,
-    OUTDOOR_RECREATION,
-    ANTIQUES_COLLECTIBLES,
-    VINTAGE_CLOTHING,
-    MULTIPLAYER,
-    STRATEGY,
-    ESPORTS,
-    FIRST_PERSON_SHOOTER,
-    ACTION,
-    GAMING,
-    PROFESSIONAL_GRAPHICS,
-    HARDWARE,
-    COMPUTING,
-    GAMING_HARDWARE,
-    TECHNOLOGY,
-    DEVELOPMENT_TOOLS,
-    SOFTWARE,
-    PROGRAMMING,
-    DESIGN_TOOLS,
-    UX_UI_DESIGN,
-    BIKES_ACCESSORIES;
-}
@@ -0,0 +1,8 @@
+package com.example.searchservice.error;
+
+public class ChangeLogGapException extends RuntimeException {
+
+    public ChangeLogGapException(String message) {
+        super(message);
+    }
+}
@@ -1,9 +1,30 @@
 package com.example.searchservice.model;
 
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
+
 import java.math.BigDecimal;
 import java.util.List;
 
 public record AdvancedSearchRequestBody(String manufacturerName, BigDecimal price, List<Category> categories,
-                                        Double reviewRate) {
+                                        Double reviewRate, BigDecimal minPrice, BigDecimal maxPrice,
+                                        @Min(1) @Max(SearchOptions.MAX_LIMIT) Integer limit, SortField sort,
+                                        SortDirection direction, String cursor) {
+
+    public AdvancedSearchRequestBody(String manufacturerName, BigDecimal price, List<Category> categories,
+                                     Double reviewRate) {
+        this(manufacturerName, price, categories, reviewRate, null, null, null, null, null, null);
+    }
 
+    /**
+     * Paging fields given in the body take precedence over the ones given as query parameters.
+     */
+    public SearchOptions searchOptions(SearchOptions queryOptions) {
+        return new SearchOptions(
+                queryOptions.reviewView(),
+                limit != null ? limit : queryOptions.limit(),
+                sort != null ? sort : queryOptions.sort(),
+                direction != null ? direction : queryOptions.direction(),
+                cursor != null ? cursor : queryOptions.cursor());
+    }
 }
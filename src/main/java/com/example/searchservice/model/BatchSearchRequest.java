@@ -0,0 +1,21 @@
+package com.example.searchservice.model;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Size;
+
+import java.util.List;
+
+/**
+ * Advanced searches answered together by {@code POST /search/products/batch}. Every query carries an id that
+ * labels its result; paging fields in a query apply to that query only.
+ */
+public record BatchSearchRequest(@NotEmpty @Size(max = MAX_QUERIES) List<@NotNull @Valid Query> queries) {
+
+    public static final int MAX_QUERIES = 50;
+
+    public record Query(@NotBlank String id, @NotNull @Valid AdvancedSearchRequestBody query) {
+    }
+}
@@ -0,0 +1,12 @@
+package com.example.searchservice.model;
+
+import java.util.List;
+
+/**
+ * Results of a {@link BatchSearchRequest}, in the order of its queries and all taken from the same catalog version.
+ */
+public record BatchSearchResult(long catalogVersion, List<QueryResult> results) {
+
+    public record QueryResult(String id, List<Product> products, String nextCursor) {
+    }
+}
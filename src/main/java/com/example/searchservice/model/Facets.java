@@ -0,0 +1,24 @@
+package com.example.searchservice.model;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Counts of the products matching an advanced search as returned by {@code /search/products/facets}. Categories
+ * and manufacturers are ordered by count, with zero counts left out; price buckets keep their order and include
+ * empty buckets, and a product without a price is in none of them. A product with several categories counts once
+ * for each of them.
+ */
+public record Facets(long catalogVersion, int matches, Map<Category, Integer> categories,
+                     List<ManufacturerCount> manufacturers, List<PriceBucket> prices) {
+
+    public record ManufacturerCount(String name, int count) {
+    }
+
+    /**
+     * Products priced at least {@code from} and below {@code to}; a {@code null} bound is open.
+     */
+    public record PriceBucket(BigDecimal from, BigDecimal to, int count) {
+    }
+}
@@ -0,0 +1,72 @@
+package com.example.searchservice.model;
+
+import java.util.Locale;
+
+/**
+ * How a requested name matches catalog names. A fuzzy match ignores case and tolerates up to
+ * {@link #maxEdits(int)} single-character insertions, deletions or substitutions.
+ */
+public record NameMatch(boolean ignoreCase, boolean prefix, boolean fuzzy) {
+
+    public static final NameMatch EXACT = new NameMatch(false, false);
+
+    public NameMatch(boolean ignoreCase, boolean prefix) {
+        this(ignoreCase, prefix, false);
+    }
+
+    /**
+     * Tests a single name, with the same case folding as the manufacturer index.
+     */
+    public boolean matches(String requested, String name) {
+        if (ignoreCase || fuzzy) {
+            requested = requested.toLowerCase(Locale.ROOT);
+            name = name.toLowerCase(Locale.ROOT);
+        }
+        if (fuzzy) {
+            return withinEdits(requested, name, maxEdits(requested.length()));
+        }
+        return prefix ? name.startsWith(requested) : name.equals(requested);
+    }
+
+    /**
+     * Edits tolerated by a fuzzy match of a name this long: none up to two characters, one up to five, two beyond.
+     */
+    public static int maxEdits(int length) {
+        return length <= 2 ? 0 : length <= 5 ? 1 : 2;
+    }
+
+    public static boolean withinEdits(String first, String second, int maxEdits) {
+        return editDistance(first, second, maxEdits) <= maxEdits;
+    }
+
+    /**
+     * Levenshtein distance between {@code first} and {@code second}, or {@code maxEdits + 1} once it is known to
+     * exceed {@code maxEdits}: the computation stops at the first row of the distance matrix above the bound.
+     */
+    public static int editDistance(String first, String second, int maxEdits) {
+        if (Math.abs(first.length() - second.length()) > maxEdits) {
+            return maxEdits + 1;
+        }
+        int[] previous = new int[second.length() + 1];
+        int[] current = new int[second.length() + 1];
+        for (int j = 0; j <= second.length(); j++) {
+            previous[j] = j;
+        }
+        for (int i = 1; i <= first.length(); i++) {
+            current[0] = i;
+            int rowMin = i;
+            for (int j = 1; j <= second.length(); j++) {
+                int substitution = previous[j - 1] + (first.charAt(i - 1) == second.charAt(j - 1) ? 0 : 1);
+                current[j] = Math.min(substitution, Math.min(previous[j], current[j - 1]) + 1);
+                rowMin = Math.min(rowMin, current[j]);
+            }
+            if (rowMin > maxEdits) {
+                return maxEdits + 1;
+            }
+            int[] swap = previous;
+            previous = current;
+            current = swap;
+        }
+        return Math.min(previous[second.length()], maxEdits + 1);
+    }
+}
@@ -1,5 +1,7 @@
 package com.example.searchservice.model;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonProperty;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
@@ -13,7 +15,7 @@ import java.util.UUID;
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
-@Builder
+@Builder(toBuilder = true)
 public class Product {
 
     private UUID id;
@@ -25,5 +27,12 @@ public class Product {
     private LocalDateTime createdAt;
     private LocalDateTime updatedAt;
     private List<Review> reviews;
+    /**
+     * Computed by the search service from {@link #reviews} and only ever written; stats sent by shop-mock-service are
+     * not read.
+     */
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    @JsonProperty(access = JsonProperty.Access.READ_ONLY)
+    private ReviewStats reviewStats;
 }
 
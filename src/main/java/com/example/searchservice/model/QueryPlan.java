@@ -0,0 +1,20 @@
+package com.example.searchservice.model;
+
+import java.util.List;
+
+/**
+ * Execution plan of an advanced search as returned by {@code /search/products/explain}. The first step reads an
+ * index, every further step filters the rows produced so far. Row counts are cumulative.
+ */
+public record QueryPlan(long catalogVersion, int catalogSize, List<Step> steps, int estimatedRows, int actualRows) {
+
+    public enum Access {
+        INDEX,
+        FILTER,
+        FULL_SCAN
+    }
+
+    public record Step(String predicate, String condition, Access access, double selectivity, int estimatedRows,
+                       int actualRows) {
+    }
+}
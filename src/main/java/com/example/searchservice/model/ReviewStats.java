@@ -0,0 +1,19 @@
+package com.example.searchservice.model;
+
+import java.util.List;
+
+public record ReviewStats(int count, long ratingSum, double average) {
+
+    public static final ReviewStats EMPTY = new ReviewStats(0, 0, 0.0);
+
+    public static ReviewStats of(List<Review> reviews) {
+        if (reviews == null || reviews.isEmpty()) {
+            return EMPTY;
+        }
+        long ratingSum = 0;
+        for (Review review : reviews) {
+            ratingSum += review.getRating();
+        }
+        return new ReviewStats(reviews.size(), ratingSum, (double) ratingSum / reviews.size());
+    }
+}
@@ -0,0 +1,7 @@
+package com.example.searchservice.model;
+
+public enum ReviewView {
+    FULL,
+    WITH_STATS,
+    STATS_ONLY
+}
@@ -0,0 +1,27 @@
+package com.example.searchservice.model;
+
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
+
+public record SearchOptions(ReviewView reviewView,
+                            @Min(1) @Max(MAX_LIMIT) Integer limit,
+                            SortField sort,
+                            SortDirection direction,
+                            String cursor) {
+
+    public static final int MAX_LIMIT = 10_000;
+    public static final SearchOptions DEFAULT = new SearchOptions(null, null, null, null, null);
+
+    public SearchOptions {
+        reviewView = reviewView == null ? ReviewView.FULL : reviewView;
+        direction = direction == null ? SortDirection.ASC : direction;
+    }
+
+    public static SearchOptions of(ReviewView reviewView) {
+        return new SearchOptions(reviewView, null, null, null, null);
+    }
+
+    public boolean isPaged() {
+        return limit != null || sort != null || cursor != null;
+    }
+}
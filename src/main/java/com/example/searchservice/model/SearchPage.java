@@ -0,0 +1,26 @@
+package com.example.searchservice.model;
+
+import reactor.core.publisher.Flux;
+
+import java.time.Duration;
+
+/**
+ * One page of search results. {@code nextCursor} is {@code null} when there are no further results and
+ * {@code staleness} is {@code null} unless the results come from catalog data that could not be refreshed.
+ * {@code entityTag} identifies the page content for conditional requests, or is {@code null} for results that are
+ * not served from a catalog snapshot.
+ */
+public record SearchPage(Flux<Product> products, String nextCursor, Duration staleness, String entityTag) {
+
+    public SearchPage(Flux<Product> products, String nextCursor) {
+        this(products, nextCursor, null, null);
+    }
+
+    public static SearchPage of(Flux<Product> products) {
+        return new SearchPage(products, null);
+    }
+
+    public SearchPage withStaleness(Duration staleness) {
+        return new SearchPage(products, nextCursor, staleness, entityTag);
+    }
+}
@@ -0,0 +1,6 @@
+package com.example.searchservice.model;
+
+public enum SortDirection {
+    ASC,
+    DESC
+}
@@ -0,0 +1,8 @@
+package com.example.searchservice.model;
+
+public enum SortField {
+    PRICE,
+    RATING,
+    NAME,
+    CREATED_AT
+}
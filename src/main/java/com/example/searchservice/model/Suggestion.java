@@ -0,0 +1,13 @@
+package com.example.searchservice.model;
+
+/**
+ * A completion returned by {@code /search/products/suggest}. {@code reviews} and {@code rating} summarize the reviews
+ * of every product with that name, or made by that manufacturer, and decide the order of the completions.
+ */
+public record Suggestion(String text, Kind kind, int reviews, double rating) {
+
+    public enum Kind {
+        PRODUCT,
+        MANUFACTURER
+    }
+}
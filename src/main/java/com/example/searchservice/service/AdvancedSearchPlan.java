@@ -0,0 +1,204 @@
+package com.example.searchservice.service;
+
+import com.example.searchservice.catalog.CatalogSnapshot;
+import com.example.searchservice.catalog.CategoryIndex;
+import com.example.searchservice.catalog.ManufacturerIndex;
+import com.example.searchservice.catalog.PriceIndex;
+import com.example.searchservice.catalog.PriceRange;
+import com.example.searchservice.catalog.RatingIndex;
+import com.example.searchservice.model.AdvancedSearchRequestBody;
+import com.example.searchservice.model.Category;
+import com.example.searchservice.model.QueryPlan;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PrimitiveIterator;
+import java.util.function.IntConsumer;
+import java.util.function.IntPredicate;
+import java.util.function.Supplier;
+import java.util.stream.IntStream;
+
+/**
+ * Cost-based plan for an advanced search. Every predicate has an index that can produce its matching ordinals in
+ * catalog order and a constant-time per-ordinal check. Selectivity is estimated from snapshot statistics: posting
+ * sizes for manufacturers and categories (assumed independent), an exact binary-search count for prices and rating
+ * buckets for reviews. The most selective predicate drives the scan through its index, the remaining ones are
+ * probed in order of increasing selectivity so that most rows are rejected by the first check.
+ */
+final class AdvancedSearchPlan {
+
+    private record Predicate(String name, String condition, double selectivity, int indexRows,
+                             Supplier<IntStream> index, IntPredicate test) {
+    }
+
+    private final CatalogSnapshot snapshot;
+    private final Predicate driver;
+    private final List<Predicate> filters;
+
+    private AdvancedSearchPlan(CatalogSnapshot snapshot, Predicate driver, List<Predicate> filters) {
+        this.snapshot = snapshot;
+        this.driver = driver;
+        this.filters = filters;
+    }
+
+    static AdvancedSearchPlan plan(CatalogSnapshot snapshot, AdvancedSearchRequestBody body) {
+        List<Predicate> predicates = new ArrayList<>(4);
+        if (body.manufacturerName() != null) {
+            predicates.add(manufacturer(snapshot, body.manufacturerName()));
+        }
+        PriceRange priceRange = PriceRange.of(body.minPrice(), body.maxPrice())
+                .intersect(PriceRange.of(null, body.price()));
+        if (priceRange.isBounded()) {
+            predicates.add(price(snapshot, priceRange));
+        }
+        if (body.categories() != null && !body.categories().isEmpty()) {
+            predicates.add(categories(snapshot, body.categories()));
+        }
+        if (body.reviewRate() != null) {
+            predicates.add(rating(snapshot, body.reviewRate()));
+        }
+        if (predicates.isEmpty()) {
+            return new AdvancedSearchPlan(snapshot,
+                    new Predicate("all", "*", 1.0, snapshot.size(), snapshot::ordinals, ordinal -> true), List.of());
+        }
+        predicates.sort(Comparator.comparingInt(Predicate::indexRows).thenComparingDouble(Predicate::selectivity));
+        List<Predicate> filters = new ArrayList<>(predicates.subList(1, predicates.size()));
+        filters.sort(Comparator.comparingDouble(Predicate::selectivity));
+        return new AdvancedSearchPlan(snapshot, predicates.get(0), filters);
+    }
+
+    IntStream ordinals() {
+        return ordinals(ordinal -> {
+        });
+    }
+
+    /**
+     * @param scanned called for every row read from the driving index, before the remaining predicates
+     */
+    IntStream ordinals(IntConsumer scanned) {
+        IntStream ordinals = driver.index().get().peek(scanned);
+        for (Predicate filter : filters) {
+            ordinals = ordinals.filter(filter.test());
+        }
+        return ordinals;
+    }
+
+    /**
+     * Rows the driving index reads to produce every match.
+     */
+    int drivingRows() {
+        return driver.indexRows();
+    }
+
+    /**
+     * Answers several plans of one snapshot in a single pass over the catalog, checking every predicate of every
+     * plan per product instead of reading each plan's driving index. Matches come out in catalog order, as from
+     * {@link #ordinals}.
+     *
+     * @param scanned called once for every product of the pass
+     */
+    static int[][] scanTogether(CatalogSnapshot snapshot, List<AdvancedSearchPlan> plans, IntConsumer scanned) {
+        IntPredicate[] tests = plans.stream().map(AdvancedSearchPlan::test).toArray(IntPredicate[]::new);
+        int[][] matches = new int[plans.size()][16];
+        int[] counts = new int[plans.size()];
+        for (PrimitiveIterator.OfInt ordinals = snapshot.ordinals().iterator(); ordinals.hasNext(); ) {
+            int ordinal = ordinals.nextInt();
+            scanned.accept(ordinal);
+            for (int plan = 0; plan < tests.length; plan++) {
+                if (tests[plan].test(ordinal)) {
+                    if (counts[plan] == matches[plan].length) {
+                        matches[plan] = Arrays.copyOf(matches[plan], counts[plan] * 2);
+                    }
+                    matches[plan][counts[plan]++] = ordinal;
+                }
+            }
+        }
+        for (int plan = 0; plan < matches.length; plan++) {
+            matches[plan] = Arrays.copyOf(matches[plan], counts[plan]);
+        }
+        return matches;
+    }
+
+    private IntPredicate test() {
+        IntPredicate test = driver.test();
+        for (Predicate filter : filters) {
+            test = test.and(filter.test());
+        }
+        return test;
+    }
+
+    /**
+     * Executes the plan step by step and reports estimated next to actual row counts.
+     */
+    QueryPlan explain() {
+        int size = snapshot.size();
+        List<QueryPlan.Step> steps = new ArrayList<>(filters.size() + 1);
+        int[] rows = driver.index().get().toArray();
+        double estimate = driver.indexRows();
+        QueryPlan.Access access = "all".equals(driver.name()) ? QueryPlan.Access.FULL_SCAN : QueryPlan.Access.INDEX;
+        steps.add(new QueryPlan.Step(driver.name(), driver.condition(), access, driver.selectivity(),
+                driver.indexRows(), rows.length));
+        for (Predicate filter : filters) {
+            rows = Arrays.stream(rows).filter(filter.test()).toArray();
+            estimate *= filter.selectivity();
+            steps.add(new QueryPlan.Step(filter.name(), filter.condition(), QueryPlan.Access.FILTER,
+                    filter.selectivity(), (int) Math.round(estimate), rows.length));
+        }
+        return new QueryPlan(snapshot.version(), size, steps, (int) Math.round(estimate), rows.length);
+    }
+
+    private static Predicate manufacturer(CatalogSnapshot snapshot, String name) {
+        ManufacturerIndex manufacturerIndex = snapshot.manufacturerIndex();
+        int id = manufacturerIndex.id(name);
+        int[] postings = id == ManufacturerIndex.UNKNOWN ? new int[0] : manufacturerIndex.postings(id);
+        return new Predicate("manufacturer", "= " + name, selectivity(postings.length, snapshot.size()),
+                postings.length, () -> Arrays.stream(postings),
+                ordinal -> manufacturerIndex.manufacturerId(ordinal) == id);
+    }
+
+    private static Predicate price(CatalogSnapshot snapshot, PriceRange priceRange) {
+        PriceIndex priceIndex = snapshot.priceIndex();
+        int count = priceIndex.count(priceRange);
+        return new Predicate("price", describe(priceRange), selectivity(count, snapshot.size()), count,
+                () -> Arrays.stream(priceIndex.range(priceRange)),
+                ordinal -> priceIndex.matches(ordinal, priceRange));
+    }
+
+    private static Predicate categories(CatalogSnapshot snapshot, List<Category> categories) {
+        CategoryIndex categoryIndex = snapshot.categoryIndex();
+        long mask = CategoryIndex.mask(categories);
+        double selectivity = 1.0;
+        for (Category category : categories.stream().distinct().toList()) {
+            selectivity *= selectivity(categoryIndex.count(category), snapshot.size());
+        }
+        return new Predicate("categories", "contains all " + categories, selectivity,
+                (int) Math.round(selectivity * snapshot.size()),
+                () -> categoryIndex.matchingAll(categories).stream(),
+                ordinal -> categoryIndex.containsAll(ordinal, mask));
+    }
+
+    private static Predicate rating(CatalogSnapshot snapshot, double minAverage) {
+        RatingIndex ratingIndex = snapshot.ratingIndex();
+        int estimate = ratingIndex.estimateAtLeast(minAverage);
+        return new Predicate("reviewRate", ">= " + minAverage, selectivity(estimate, snapshot.size()), estimate,
+                () -> Arrays.stream(ratingIndex.atLeast(minAverage)),
+                ordinal -> ratingIndex.average(ordinal) >= minAverage);
+    }
+
+    private static double selectivity(int rows, int size) {
+        return size == 0 ? 0.0 : (double) rows / size;
+    }
+
+    private static String describe(PriceRange range) {
+        String min = range.min() == Long.MIN_VALUE ? "" : ">= " + minorUnits(range.min());
+        String max = range.max() == Long.MAX_VALUE ? "" : "<= " + minorUnits(range.max());
+        return min.isEmpty() || max.isEmpty() ? min + max : min + " and " + max;
+    }
+
+    private static String minorUnits(long price) {
+        return BigDecimal.valueOf(price, PriceRange.SCALE).toPlainString();
+    }
+}
@@ -0,0 +1,34 @@
+package com.example.searchservice.service;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+@Component
+@ConfigurationProperties(prefix = "search.external")
+@Getter
+@Setter
+public class ExternalMergeConfig {
+
+    private List<ExternalSource> sources = List.of(ExternalSource.values());
+    private DedupPolicy dedup = DedupPolicy.FIRST_ARRIVAL;
+    private int maxDistinctProducts = 2_000_000;
+
+    /**
+     * Which copy of a product returned by several sources is kept.
+     */
+    public enum DedupPolicy {
+        /**
+         * The copy that arrives first, with all sources streamed concurrently.
+         */
+        FIRST_ARRIVAL,
+        /**
+         * The copy from the source listed first in {@code sources}. Sources are still fetched concurrently, but
+         * emitted in priority order.
+         */
+        SOURCE_PRIORITY
+    }
+}
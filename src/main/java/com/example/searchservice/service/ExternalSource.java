@@ -0,0 +1,11 @@
+package com.example.searchservice.service;
+
+/**
+ * Upstream feeds merged by {@code /search/products/external}.
+ */
+public enum ExternalSource {
+    PRODUCTS,
+    GAMES,
+    HARDWARE,
+    SOFTWARE_TOOLS
+}
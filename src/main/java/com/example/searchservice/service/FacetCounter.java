@@ -0,0 +1,105 @@
+package com.example.searchservice.service;
+
+import com.example.searchservice.catalog.CatalogSnapshot;
+import com.example.searchservice.catalog.CategoryIndex;
+import com.example.searchservice.catalog.ManufacturerIndex;
+import com.example.searchservice.catalog.PriceIndex;
+import com.example.searchservice.catalog.PriceRange;
+import com.example.searchservice.model.Category;
+import com.example.searchservice.model.Facets;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.IntConsumer;
+import java.util.stream.IntStream;
+
+/**
+ * Counts matching ordinals per category, manufacturer and price bucket straight from the snapshot indexes, so
+ * facets never materialize a product. Counting arrays are indexed by {@link Category#ordinal()}, manufacturer
+ * dictionary id and bucket number.
+ */
+final class FacetCounter implements IntConsumer {
+
+    private static final Category[] CATEGORIES = Category.values();
+
+    private final CatalogSnapshot snapshot;
+    private final CategoryIndex categoryIndex;
+    private final ManufacturerIndex manufacturerIndex;
+    private final PriceIndex priceIndex;
+    private final long[] boundaries;
+    private final int[] categoryCounts = new int[CATEGORIES.length];
+    private final int[] manufacturerCounts;
+    private final int[] priceCounts;
+    private int matches;
+
+    /**
+     * @param priceBoundaries bucket boundaries in any order; {@code n} boundaries that differ in minor units make
+     *                        {@code n + 1} buckets
+     */
+    FacetCounter(CatalogSnapshot snapshot, List<BigDecimal> priceBoundaries) {
+        this.snapshot = snapshot;
+        this.categoryIndex = snapshot.categoryIndex();
+        this.manufacturerIndex = snapshot.manufacturerIndex();
+        this.priceIndex = snapshot.priceIndex();
+        this.boundaries = priceBoundaries.stream()
+                .mapToLong(boundary -> PriceRange.toMinorUnits(boundary, RoundingMode.CEILING))
+                .sorted()
+                .distinct()
+                .toArray();
+        this.manufacturerCounts = new int[manufacturerIndex.size()];
+        this.priceCounts = new int[boundaries.length + 1];
+    }
+
+    @Override
+    public void accept(int ordinal) {
+        matches++;
+        for (long mask = categoryIndex.mask(ordinal); mask != 0; mask &= mask - 1) {
+            categoryCounts[Long.numberOfTrailingZeros(mask)]++;
+        }
+        int manufacturerId = manufacturerIndex.manufacturerId(ordinal);
+        if (manufacturerId != ManufacturerIndex.UNKNOWN) {
+            manufacturerCounts[manufacturerId]++;
+        }
+        if (priceIndex.hasPrice(ordinal)) {
+            int bucket = Arrays.binarySearch(boundaries, priceIndex.price(ordinal));
+            priceCounts[bucket >= 0 ? bucket + 1 : -bucket - 1]++;
+        }
+    }
+
+    int matches() {
+        return matches;
+    }
+
+    Facets facets(int maxManufacturers) {
+        Map<Category, Integer> categories = new LinkedHashMap<>();
+        IntStream.range(0, categoryCounts.length)
+                .filter(category -> categoryCounts[category] > 0)
+                .boxed()
+                .sorted(Comparator.comparingInt((Integer category) -> categoryCounts[category]).reversed())
+                .forEach(category -> categories.put(CATEGORIES[category], categoryCounts[category]));
+        List<Facets.ManufacturerCount> manufacturers = IntStream.range(0, manufacturerCounts.length)
+                .filter(id -> manufacturerCounts[id] > 0)
+                .boxed()
+                .sorted(Comparator.comparingInt((Integer id) -> manufacturerCounts[id]).reversed()
+                        .thenComparing(manufacturerIndex::name))
+                .limit(maxManufacturers)
+                .map(id -> new Facets.ManufacturerCount(manufacturerIndex.name(id), manufacturerCounts[id]))
+                .toList();
+        List<Facets.PriceBucket> prices = new ArrayList<>(priceCounts.length);
+        for (int bucket = 0; bucket < priceCounts.length; bucket++) {
+            prices.add(new Facets.PriceBucket(bucket == 0 ? null : price(boundaries[bucket - 1]),
+                    bucket == boundaries.length ? null : price(boundaries[bucket]), priceCounts[bucket]));
+        }
+        return new Facets(snapshot.version(), matches, categories, manufacturers, prices);
+    }
+
+    private static BigDecimal price(long minorUnits) {
+        return BigDecimal.valueOf(minorUnits, PriceRange.SCALE);
+    }
+}
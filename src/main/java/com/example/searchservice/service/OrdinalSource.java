@@ -0,0 +1,41 @@
+package com.example.searchservice.service;
+
+import com.example.searchservice.catalog.CatalogSnapshot;
+import com.example.searchservice.catalog.PriceIndex;
+import com.example.searchservice.catalog.PriceRange;
+import com.example.searchservice.model.Product;
+import com.example.searchservice.model.ReviewStats;
+
+import java.math.RoundingMode;
+import java.util.List;
+import java.util.UUID;
+import java.util.function.IntFunction;
+import java.util.function.IntToDoubleFunction;
+import java.util.function.IntToLongFunction;
+import java.util.function.ToIntFunction;
+
+/**
+ * Sort keys of a set of products addressed by ordinal, backed either by snapshot indexes or by a materialized list.
+ */
+record OrdinalSource(long version, IntFunction<Product> product, IntToLongFunction price,
+                     IntToDoubleFunction rating, ToIntFunction<UUID> ordinalOf) {
+
+    static OrdinalSource of(CatalogSnapshot snapshot) {
+        return new OrdinalSource(snapshot.version(), snapshot::product, snapshot.priceIndex()::price,
+                snapshot.ratingIndex()::average, snapshot::ordinal);
+    }
+
+    static OrdinalSource of(List<Product> products) {
+        long[] prices = new long[products.size()];
+        double[] ratings = new double[products.size()];
+        for (int ordinal = 0; ordinal < products.size(); ordinal++) {
+            Product product = products.get(ordinal);
+            prices[ordinal] = product.getPrice() == null
+                    ? PriceIndex.NO_PRICE
+                    : PriceRange.toMinorUnits(product.getPrice(), RoundingMode.HALF_UP);
+            ratings[ordinal] = ReviewStats.of(product.getReviews()).average();
+        }
+        return new OrdinalSource(0, products::get, ordinal -> prices[ordinal], ordinal -> ratings[ordinal],
+                id -> -1);
+    }
+}
@@ -0,0 +1,73 @@
+package com.example.searchservice.service;
+
+import com.example.searchservice.error.InvalidCursorException;
+import com.example.searchservice.model.SortDirection;
+import com.example.searchservice.model.SortField;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.UUID;
+
+/**
+ * Opaque continuation tokens handed out as {@code X-Next-Cursor}. Catalog-order pages resume after the last
+ * ordinal, sorted pages resume after the last (sort key, id) pair and ranked or live pages resume at an offset.
+ */
+sealed interface PageCursor {
+
+    String encode();
+
+    static PageCursor decode(String cursor) {
+        if (cursor == null) {
+            return null;
+        }
+        try {
+            String[] parts = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8).split("\\|", 5);
+            return switch (parts[0]) {
+                case "C" -> new CatalogCursor(Long.parseLong(parts[1]), Integer.parseInt(parts[2]), parseId(parts[3]));
+                case "S" -> new SortedCursor(SortField.valueOf(parts[1]), SortDirection.valueOf(parts[2]),
+                        parseId(parts[3]), parts[4]);
+                case "O" -> new OffsetCursor(Integer.parseInt(parts[1]));
+                default -> throw new InvalidCursorException("Invalid cursor");
+            };
+        } catch (IllegalArgumentException | ArrayIndexOutOfBoundsException e) {
+            throw new InvalidCursorException("Invalid cursor");
+        }
+    }
+
+    private static String encode(String... parts) {
+        return Base64.getUrlEncoder().withoutPadding()
+                .encodeToString(String.join("|", parts).getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static UUID parseId(String value) {
+        return value.isEmpty() ? null : UUID.fromString(value);
+    }
+
+    private static String formatId(UUID value) {
+        return value == null ? "" : value.toString();
+    }
+
+    record CatalogCursor(long version, int ordinal, UUID id) implements PageCursor {
+
+        @Override
+        public String encode() {
+            return PageCursor.encode("C", Long.toString(version), Integer.toString(ordinal), formatId(id));
+        }
+    }
+
+    record SortedCursor(SortField sort, SortDirection direction, UUID id, String key) implements PageCursor {
+
+        @Override
+        public String encode() {
+            return PageCursor.encode("S", sort.name(), direction.name(), formatId(id), key);
+        }
+    }
+
+    record OffsetCursor(int offset) implements PageCursor {
+
+        @Override
+        public String encode() {
+            return PageCursor.encode("O", Integer.toString(offset));
+        }
+    }
+}
@@ -0,0 +1,109 @@
+package com.example.searchservice.service;
+
+import com.example.searchservice.catalog.CategoryIndex;
+import com.example.searchservice.catalog.PriceRange;
+import com.example.searchservice.catalog.TextAnalyzer;
+import com.example.searchservice.model.AdvancedSearchRequestBody;
+import com.example.searchservice.model.Category;
+import com.example.searchservice.model.NameMatch;
+import com.example.searchservice.model.Product;
+import com.example.searchservice.model.ReviewStats;
+
+import java.math.RoundingMode;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.Set;
+import java.util.function.Predicate;
+
+/**
+ * Per-product tests of the search filters, used by the {@link ResultCache} to keep a page across a patch that
+ * touched none of the products its query could match. A test may accept products the query would not return, which
+ * only costs a cache entry, but never the other way around: products the indexes match are always accepted.
+ */
+final class ProductMatch {
+
+    private ProductMatch() {
+    }
+
+    static Predicate<Product> any() {
+        return product -> true;
+    }
+
+    static Predicate<Product> categories(Collection<Category> categories) {
+        if (categories == null || categories.isEmpty()) {
+            return any();
+        }
+        long required = CategoryIndex.mask(categories);
+        return product -> product.getCategories() != null
+                && (CategoryIndex.mask(product.getCategories()) & required) == required;
+    }
+
+    static Predicate<Product> price(PriceRange range) {
+        return product -> product.getPrice() != null
+                && range.contains(PriceRange.toMinorUnits(product.getPrice(), RoundingMode.HALF_UP));
+    }
+
+    /**
+     * Matches names ignoring case even for a case-sensitive prefix, which the manufacturer index also folds.
+     */
+    static Predicate<Product> manufacturer(String name, NameMatch match) {
+        NameMatch folded = new NameMatch(true, match.prefix(), match.fuzzy());
+        return product -> product.getManufacturer() != null && product.getManufacturer().getName() != null
+                && folded.matches(name, product.getManufacturer().getName());
+    }
+
+    static Predicate<Product> reviews(double minAverage) {
+        return product -> ReviewStats.of(product.getReviews()).average() >= minAverage;
+    }
+
+    /**
+     * Accepts products sharing a term with the query or, for a fuzzy query, holding a term its fuzzy expansion could
+     * reach. Phrases and ranking are not checked: a product without any query term can neither match nor move the
+     * scores of the products that do.
+     */
+    static Predicate<Product> text(String query, boolean fuzzy) {
+        Set<String> terms = new LinkedHashSet<>();
+        for (String token : TextAnalyzer.analyze(query.replace('"', ' '))) {
+            if (token != null) {
+                terms.add(token);
+            }
+        }
+        return product -> {
+            for (String token : TextAnalyzer.analyze(product.getName(), product.getDescription())) {
+                if (token != null && matchesTerm(terms, token, fuzzy)) {
+                    return true;
+                }
+            }
+            return false;
+        };
+    }
+
+    static Predicate<Product> advanced(AdvancedSearchRequestBody body, PriceRange range) {
+        Predicate<Product> matches = categories(body.categories());
+        if (range.isBounded()) {
+            matches = matches.and(price(range));
+        }
+        if (body.manufacturerName() != null) {
+            matches = matches.and(manufacturer(body.manufacturerName(), NameMatch.EXACT));
+        }
+        if (body.reviewRate() != null) {
+            matches = matches.and(reviews(body.reviewRate()));
+        }
+        return matches;
+    }
+
+    private static boolean matchesTerm(Set<String> terms, String token, boolean fuzzy) {
+        if (terms.contains(token)) {
+            return true;
+        }
+        if (!fuzzy) {
+            return false;
+        }
+        for (String term : terms) {
+            if (NameMatch.withinEdits(term, token, NameMatch.maxEdits(term.length()))) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,76 @@
+package com.example.searchservice.service;
+
+import com.example.searchservice.model.SortDirection;
+import com.example.searchservice.model.SortField;
+
+import java.time.LocalDateTime;
+import java.util.Comparator;
+import java.util.Objects;
+import java.util.UUID;
+
+/**
+ * Total order over ordinals for one sort field and direction, with the product id as tie-breaker so keyset cursors
+ * are stable across pages.
+ */
+final class ProductOrder {
+
+    private static final Comparator<String> NAMES = Comparator.nullsFirst(Comparator.naturalOrder());
+    private static final Comparator<LocalDateTime> DATES = Comparator.nullsFirst(Comparator.naturalOrder());
+    private static final Comparator<UUID> IDS = Comparator.nullsFirst(Comparator.naturalOrder());
+
+    private final SortField sort;
+    private final SortDirection direction;
+    private final OrdinalSource source;
+
+    ProductOrder(SortField sort, SortDirection direction, OrdinalSource source) {
+        this.sort = sort;
+        this.direction = direction;
+        this.source = source;
+    }
+
+    int compare(int first, int second) {
+        int byKey = switch (sort) {
+            case PRICE -> Long.compare(source.price().applyAsLong(first), source.price().applyAsLong(second));
+            case RATING -> Double.compare(source.rating().applyAsDouble(first), source.rating().applyAsDouble(second));
+            case NAME -> NAMES.compare(source.product().apply(first).getName(), source.product().apply(second).getName());
+            case CREATED_AT -> DATES.compare(source.product().apply(first).getCreatedAt(),
+                    source.product().apply(second).getCreatedAt());
+        };
+        if (byKey != 0) {
+            return direction == SortDirection.DESC ? -byKey : byKey;
+        }
+        return IDS.compare(source.product().apply(first).getId(), source.product().apply(second).getId());
+    }
+
+    boolean matches(PageCursor.SortedCursor cursor) {
+        return cursor.sort() == sort && cursor.direction() == direction;
+    }
+
+    boolean isAfter(int ordinal, PageCursor.SortedCursor cursor) {
+        int byKey = switch (sort) {
+            case PRICE -> Long.compare(source.price().applyAsLong(ordinal), Long.parseLong(cursor.key()));
+            case RATING -> Double.compare(source.rating().applyAsDouble(ordinal), Double.parseDouble(cursor.key()));
+            case NAME -> NAMES.compare(source.product().apply(ordinal).getName(), nullable(cursor.key()));
+            case CREATED_AT -> DATES.compare(source.product().apply(ordinal).getCreatedAt(),
+                    nullable(cursor.key()) == null ? null : LocalDateTime.parse(cursor.key()));
+        };
+        if (byKey != 0) {
+            return (direction == SortDirection.DESC ? -byKey : byKey) > 0;
+        }
+        return IDS.compare(source.product().apply(ordinal).getId(), cursor.id()) > 0;
+    }
+
+    PageCursor.SortedCursor cursorAfter(int ordinal) {
+        String key = switch (sort) {
+            case PRICE -> Long.toString(source.price().applyAsLong(ordinal));
+            case RATING -> Double.toString(source.rating().applyAsDouble(ordinal));
+            case NAME -> Objects.toString(source.product().apply(ordinal).getName(), "\0");
+            case CREATED_AT -> Objects.toString(source.product().apply(ordinal).getCreatedAt(), "\0");
+        };
+        return new PageCursor.SortedCursor(sort, direction, source.product().apply(ordinal).getId(), key);
+    }
+
+    private static String nullable(String key) {
+        return "\0".equals(key) ? null : key;
+    }
+}
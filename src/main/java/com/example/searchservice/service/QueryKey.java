@@ -0,0 +1,88 @@
+package com.example.searchservice.service;
+
+import com.example.searchservice.catalog.PriceRange;
+import com.example.searchservice.model.AdvancedSearchRequestBody;
+import com.example.searchservice.model.Category;
+import com.example.searchservice.model.NameMatch;
+import com.example.searchservice.model.SearchOptions;
+
+import java.util.Collection;
+import java.util.Locale;
+import java.util.Objects;
+import java.util.stream.Collectors;
+
+/**
+ * Canonical string forms of search queries for the {@link ResultCache}. Queries that always select the same page
+ * get the same key: category lists are sorted and deduplicated, prices become the fixed-point range they filter
+ * on, and case-insensitive names and text queries are lower-cased. Free text is length-prefixed so it can never
+ * run into the next part of a key.
+ */
+final class QueryKey {
+
+    private QueryKey() {
+    }
+
+    static String all(SearchOptions options) {
+        return "all" + paging(options);
+    }
+
+    static String categories(Collection<Category> categories, SearchOptions options) {
+        return "categories " + categories(categories) + paging(options);
+    }
+
+    static String price(PriceRange range, SearchOptions options) {
+        return "price " + price(range) + paging(options);
+    }
+
+    static String manufacturer(String manufacturer, NameMatch match, SearchOptions options) {
+        return "manufacturer " + name(manufacturer, match) + paging(options);
+    }
+
+    static String reviews(double avgReview, SearchOptions options) {
+        return "reviews " + avgReview + paging(options);
+    }
+
+    static String text(String query, boolean fuzzy, int offset, int limit) {
+        return "text " + (fuzzy ? "f" : "") + text(query.strip().toLowerCase(Locale.ROOT)) + " offset=" + offset
+                + " limit=" + limit;
+    }
+
+    static String advanced(AdvancedSearchRequestBody body, PriceRange range, SearchOptions options) {
+        String manufacturer = body.manufacturerName() == null ? "*" : text(body.manufacturerName());
+        String categories = body.categories() == null ? "" : categories(body.categories());
+        return "advanced " + manufacturer + " " + price(range) + " " + categories + " "
+                + Objects.requireNonNullElse(body.reviewRate(), "*") + paging(options);
+    }
+
+    private static String categories(Collection<Category> categories) {
+        return categories.stream()
+                .distinct()
+                .sorted()
+                .map(Category::name)
+                .collect(Collectors.joining(","));
+    }
+
+    private static String price(PriceRange range) {
+        String min = range.min() == Long.MIN_VALUE ? "*" : Long.toString(range.min());
+        String max = range.max() == Long.MAX_VALUE ? "*" : Long.toString(range.max());
+        return min + ".." + max;
+    }
+
+    private static String name(String name, NameMatch match) {
+        boolean ignoreCase = match.ignoreCase() || match.fuzzy();
+        String normalized = ignoreCase ? name.toLowerCase(Locale.ROOT) : name;
+        return (ignoreCase ? "i" : "") + (match.prefix() ? "p" : "") + (match.fuzzy() ? "f" : "") + text(normalized);
+    }
+
+    private static String text(String value) {
+        return value.length() + ":" + value;
+    }
+
+    private static String paging(SearchOptions options) {
+        if (!options.isPaged()) {
+            return "";
+        }
+        return " limit=" + options.limit() + " sort=" + options.sort() + " " + options.direction()
+                + " cursor=" + options.cursor();
+    }
+}
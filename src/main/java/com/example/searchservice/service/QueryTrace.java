@@ -0,0 +1,66 @@
+package com.example.searchservice.service;
+
+import com.example.searchservice.model.Product;
+import reactor.core.publisher.Flux;
+
+import java.util.function.Supplier;
+
+/**
+ * Accumulates the phase timings and row counts of a single search and records them once its products have been
+ * emitted. Reactive signals of one search are serialized, so plain fields are enough.
+ */
+final class QueryTrace {
+
+    private final SearchMetrics metrics;
+    private final String query;
+    private long scanned;
+    private long returned;
+    private long filterNanos;
+    private long mapNanos;
+
+    QueryTrace(SearchMetrics metrics, String query) {
+        this.metrics = metrics;
+        this.query = query;
+    }
+
+    void scanned() {
+        scanned++;
+    }
+
+    void filtered(long startNanos) {
+        filterNanos += System.nanoTime() - startNanos;
+    }
+
+    Product map(Supplier<Product> mapping) {
+        long start = System.nanoTime();
+        Product product = mapping.get();
+        mapNanos += System.nanoTime() - start;
+        return product;
+    }
+
+    /**
+     * Records the trace as the search terminates or is cancelled, before the subscriber sees it end, unlike
+     * {@code doFinally}, which may run after the subscriber has already moved on.
+     */
+    Flux<Product> emit(Flux<Product> products) {
+        return products
+                .doOnNext(product -> returned++)
+                .doOnComplete(this::record)
+                .doOnError(e -> record())
+                .doOnCancel(this::record);
+    }
+
+    /**
+     * Completes a search that counts its matches instead of emitting them.
+     */
+    void counted(long matches) {
+        returned = matches;
+        record();
+    }
+
+    private void record() {
+        metrics.recordPhase(query, "filter", filterNanos);
+        metrics.recordPhase(query, "map", mapNanos);
+        metrics.recordRows(query, scanned, returned);
+    }
+}
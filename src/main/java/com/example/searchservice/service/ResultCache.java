@@ -0,0 +1,251 @@
+package com.example.searchservice.service;
+
+import com.example.searchservice.catalog.CatalogSnapshot;
+import com.example.searchservice.model.Product;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayDeque;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+/**
+ * Approximately least recently used cache of selected result pages, keyed by the canonical form of a query. A page
+ * is only the ordinals and next cursor of a snapshot, so entries are small and products are still built per
+ * response.
+ * <p>
+ * Lookups take no lock: a hit only marks its entry as referenced. Stores append to a CLOCK queue, and while the
+ * cache is over a bound the queue head is evicted unless it was referenced since it last reached the head, in which
+ * case it gets a second chance at the tail. Stores follow a full selection, so the short lock they take is not on
+ * the hot path of repeated queries.
+ * <p>
+ * The cache is bounded both by entry count and by an estimate of the memory its entries hold. Entries belong to
+ * one catalog version, and the first lookup against a newer snapshot starts an empty generation. When that snapshot
+ * was patched from the cached version, a page of the older generation is carried over on its first lookup, unless
+ * its query may match a product the patch touched (see {@link ProductMatch}); otherwise, and after a full build,
+ * the older pages are dropped. The older generation is released with the next version, so the cache may briefly
+ * hold up to twice its bounds. {@code search.cache.requests} counts hits and misses, {@code search.cache.evictions}
+ * counts entries dropped by either bound or by a catalog change, and {@code search.cache.weight} reports the
+ * estimated memory held by the current generation.
+ */
+@Component
+public class ResultCache {
+
+    // object headers, the map entry and the page record around the arrays
+    private static final int ENTRY_OVERHEAD_BYTES = 128;
+
+    private final ResultCacheConfig config;
+    private final AtomicReference<Generation> generation = new AtomicReference<>(new Generation(-1, null, null));
+    private final Counter hits;
+    private final Counter misses;
+    private final Counter sizeEvictions;
+    private final Counter weightEvictions;
+    private final Counter invalidations;
+
+    public ResultCache(ResultCacheConfig config, MeterRegistry meterRegistry) {
+        this.config = config;
+        this.hits = requests(meterRegistry, "hit");
+        this.misses = requests(meterRegistry, "miss");
+        this.sizeEvictions = evictions(meterRegistry, "size");
+        this.weightEvictions = evictions(meterRegistry, "weight");
+        this.invalidations = evictions(meterRegistry, "catalog-change");
+        Gauge.builder("search.cache.size", this, cache -> cache.size())
+                .description("Result pages held by the search result cache")
+                .register(meterRegistry);
+        Gauge.builder("search.cache.weight", this, cache -> cache.weight())
+                .description("Estimated memory held by the search result cache")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Returns the cached page of the query for the given snapshot, selecting and caching it on a miss. Concurrent
+     * misses of one query may both compute it.
+     *
+     * @param matches accepts every product the query could return
+     */
+    ResultPager.Page get(CatalogSnapshot snapshot, String key, Predicate<Product> matches,
+                         Supplier<ResultPager.Page> select) {
+        ResultPager.Page page = lookup(snapshot, key);
+        if (page == null) {
+            page = select.get();
+            store(snapshot, key, matches, page);
+        }
+        return page;
+    }
+
+    /**
+     * Returns the cached page of the query for the given snapshot, or {@code null} on a miss, for callers that
+     * select the pages of several queries together and {@link #store} them afterwards.
+     */
+    ResultPager.Page lookup(CatalogSnapshot snapshot, String key) {
+        if (!config.isEnabled()) {
+            return null;
+        }
+        Generation current = generationOf(snapshot);
+        // a search still running against an older snapshot must not see pages of the newer one
+        Entry entry = current.version == snapshot.version() ? current.entries.get(key) : null;
+        if (entry == null && current.version == snapshot.version()) {
+            entry = carryOver(current, key);
+        }
+        if (entry == null) {
+            misses.increment();
+            return null;
+        }
+        if (!entry.referenced) {
+            entry.referenced = true;
+        }
+        hits.increment();
+        return entry.page;
+    }
+
+    void store(CatalogSnapshot snapshot, String key, Predicate<Product> matches, ResultPager.Page page) {
+        if (!config.isEnabled()) {
+            return;
+        }
+        Entry entry = new Entry(key, page, matches, weigh(key, page));
+        if (entry.weight > config.getMaxWeight().toBytes()) {
+            return;
+        }
+        Generation current = generationOf(snapshot);
+        if (current.version != snapshot.version()) {
+            return;
+        }
+        add(current, entry);
+    }
+
+    int size() {
+        return generation.get().entries.size();
+    }
+
+    long weight() {
+        return generation.get().weight;
+    }
+
+    private Generation generationOf(CatalogSnapshot snapshot) {
+        Generation current = generation.get();
+        while (snapshot.version() > current.version) {
+            CatalogSnapshot.Delta delta = snapshot.delta();
+            boolean patched = delta != null && delta.fromVersion() == current.version;
+            Generation next = new Generation(snapshot.version(), patched ? current : null, patched ? delta : null);
+            if (generation.compareAndSet(current, next)) {
+                Generation older = current.previous;
+                current.previous = null;
+                invalidations.increment((patched ? 0 : current.entries.size())
+                        + (older == null ? 0 : older.entries.size()));
+                return next;
+            }
+            current = generation.get();
+        }
+        return current;
+    }
+
+    /**
+     * Moves the page of the query from the previous generation into the current one if the patch between them
+     * touched no product the query could match. Either way the older page is taken, so it is checked only once.
+     */
+    private Entry carryOver(Generation current, String key) {
+        Generation previous = current.previous;
+        Entry entry = previous == null ? null : previous.entries.remove(key);
+        if (entry == null) {
+            return null;
+        }
+        for (Product product : current.delta.products()) {
+            if (entry.matches.test(product)) {
+                invalidations.increment();
+                return null;
+            }
+        }
+        Entry carried = new Entry(key, entry.page, entry.matches, entry.weight);
+        add(current, carried);
+        return carried;
+    }
+
+    private void add(Generation current, Entry entry) {
+        synchronized (current) {
+            Entry previous = current.entries.put(entry.key, entry);
+            current.weight += entry.weight - (previous == null ? 0 : previous.weight);
+            current.clock.addLast(entry);
+            evict(current);
+        }
+    }
+
+    private void evict(Generation current) {
+        long maxWeight = config.getMaxWeight().toBytes();
+        while (current.entries.size() > config.getMaxEntries() || current.weight > maxWeight) {
+            Entry head = current.clock.pollFirst();
+            if (current.entries.get(head.key) != head) {
+                // replaced by a later store of the same query
+                continue;
+            }
+            if (head.referenced) {
+                head.referenced = false;
+                current.clock.addLast(head);
+                continue;
+            }
+            (current.entries.size() > config.getMaxEntries() ? sizeEvictions : weightEvictions).increment();
+            current.entries.remove(head.key);
+            current.weight -= head.weight;
+        }
+    }
+
+    private static long weigh(String key, ResultPager.Page page) {
+        long cursor = page.nextCursor() == null ? 0 : page.nextCursor().length();
+        return ENTRY_OVERHEAD_BYTES + 2L * (key.length() + cursor) + (long) Integer.BYTES * page.ordinals().length;
+    }
+
+    private static Counter requests(MeterRegistry meterRegistry, String result) {
+        return Counter.builder("search.cache.requests")
+                .description("Search result cache lookups")
+                .tag("result", result)
+                .register(meterRegistry);
+    }
+
+    private static Counter evictions(MeterRegistry meterRegistry, String cause) {
+        return Counter.builder("search.cache.evictions")
+                .description("Result pages dropped from the search result cache")
+                .tag("cause", cause)
+                .register(meterRegistry);
+    }
+
+    /**
+     * Pages of one catalog version, and the generation of the version it was patched from, if any. The map is read
+     * without locking; the clock queue and the weight are guarded by the generation's monitor.
+     */
+    private static final class Generation {
+
+        private final long version;
+        private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+        private final ArrayDeque<Entry> clock = new ArrayDeque<>();
+        private final CatalogSnapshot.Delta delta;
+        private volatile Generation previous;
+        private volatile long weight;
+
+        private Generation(long version, Generation previous, CatalogSnapshot.Delta delta) {
+            this.version = version;
+            this.previous = previous;
+            this.delta = delta;
+        }
+    }
+
+    private static final class Entry {
+
+        private final String key;
+        private final ResultPager.Page page;
+        private final Predicate<Product> matches;
+        private final long weight;
+        private volatile boolean referenced;
+
+        private Entry(String key, ResultPager.Page page, Predicate<Product> matches, long weight) {
+            this.key = key;
+            this.page = page;
+            this.matches = matches;
+            this.weight = weight;
+        }
+    }
+}
@@ -0,0 +1,18 @@
+package com.example.searchservice.service;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+@Component
+@ConfigurationProperties(prefix = "search.cache")
+@Getter
+@Setter
+public class ResultCacheConfig {
+
+    private boolean enabled = true;
+    private int maxEntries = 10_000;
+    private DataSize maxWeight = DataSize.ofMegabytes(64);
+}
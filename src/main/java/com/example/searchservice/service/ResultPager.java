@@ -0,0 +1,103 @@
+package com.example.searchservice.service;
+
+import com.example.searchservice.error.InvalidCursorException;
+import com.example.searchservice.model.SearchOptions;
+
+import java.util.Arrays;
+import java.util.stream.IntStream;
+
+/**
+ * Cuts one page out of a stream of matching ordinals.
+ * <ul>
+ *     <li>Unsorted pages keep catalog order and stop pulling ordinals once {@code limit + 1} have been seen.</li>
+ *     <li>Sorted pages keep the best {@code limit + 1} ordinals in a bounded heap instead of sorting every match.</li>
+ *     <li>Ranked pages (text search) are already ordered by score and are sliced by offset.</li>
+ * </ul>
+ */
+final class ResultPager {
+
+    record Page(int[] ordinals, String nextCursor) {
+    }
+
+    private ResultPager() {
+    }
+
+    /**
+     * @param ordinals matching ordinals in ascending ordinal order
+     */
+    static Page page(final OrdinalSource source, final IntStream ordinals, final SearchOptions options) {
+        PageCursor cursor = PageCursor.decode(options.cursor());
+        return options.sort() == null
+                ? unsorted(source, ordinals, options.limit(), cursor)
+                : sorted(source, ordinals, options, cursor);
+    }
+
+    static Page ranked(final int[] ranked, final int offset, final Integer limit) {
+        int from = Math.min(offset, ranked.length);
+        int to = limit == null ? ranked.length : (int) Math.min(ranked.length, (long) from + limit);
+        String next = to < ranked.length ? new PageCursor.OffsetCursor(to).encode() : null;
+        return new Page(Arrays.copyOfRange(ranked, from, to), next);
+    }
+
+    static int offset(final String cursor) {
+        PageCursor decoded = PageCursor.decode(cursor);
+        if (decoded == null) {
+            return 0;
+        }
+        if (decoded instanceof PageCursor.OffsetCursor offsetCursor && offsetCursor.offset() >= 0) {
+            return offsetCursor.offset();
+        }
+        throw new InvalidCursorException("Cursor does not belong to this kind of search");
+    }
+
+    private static Page unsorted(final OrdinalSource source, final IntStream ordinals, final Integer limit,
+                                 final PageCursor cursor) {
+        int after = resumeAfter(source, cursor);
+        IntStream remaining = ordinals.filter(ordinal -> ordinal > after);
+        if (limit == null) {
+            return new Page(remaining.toArray(), null);
+        }
+        int[] page = remaining.limit(limit + 1L).toArray();
+        if (page.length <= limit) {
+            return new Page(page, null);
+        }
+        int last = page[limit - 1];
+        String next = new PageCursor.CatalogCursor(source.version(), last, source.product().apply(last).getId()).encode();
+        return new Page(Arrays.copyOf(page, limit), next);
+    }
+
+    private static int resumeAfter(final OrdinalSource source, final PageCursor cursor) {
+        if (cursor == null) {
+            return -1;
+        }
+        if (!(cursor instanceof PageCursor.CatalogCursor catalogCursor)) {
+            throw new InvalidCursorException("Cursor does not belong to an unsorted search");
+        }
+        if (catalogCursor.version() == source.version() || catalogCursor.id() == null) {
+            return catalogCursor.ordinal();
+        }
+        // the catalog was refreshed since the cursor was issued, so resume after the same product if it still exists
+        int ordinal = source.ordinalOf().applyAsInt(catalogCursor.id());
+        return ordinal >= 0 ? ordinal : catalogCursor.ordinal();
+    }
+
+    private static Page sorted(final OrdinalSource source, final IntStream ordinals, final SearchOptions options,
+                               final PageCursor cursor) {
+        ProductOrder order = new ProductOrder(options.sort(), options.direction(), source);
+        IntStream remaining = ordinals;
+        if (cursor != null) {
+            if (!(cursor instanceof PageCursor.SortedCursor sortedCursor) || !order.matches(sortedCursor)) {
+                throw new InvalidCursorException("Cursor does not belong to this sort");
+            }
+            remaining = ordinals.filter(ordinal -> order.isAfter(ordinal, sortedCursor));
+        }
+        Integer limit = options.limit();
+        TopK topK = new TopK(order, limit == null ? Integer.MAX_VALUE : limit + 1);
+        remaining.forEach(topK::offer);
+        int[] page = topK.sorted();
+        if (limit == null || page.length <= limit) {
+            return new Page(page, null);
+        }
+        return new Page(Arrays.copyOf(page, limit), order.cursorAfter(page[limit - 1]).encode());
+    }
+}
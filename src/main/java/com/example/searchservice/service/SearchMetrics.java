@@ -0,0 +1,66 @@
+package com.example.searchservice.service;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-query-type search metrics. {@code search.phase} times selecting the matching ordinals ({@code filter}) and
+ * materializing the returned products ({@code map}); rows scanned versus returned give the selectivity of a query.
+ * Upstream transfer and decoding are measured by the shop client.
+ */
+@Component
+public class SearchMetrics {
+
+    private final MeterRegistry meterRegistry;
+
+    public SearchMetrics(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    QueryTrace trace(String query) {
+        return new QueryTrace(this, query);
+    }
+
+    void recordPhase(String query, String phase, long nanos) {
+        Timer.builder("search.phase")
+                .description("Time spent per search phase")
+                .tag("query", query)
+                .tag("phase", phase)
+                .publishPercentileHistogram()
+                .register(meterRegistry)
+                .record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    void recordRows(String query, long scanned, long returned) {
+        rows("search.rows.scanned", "Candidate rows examined by a search", query).record(scanned);
+        rows("search.rows.returned", "Products returned by a search", query).record(returned);
+    }
+
+    /**
+     * Records the memory held by the id set of an external merge, and whether it hit its bound and let duplicates
+     * through.
+     */
+    void recordDedup(UuidSet seen) {
+        DistributionSummary.builder("search.dedup.memory")
+                .description("Memory used by the product id set of an external merge")
+                .baseUnit("bytes")
+                .publishPercentileHistogram()
+                .register(meterRegistry)
+                .record(seen.footprintBytes());
+        if (seen.overflowed()) {
+            meterRegistry.counter("search.dedup.overflow").increment();
+        }
+    }
+
+    private DistributionSummary rows(String name, String description, String query) {
+        return DistributionSummary.builder(name)
+                .description(description)
+                .tag("query", query)
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+    }
+}
@@ -1,96 +1,445 @@
 package com.example.searchservice.service;
 
+import com.example.searchservice.catalog.CatalogSnapshot;
+import com.example.searchservice.catalog.ManufacturerIndex;
+import com.example.searchservice.catalog.PriceRange;
+import com.example.searchservice.catalog.ProductCatalog;
+import com.example.searchservice.catalog.RatingIndex;
+import com.example.searchservice.catalog.TextIndex;
 import com.example.searchservice.client.ShopMockServiceClient;
-import com.example.searchservice.mapper.ProductAdapter;
 import com.example.searchservice.model.AdvancedSearchRequestBody;
+import com.example.searchservice.model.BatchSearchRequest;
+import com.example.searchservice.model.BatchSearchResult;
 import com.example.searchservice.model.Category;
+import com.example.searchservice.model.Facets;
+import com.example.searchservice.model.NameMatch;
 import com.example.searchservice.model.Product;
-import com.example.searchservice.model.Review;
+import com.example.searchservice.model.QueryPlan;
+import com.example.searchservice.model.ReviewStats;
+import com.example.searchservice.model.ReviewView;
+import com.example.searchservice.model.SearchOptions;
+import com.example.searchservice.model.SearchPage;
+import com.example.searchservice.model.Suggestion;
+import io.github.resilience4j.circuitbreaker.CallNotPermittedException;
 import lombok.AllArgsConstructor;
 import org.springframework.stereotype.Service;
 import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.SignalType;
 
 import java.math.BigDecimal;
-import java.util.HashSet;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.PrimitiveIterator;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+import java.util.stream.IntStream;
 
 @Service
 @AllArgsConstructor
 public class SearchService {
 
+    public static final int DEFAULT_TEXT_LIMIT = 20;
+
+    private final ProductCatalog productCatalog;
     private final ShopMockServiceClient shopMockServiceClient;
-    private final ProductAdapter productAdapter;
+    private final SearchMetrics searchMetrics;
+    private final ExternalMergeConfig externalMergeConfig;
+    private final ResultCache resultCache;
+    private final AtomicInteger lastExternalDistinct = new AtomicInteger();
+
+    /**
+     * Merges the live upstream feeds, keeping one copy per product id as chosen by the configured
+     * {@link ExternalMergeConfig.DedupPolicy}. While the circuit to shop-mock-service is not closed, the last loaded
+     * catalog snapshot is served instead and marked with its age.
+     */
+    public Mono<SearchPage> getAllProductsWithExternalOnes(final SearchOptions options) {
+        if (!shopMockServiceClient.isCircuitClosed()) {
+            return staleCatalog(options);
+        }
+        QueryTrace trace = searchMetrics.trace("external");
+        List<Flux<Product>> feeds = externalMergeConfig.getSources().stream().map(this::feed).toList();
+        Flux<Product> merged = externalMergeConfig.getDedup() == ExternalMergeConfig.DedupPolicy.SOURCE_PRIORITY
+                ? Flux.mergeSequential(feeds)
+                : Flux.merge(feeds);
+        Flux<Product> products = Flux.defer(() -> {
+            // merges of the same feeds are about the same size, so the last one sizes the id set
+            UuidSet seen = new UuidSet(lastExternalDistinct.get(), externalMergeConfig.getMaxDistinctProducts());
+            return merged
+                    .doOnNext(product -> trace.scanned())
+                    .filter(product -> {
+                        long start = System.nanoTime();
+                        boolean first = product.getId() == null || seen.add(product.getId());
+                        trace.filtered(start);
+                        return first;
+                    })
+                    .doFinally(signal -> {
+                        if (signal == SignalType.ON_COMPLETE) {
+                            lastExternalDistinct.set(seen.size());
+                        }
+                        searchMetrics.recordDedup(seen);
+                    })
+                    .map(product -> trace.map(() -> withReviewView(product, options.reviewView())));
+        });
+        if (!options.isPaged()) {
+            return Mono.just(SearchPage.of(trace.emit(products)));
+        }
+        if (options.sort() == null) {
+            // the merge order is only as stable as the upstream, so live pages resume by offset
+            int offset = ResultPager.offset(options.cursor());
+            Flux<Product> window = offset > 0 ? products.skip(offset) : products;
+            if (options.limit() != null) {
+                // taking one past the limit cancels the upstream calls instead of decoding the rest of them
+                window = window.take(options.limit() + 1L);
+            }
+            return window.collectList()
+                    .map(page -> {
+                        Integer limit = options.limit();
+                        boolean hasMore = limit != null && page.size() > limit;
+                        List<Product> slice = hasMore ? page.subList(0, limit) : page;
+                        String next = hasMore ? new PageCursor.OffsetCursor(offset + limit).encode() : null;
+                        return new SearchPage(trace.emit(Flux.fromIterable(slice)), next);
+                    })
+                    .onErrorResume(CallNotPermittedException.class, e -> staleCatalog(options));
+        }
+        return products.collectList()
+                .map(all -> {
+                    long start = System.nanoTime();
+                    ResultPager.Page page = ResultPager.page(OrdinalSource.of(all), IntStream.range(0, all.size()), options);
+                    trace.filtered(start);
+                    return new SearchPage(trace.emit(Flux.fromStream(() -> Arrays.stream(page.ordinals()).mapToObj(all::get))),
+                            page.nextCursor());
+                })
+                .onErrorResume(CallNotPermittedException.class, e -> staleCatalog(options));
+    }
+
+    public Mono<SearchPage> getAllProducts(final SearchOptions options) {
+        return indexedPage("all", QueryKey.all(options), ProductMatch.any(), options, CatalogSnapshot::ordinals);
+    }
+
+    public Mono<SearchPage> getProductsByCategory(final List<Category> categories, final SearchOptions options) {
+        return indexedPage("category", QueryKey.categories(categories, options), ProductMatch.categories(categories),
+                options, snapshot -> snapshot.categoryIndex().matchingAll(categories).stream());
+    }
+
+    public Mono<SearchPage> getProductsByPrice(final BigDecimal price, final SearchOptions options) {
+        return getProductsByPriceRange(null, price, options);
+    }
+
+    public Mono<SearchPage> getProductsByPriceRange(final BigDecimal minPrice, final BigDecimal maxPrice,
+                                                    final SearchOptions options) {
+        PriceRange priceRange = PriceRange.of(minPrice, maxPrice);
+        return indexedPage("price", QueryKey.price(priceRange, options), ProductMatch.price(priceRange), options,
+                snapshot -> Arrays.stream(snapshot.priceIndex().range(priceRange)));
+    }
+
+    public Mono<SearchPage> getProductsByManufacturer(final String manufacturer, final NameMatch match,
+                                                      final SearchOptions options) {
+        return indexedPage("manufacturer", QueryKey.manufacturer(manufacturer, match, options),
+                ProductMatch.manufacturer(manufacturer, match), options, snapshot -> {
+            ManufacturerIndex manufacturerIndex = snapshot.manufacturerIndex();
+            int[] ids = manufacturerIndex.ids(manufacturer, match);
+            return ids.length == 0 ? IntStream.empty() : Arrays.stream(manufacturerIndex.ordinals(ids));
+        });
+    }
+
+    public Mono<SearchPage> getProductsByReviews(final Double avgReview, final SearchOptions options) {
+        return indexedPage("reviews", QueryKey.reviews(avgReview, options), ProductMatch.reviews(avgReview), options,
+                snapshot -> Arrays.stream(snapshot.ratingIndex().atLeast(avgReview)));
+    }
+
+    /**
+     * Text results are ranked by relevance, so they page by offset and ignore {@code sort}. A {@code fuzzy} query
+     * also matches terms a few typos away from its own.
+     */
+    public Mono<SearchPage> searchText(final String query, final boolean fuzzy, final SearchOptions options) {
+        int limit = options.limit() == null ? DEFAULT_TEXT_LIMIT : options.limit();
+        int offset = ResultPager.offset(options.cursor());
+        return cachedPage("text", QueryKey.text(query, fuzzy, offset, limit), ProductMatch.text(query, fuzzy), options,
+                (snapshot, trace) -> {
+                    int wanted = (int) Math.min(Integer.MAX_VALUE, offset + limit + 1L);
+                    int[] ranked = snapshot.textIndex().search(query, wanted, fuzzy)
+                            .stream()
+                            .mapToInt(TextIndex.TextHit::ordinal)
+                            .peek(ordinal -> trace.scanned())
+                            .toArray();
+                    return ResultPager.ranked(ranked, offset, limit);
+                });
+    }
+
+    public Mono<SearchPage> getProductsAdvancedSearch(final AdvancedSearchRequestBody body, final SearchOptions options) {
+        PriceRange priceRange = priceRange(body);
+        return matchedPage("advanced", QueryKey.advanced(body, priceRange, options),
+                ProductMatch.advanced(body, priceRange), options, (snapshot, trace) ->
+                        AdvancedSearchPlan.plan(snapshot, body).ordinals(ordinal -> trace.scanned()));
+    }
+
+    /**
+     * Answers several advanced searches from one snapshot. Pages found in the {@link ResultCache} are reused. The
+     * other queries run their own plans, except those that need every match of a plan reading at least a quarter of
+     * the catalog (sorted or unlimited pages): when such plans would together read at least as many rows as the
+     * catalog holds, they are answered by a single pass that checks each of them per product.
+     *
+     * @param options query parameter options, overridden per query by the paging fields of its body
+     */
+    public Mono<BatchSearchResult> batchAdvancedSearch(final List<BatchSearchRequest.Query> queries,
+                                                       final SearchOptions options) {
+        return productCatalog.snapshot()
+                .map(snapshot -> {
+                    QueryTrace trace = searchMetrics.trace("batch");
+                    long start = System.nanoTime();
+                    int count = queries.size();
+                    SearchOptions[] queryOptions = new SearchOptions[count];
+                    String[] keys = new String[count];
+                    ResultPager.Page[] pages = new ResultPager.Page[count];
+                    boolean[] cached = new boolean[count];
+                    List<Integer> broad = new ArrayList<>();
+                    List<AdvancedSearchPlan> broadPlans = new ArrayList<>();
+                    long broadRows = 0;
+                    for (int i = 0; i < count; i++) {
+                        AdvancedSearchRequestBody body = queries.get(i).query();
+                        queryOptions[i] = body.searchOptions(options);
+                        keys[i] = QueryKey.advanced(body, priceRange(body), queryOptions[i]);
+                        pages[i] = resultCache.lookup(snapshot, keys[i]);
+                        cached[i] = pages[i] != null;
+                        if (cached[i]) {
+                            continue;
+                        }
+                        AdvancedSearchPlan plan = AdvancedSearchPlan.plan(snapshot, body);
+                        boolean everyMatch = queryOptions[i].sort() != null || queryOptions[i].limit() == null;
+                        if (everyMatch && plan.drivingRows() * 4L >= snapshot.size()) {
+                            broad.add(i);
+                            broadPlans.add(plan);
+                            broadRows += plan.drivingRows();
+                        } else {
+                            pages[i] = select(snapshot, plan.ordinals(ordinal -> trace.scanned()), queryOptions[i]);
+                        }
+                    }
+                    if (!broad.isEmpty() && broadRows >= snapshot.size()) {
+                        int[][] matches = AdvancedSearchPlan.scanTogether(snapshot, broadPlans, ordinal -> trace.scanned());
+                        for (int j = 0; j < broad.size(); j++) {
+                            pages[broad.get(j)] = select(snapshot, Arrays.stream(matches[j]), queryOptions[broad.get(j)]);
+                        }
+                    } else {
+                        for (int j = 0; j < broad.size(); j++) {
+                            pages[broad.get(j)] = select(snapshot, broadPlans.get(j).ordinals(ordinal -> trace.scanned()),
+                                    queryOptions[broad.get(j)]);
+                        }
+                    }
+                    trace.filtered(start);
+                    List<BatchSearchResult.QueryResult> results = new ArrayList<>(count);
+                    long returned = 0;
+                    for (int i = 0; i < count; i++) {
+                        if (!cached[i]) {
+                            AdvancedSearchRequestBody body = queries.get(i).query();
+                            resultCache.store(snapshot, keys[i], ProductMatch.advanced(body, priceRange(body)),
+                                    pages[i]);
+                        }
+                        ReviewView reviewView = queryOptions[i].reviewView();
+                        List<Product> products = Arrays.stream(pages[i].ordinals())
+                                .mapToObj(ordinal -> trace.map(() -> withReviewView(snapshot.product(ordinal),
+                                        snapshot.ratingIndex().stats(ordinal), reviewView)))
+                                .toList();
+                        returned += products.size();
+                        results.add(new BatchSearchResult.QueryResult(queries.get(i).id(), products, pages[i].nextCursor()));
+                    }
+                    trace.counted(returned);
+                    return new BatchSearchResult(snapshot.version(), results);
+                });
+    }
+
+    /**
+     * Counts the products matching an advanced search per category, manufacturer and price bucket in the same scan
+     * that would select them, without materializing any product.
+     *
+     * @param priceBoundaries bucket boundaries in any order; each boundary, rounded up to minor units, starts a new
+     *                        bucket
+     */
+    public Mono<Facets> facetAdvancedSearch(final AdvancedSearchRequestBody body,
+                                            final List<BigDecimal> priceBoundaries, final int maxManufacturers) {
+        return productCatalog.snapshot()
+                .map(snapshot -> {
+                    QueryTrace trace = searchMetrics.trace("facets");
+                    long start = System.nanoTime();
+                    FacetCounter counter = new FacetCounter(snapshot, priceBoundaries);
+                    AdvancedSearchPlan.plan(snapshot, body).ordinals(ordinal -> trace.scanned()).forEach(counter);
+                    trace.filtered(start);
+                    trace.counted(counter.matches());
+                    return counter.facets(maxManufacturers);
+                });
+    }
+
+    /**
+     * Completes a product or manufacturer name prefix, most reviewed first.
+     */
+    public Mono<List<Suggestion>> suggest(final String prefix, final int limit) {
+        return productCatalog.snapshot()
+                .map(snapshot -> {
+                    QueryTrace trace = searchMetrics.trace("suggest");
+                    long start = System.nanoTime();
+                    List<Suggestion> suggestions = snapshot.suggestIndex().complete(prefix, limit);
+                    trace.filtered(start);
+                    trace.counted(suggestions.size());
+                    return suggestions;
+                });
+    }
+
+    public Mono<QueryPlan> explainAdvancedSearch(final AdvancedSearchRequestBody body) {
+        return productCatalog.snapshot()
+                .map(snapshot -> AdvancedSearchPlan.plan(snapshot, body).explain());
+    }
 
-    public Flux<Product> getAllProductsWithExternalOnes() {
-        return Flux.merge(
-                        shopMockServiceClient.getAllProducts(),
-                        shopMockServiceClient.getAllGameProducts(),
-                        shopMockServiceClient.getAllHardwareProducts(),
-                        shopMockServiceClient.getAllSoftwareToolProducts()
-                )
-                .distinct()
-                .map(productAdapter::adaptToEntity);
+    private Flux<Product> feed(final ExternalSource source) {
+        return switch (source) {
+            case PRODUCTS -> shopMockServiceClient.getAllProducts();
+            case GAMES -> shopMockServiceClient.getAllGameProducts();
+            case HARDWARE -> shopMockServiceClient.getAllHardwareProducts();
+            case SOFTWARE_TOOLS -> shopMockServiceClient.getAllSoftwareToolProducts();
+        };
     }
 
-    public Flux<Product> getAllProducts() {
-        return shopMockServiceClient.getAllProducts()
-                .map(productAdapter::adaptToEntity);
+    private Mono<SearchPage> staleCatalog(final SearchOptions options) {
+        return productCatalog.snapshot()
+                .map(snapshot -> {
+                    QueryTrace trace = searchMetrics.trace("external");
+                    long start = System.nanoTime();
+                    ResultPager.Page page = select(snapshot,
+                            snapshot.ordinals().peek(ordinal -> trace.scanned()), options);
+                    trace.filtered(start);
+                    return new SearchPage(products(snapshot, page.ordinals(), options, trace), page.nextCursor())
+                            .withStaleness(productCatalog.age(snapshot));
+                });
     }
 
-    public Flux<Product> getProductsByCategory(final List<Category> categories) {
-        return shopMockServiceClient.getAllProducts()
-                .map(productAdapter::adaptToEntity)
-                .filter(product -> new HashSet<>(product.getCategories()).containsAll(categories));
+    private Mono<SearchPage> indexedPage(final String query, final String key, final Predicate<Product> matches,
+                                         final SearchOptions options,
+                                         final Function<CatalogSnapshot, IntStream> ordinals) {
+        return matchedPage(query, key, matches, options, (snapshot, trace) ->
+                ordinals.apply(snapshot).peek(ordinal -> trace.scanned()));
     }
 
-    public Flux<Product> getProductsByPrice(final BigDecimal price) {
-        return shopMockServiceClient.getAllProducts()
-                .map(productAdapter::adaptToEntity)
-                .filter(product -> product.getPrice().compareTo(price) <= 0);
+    /**
+     * Pages of a filter that yields its matches in catalog order. Paged and sorted requests select their page
+     * eagerly, as {@link #cachedPage} does. An unpaged request has nothing to select, so, unless its matches are
+     * cached, every match is emitted as soon as the filters pass it and the ordinals are cached once the stream
+     * completes. The filter phase is then timed per pulled match instead of up front.
+     */
+    private Mono<SearchPage> matchedPage(final String query, final String key, final Predicate<Product> matches,
+                                         final SearchOptions options,
+                                         final BiFunction<CatalogSnapshot, QueryTrace, IntStream> filter) {
+        if (options.isPaged()) {
+            return cachedPage(query, key, matches, options, (snapshot, trace) ->
+                    select(snapshot, filter.apply(snapshot, trace), options));
+        }
+        return productCatalog.snapshot()
+                .map(snapshot -> {
+                    QueryTrace trace = searchMetrics.trace(query);
+                    long start = System.nanoTime();
+                    ResultPager.Page cached = resultCache.lookup(snapshot, key);
+                    trace.filtered(start);
+                    Flux<Product> products = cached != null
+                            ? products(snapshot, cached.ordinals(), options, trace)
+                            : streamMatches(snapshot, key, matches, () -> filter.apply(snapshot, trace), options, trace);
+                    return new SearchPage(products, null, productCatalog.staleness(snapshot),
+                            entityTag(snapshot, key, options.reviewView()));
+                });
     }
 
-    public Flux<Product> getProductsByManufacturer(final String manufacturer) {
-        return shopMockServiceClient.getAllProducts()
-                .map(productAdapter::adaptToEntity)
-                .filter(product -> manufacturer.equals(product.getManufacturer().getName()));
+    private Flux<Product> streamMatches(final CatalogSnapshot snapshot, final String key,
+                                        final Predicate<Product> matches, final Supplier<IntStream> filter,
+                                        final SearchOptions options,
+                                        final QueryTrace trace) {
+        ReviewView reviewView = options.reviewView();
+        RatingIndex ratingIndex = snapshot.ratingIndex();
+        Flux<Integer> ordinals = Flux.defer(() -> {
+            long start = System.nanoTime();
+            PrimitiveIterator.OfInt iterator = filter.get().iterator();
+            trace.filtered(start);
+            IntStream.Builder seen = IntStream.builder();
+            return Flux.generate(sink -> {
+                long next = System.nanoTime();
+                boolean hasNext = iterator.hasNext();
+                int ordinal = hasNext ? iterator.nextInt() : -1;
+                trace.filtered(next);
+                if (hasNext) {
+                    seen.add(ordinal);
+                    sink.next(ordinal);
+                } else {
+                    // only a stream read to the end holds every match
+                    resultCache.store(snapshot, key, matches, new ResultPager.Page(seen.build().toArray(), null));
+                    sink.complete();
+                }
+            });
+        });
+        return trace.emit(ordinals.map(ordinal -> trace.map(() ->
+                withReviewView(snapshot.product(ordinal), ratingIndex.stats(ordinal), reviewView))));
     }
 
-    public Flux<Product> getProductsByReviews(final Double avgReview) {
-        return shopMockServiceClient.getAllProducts()
-                .map(productAdapter::adaptToEntity)
-                .filter(product -> getAverageRate(product.getReviews()) >= avgReview);
+    /**
+     * Selects the ordinals of the requested page eagerly, which only touches the indexes, and leaves building and
+     * emitting the products to the subscriber. Selected pages are kept in the {@link ResultCache} under the
+     * canonical {@code key} of the query, along with a test of the products it {@code matches}, and the page
+     * carries an entity tag derived from the key and the snapshot.
+     */
+    private Mono<SearchPage> cachedPage(final String query, final String key, final Predicate<Product> matches,
+                                        final SearchOptions options,
+                                        final BiFunction<CatalogSnapshot, QueryTrace, ResultPager.Page> select) {
+        return productCatalog.snapshot()
+                .map(snapshot -> {
+                    QueryTrace trace = searchMetrics.trace(query);
+                    long start = System.nanoTime();
+                    ResultPager.Page page = resultCache.get(snapshot, key, matches, () -> select.apply(snapshot, trace));
+                    trace.filtered(start);
+                    return new SearchPage(products(snapshot, page.ordinals(), options, trace), page.nextCursor(),
+                            productCatalog.staleness(snapshot), entityTag(snapshot, key, options.reviewView()));
+                });
     }
 
-    public Flux<Product> getProductsAdvancedSearch(final AdvancedSearchRequestBody body) {
-        return shopMockServiceClient.getAllProducts()
-                .map(productAdapter::adaptToEntity)
-                .filter(product -> optionallyFilterCategory(product, body) &&
-                        optionallyFilterPrice(product, body) &&
-                        optionallyFilterManufacturer(product, body) &&
-                        optionallyFilterAvgReviews(product, body)
-                );
+    private static PriceRange priceRange(final AdvancedSearchRequestBody body) {
+        return PriceRange.of(body.minPrice(), body.maxPrice()).intersect(PriceRange.of(null, body.price()));
     }
 
-    private Double getAverageRate(final List<Review> reviews) {
-        return reviews.stream()
-                .mapToDouble(Review::getRating)
-                .average()
-                .orElse(0.0);
+    private static ResultPager.Page select(final CatalogSnapshot snapshot, final IntStream ordinals,
+                                           final SearchOptions options) {
+        if (options.isPaged()) {
+            return ResultPager.page(OrdinalSource.of(snapshot), ordinals, options);
+        }
+        return new ResultPager.Page(ordinals.toArray(), null);
     }
 
-    private boolean optionallyFilterCategory(final Product product, final AdvancedSearchRequestBody body) {
-        return body.categories().isEmpty() || new HashSet<>(product.getCategories()).containsAll(body.categories());
+    /**
+     * Snapshot versions restart with the process, so the load time tells apart snapshots of different runs; a
+     * snapshot restored from disk keeps both and with them its tags.
+     */
+    private static String entityTag(final CatalogSnapshot snapshot, final String key, final ReviewView reviewView) {
+        return Long.toString(snapshot.loadedAt().toEpochMilli(), 36) + "-" + snapshot.version() + "-"
+                + Integer.toHexString((key + " " + reviewView.name()).hashCode());
     }
 
-    private boolean optionallyFilterPrice(final Product product, final AdvancedSearchRequestBody body) {
-        return body.price() == null || product.getPrice().compareTo(body.price()) <= 0;
+    private Flux<Product> products(final CatalogSnapshot snapshot, final int[] ordinals, final SearchOptions options,
+                                   final QueryTrace trace) {
+        ReviewView reviewView = options.reviewView();
+        RatingIndex ratingIndex = snapshot.ratingIndex();
+        return trace.emit(Flux.fromStream(() -> Arrays.stream(ordinals).mapToObj(ordinal -> trace.map(() ->
+                withReviewView(snapshot.product(ordinal), ratingIndex.stats(ordinal), reviewView)))));
     }
 
-    private boolean optionallyFilterManufacturer(final Product product, final AdvancedSearchRequestBody body) {
-        return body.manufacturerName() == null || body.manufacturerName().equals(product.getManufacturer().getName());
+    private Product withReviewView(final Product product, final ReviewView reviewView) {
+        if (reviewView == ReviewView.FULL) {
+            return product;
+        }
+        return withReviewView(product, ReviewStats.of(product.getReviews()), reviewView);
     }
 
-    private boolean optionallyFilterAvgReviews(final Product product, final AdvancedSearchRequestBody body) {
-        return body.reviewRate() == null || getAverageRate(product.getReviews()) >= body.reviewRate();
+    private Product withReviewView(final Product product, final ReviewStats stats, final ReviewView reviewView) {
+        return switch (reviewView) {
+            case FULL -> product;
+            case WITH_STATS -> product.toBuilder().reviewStats(stats).build();
+            case STATS_ONLY -> product.toBuilder().reviewStats(stats).reviews(null).build();
+        };
     }
 }
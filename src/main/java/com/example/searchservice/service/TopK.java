@@ -0,0 +1,83 @@
+package com.example.searchservice.service;
+
+import java.util.Arrays;
+
+/**
+ * Bounded max-heap of ordinals that keeps the {@code capacity} smallest ordinals under a {@link ProductOrder}.
+ * Offering n candidates costs O(n log k) instead of sorting all of them.
+ */
+final class TopK {
+
+    private final ProductOrder order;
+    private final int capacity;
+    private int[] heap;
+    private int size;
+
+    TopK(ProductOrder order, int capacity) {
+        this.order = order;
+        this.capacity = capacity;
+        this.heap = new int[Math.min(capacity, 64)];
+    }
+
+    void offer(int ordinal) {
+        if (size < capacity) {
+            if (size == heap.length) {
+                heap = Arrays.copyOf(heap, (int) Math.min(capacity, heap.length * 2L));
+            }
+            heap[size] = ordinal;
+            siftUp(size++);
+        } else if (order.compare(ordinal, heap[0]) < 0) {
+            heap[0] = ordinal;
+            siftDown(0);
+        }
+    }
+
+    /**
+     * Drains the heap into an array sorted by the order.
+     */
+    int[] sorted() {
+        int[] sorted = new int[size];
+        for (int i = size - 1; i >= 0; i--) {
+            sorted[i] = heap[0];
+            heap[0] = heap[--size];
+            siftDown(0);
+        }
+        return sorted;
+    }
+
+    private void siftUp(int index) {
+        while (index > 0) {
+            int parent = (index - 1) >>> 1;
+            if (order.compare(heap[index], heap[parent]) <= 0) {
+                return;
+            }
+            swap(index, parent);
+            index = parent;
+        }
+    }
+
+    private void siftDown(int index) {
+        while (true) {
+            int largest = index;
+            int left = 2 * index + 1;
+            int right = left + 1;
+            if (left < size && order.compare(heap[left], heap[largest]) > 0) {
+                largest = left;
+            }
+            if (right < size && order.compare(heap[right], heap[largest]) > 0) {
+                largest = right;
+            }
+            if (largest == index) {
+                return;
+            }
+            swap(index, largest);
+            index = largest;
+        }
+    }
+
+    private void swap(int first, int second) {
+        int tmp = heap[first];
+        heap[first] = heap[second];
+        heap[second] = tmp;
+    }
+}
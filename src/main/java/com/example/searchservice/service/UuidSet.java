@@ -0,0 +1,126 @@
+package com.example.searchservice.service;
+
+import java.util.UUID;
+
+/**
+ * Open-addressing set of UUIDs kept as two longs per slot with linear probing, so tracking an id costs 16 bytes per
+ * slot and no objects. The table doubles at 75% load up to the capacity needed for {@code maxEntries}; past that, new
+ * ids are no longer stored and {@link #overflowed()} turns true. The all-zero UUID marks empty slots and is tracked
+ * by a flag instead.
+ */
+final class UuidSet {
+
+    static final int BYTES_PER_SLOT = 2 * Long.BYTES;
+
+    private static final int INITIAL_CAPACITY = 1 << 10;
+    private static final double MAX_LOAD = 0.75;
+
+    private final int maxEntries;
+    private long[] slots;
+    private int mask;
+    private int size;
+    private boolean containsNil;
+    private boolean overflowed;
+
+    UuidSet(int maxEntries) {
+        this(0, maxEntries);
+    }
+
+    /**
+     * Sizes the table for {@code expectedEntries} up front so that a merge of a known size does not rehash.
+     */
+    UuidSet(int expectedEntries, int maxEntries) {
+        this.maxEntries = maxEntries;
+        int capacity = Math.min(Math.max(INITIAL_CAPACITY, capacityFor(expectedEntries)), capacityFor(maxEntries));
+        this.slots = new long[2 * capacity];
+        this.mask = capacity - 1;
+    }
+
+    /**
+     * Adds the id, returning {@code false} if it was already present. Once the set is full, absent ids are reported
+     * as new without being remembered.
+     */
+    boolean add(UUID id) {
+        long msb = id.getMostSignificantBits();
+        long lsb = id.getLeastSignificantBits();
+        if (msb == 0 && lsb == 0) {
+            if (containsNil) {
+                return false;
+            }
+            containsNil = true;
+            size++;
+            return true;
+        }
+        int slot = find(msb, lsb);
+        if (slots[2 * slot] == msb && slots[2 * slot + 1] == lsb) {
+            return false;
+        }
+        if (size >= maxEntries) {
+            overflowed = true;
+            return true;
+        }
+        slots[2 * slot] = msb;
+        slots[2 * slot + 1] = lsb;
+        if (++size > (mask + 1) * MAX_LOAD) {
+            grow();
+        }
+        return true;
+    }
+
+    int size() {
+        return size;
+    }
+
+    boolean overflowed() {
+        return overflowed;
+    }
+
+    long footprintBytes() {
+        return (long) slots.length * Long.BYTES;
+    }
+
+    /**
+     * Returns the slot holding the id, or the empty slot where it belongs.
+     */
+    private int find(long msb, long lsb) {
+        int slot = hash(msb, lsb) & mask;
+        while (true) {
+            long slotMsb = slots[2 * slot];
+            long slotLsb = slots[2 * slot + 1];
+            if ((slotMsb == msb && slotLsb == lsb) || (slotMsb == 0 && slotLsb == 0)) {
+                return slot;
+            }
+            slot = (slot + 1) & mask;
+        }
+    }
+
+    private void grow() {
+        int capacity = mask + 1;
+        if (capacity >= capacityFor(maxEntries)) {
+            return;
+        }
+        long[] old = slots;
+        slots = new long[4 * capacity];
+        mask = 2 * capacity - 1;
+        for (int i = 0; i < old.length; i += 2) {
+            if (old[i] != 0 || old[i + 1] != 0) {
+                int slot = find(old[i], old[i + 1]);
+                slots[2 * slot] = old[i];
+                slots[2 * slot + 1] = old[i + 1];
+            }
+        }
+    }
+
+    private static int capacityFor(int entries) {
+        long needed = (long) Math.ceil(Math.max(1, entries) / MAX_LOAD) + 1;
+        return (int) Math.min(1 << 30, Long.highestOneBit(needed - 1) << 1);
+    }
+
+    private static int hash(long msb, long lsb) {
+        long h = msb ^ Long.rotateLeft(lsb, 32);
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        return (int) h;
+    }
+}
@@ -0,0 +1,87 @@
+package com.example.searchservice.api;
+
+import com.example.searchservice.ProductDataProvider;
+import com.example.searchservice.model.Product;
+import com.example.searchservice.model.SearchOptions;
+import com.example.searchservice.model.SearchPage;
+import com.example.searchservice.service.SearchService;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.reactive.server.WebTestClient;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+
+import static org.mockito.Mockito.when;
+
+class SearchControllerStreamingTest {
+
+    private static final Duration SLOW_TAIL = Duration.ofMillis(500);
+
+    @Mock
+    private SearchService searchService;
+
+    @InjectMocks
+    private SearchController searchController;
+
+    private WebTestClient webTestClient;
+
+    @BeforeEach
+    public void setUp() {
+        MockitoAnnotations.openMocks(this);
+        webTestClient = WebTestClient.bindToController(searchController).build();
+        Product product = ProductDataProvider.getSimpleProduct();
+        // first product is available immediately, the rest of the catalog takes a while to filter
+        when(searchService.getAllProducts(SearchOptions.DEFAULT)).thenAnswer(invocation -> Mono.just(SearchPage.of(
+                Flux.just(product).concatWith(Flux.just(product, product).delayElements(SLOW_TAIL)))));
+    }
+
+    @Test
+    void should_stream_ndjson() {
+        webTestClient.get().uri("/search/products")
+                .accept(MediaType.APPLICATION_NDJSON)
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().contentTypeCompatibleWith(MediaType.APPLICATION_NDJSON)
+                .expectBodyList(Product.class).hasSize(3);
+    }
+
+    @Test
+    void should_stream_server_sent_events() {
+        webTestClient.get().uri("/search/products")
+                .accept(MediaType.TEXT_EVENT_STREAM)
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().contentTypeCompatibleWith(MediaType.TEXT_EVENT_STREAM)
+                .expectBodyList(Product.class).hasSize(3);
+    }
+
+    @Test
+    void should_deliver_first_product_earlier_when_streaming_than_as_array() {
+        Duration array = timeToFirstProduct(MediaType.APPLICATION_JSON);
+        Duration ndjson = timeToFirstProduct(MediaType.APPLICATION_NDJSON);
+        Duration eventStream = timeToFirstProduct(MediaType.TEXT_EVENT_STREAM);
+
+        Assertions.assertTrue(ndjson.compareTo(SLOW_TAIL) < 0, "ndjson first product after " + ndjson);
+        Assertions.assertTrue(eventStream.compareTo(SLOW_TAIL) < 0, "event-stream first product after " + eventStream);
+        Assertions.assertTrue(ndjson.compareTo(array) < 0, "ndjson " + ndjson + " vs array " + array);
+    }
+
+    private Duration timeToFirstProduct(MediaType mediaType) {
+        long start = System.nanoTime();
+        Flux<Product> body = webTestClient.get().uri("/search/products")
+                .accept(mediaType)
+                .exchange()
+                .expectStatus().isOk()
+                .returnResult(Product.class)
+                .getResponseBody();
+        body.blockFirst(Duration.ofSeconds(5));
+        return Duration.ofNanos(System.nanoTime() - start);
+    }
+}
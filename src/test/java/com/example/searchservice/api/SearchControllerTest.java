@@ -1,22 +1,50 @@
 package com.example.searchservice.api;
 
 import com.example.searchservice.ProductDataProvider;
+import com.example.searchservice.catalog.CatalogConfig;
+import com.example.searchservice.catalog.ProductCatalog;
+import com.example.searchservice.client.ShopMockServiceClient;
+import com.example.searchservice.config.GlobalExceptionHandler;
 import com.example.searchservice.model.AdvancedSearchRequestBody;
+import com.example.searchservice.model.BatchSearchRequest;
+import com.example.searchservice.model.BatchSearchResult;
 import com.example.searchservice.model.Category;
+import com.example.searchservice.model.Facets;
+import com.example.searchservice.model.NameMatch;
 import com.example.searchservice.model.Product;
+import com.example.searchservice.model.QueryPlan;
+import com.example.searchservice.model.ReviewView;
+import com.example.searchservice.model.SearchOptions;
+import com.example.searchservice.model.SearchPage;
+import com.example.searchservice.model.Suggestion;
+import com.example.searchservice.model.SortDirection;
+import com.example.searchservice.model.SortField;
+import com.example.searchservice.service.ExternalMergeConfig;
+import com.example.searchservice.service.ResultCache;
+import com.example.searchservice.service.ResultCacheConfig;
+import com.example.searchservice.service.SearchMetrics;
 import com.example.searchservice.service.SearchService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Mockito;
 import org.mockito.MockitoAnnotations;
+import org.springframework.http.HttpHeaders;
 import org.springframework.test.web.reactive.server.WebTestClient;
 import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
 
 import java.math.BigDecimal;
+import java.time.Duration;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.when;
 
 class SearchControllerTest {
@@ -38,7 +66,7 @@ class SearchControllerTest {
     @Test
     void should_return_all_products_including_external() {
         Product product = ProductDataProvider.getSimpleProduct();
-        when(searchService.getAllProductsWithExternalOnes()).thenReturn(Flux.just(product));
+        when(searchService.getAllProductsWithExternalOnes(SearchOptions.DEFAULT)).thenReturn(Mono.just(SearchPage.of(Flux.just(product))));
 
         webTestClient.get().uri("/search/products/external")
                 .exchange()
@@ -49,7 +77,7 @@ class SearchControllerTest {
     @Test
     void should_return_all_products() {
         Product product = ProductDataProvider.getSimpleProduct();
-        when(searchService.getAllProducts()).thenReturn(Flux.just(product));
+        when(searchService.getAllProducts(SearchOptions.DEFAULT)).thenReturn(Mono.just(SearchPage.of(Flux.just(product))));
 
         webTestClient.get().uri("/search/products")
                 .exchange()
@@ -60,7 +88,7 @@ class SearchControllerTest {
     @Test
     void should_return_error_if_wrong_url() {
         Product product = ProductDataProvider.getSimpleProduct();
-        when(searchService.getAllProducts()).thenReturn(Flux.just(product));
+        when(searchService.getAllProducts(SearchOptions.DEFAULT)).thenReturn(Mono.just(SearchPage.of(Flux.just(product))));
 
         webTestClient.get().uri("/search/product")
                 .exchange()
@@ -69,7 +97,7 @@ class SearchControllerTest {
 
     @Test
     void should_return_error_if_service_return_error() {
-        when(searchService.getAllProducts()).thenReturn(Flux.error(new RuntimeException("Some error")));
+        when(searchService.getAllProducts(SearchOptions.DEFAULT)).thenReturn(Mono.error(new RuntimeException("Some error")));
 
         webTestClient.get().uri("/search/products")
                 .exchange()
@@ -79,7 +107,7 @@ class SearchControllerTest {
     @Test
     void should_return_all_products_by_category() {
         Product product = ProductDataProvider.getSimpleProduct();
-        when(searchService.getProductsByCategory(List.of(Category.BABY_PRODUCTS))).thenReturn(Flux.just(product));
+        when(searchService.getProductsByCategory(List.of(Category.BABY_PRODUCTS), SearchOptions.DEFAULT)).thenReturn(Mono.just(SearchPage.of(Flux.just(product))));
 
         webTestClient.get().uri(uriBuilder ->
                         uriBuilder.path("/search/products/categories")
@@ -113,7 +141,7 @@ class SearchControllerTest {
     @Test
     void should_return_all_products_by_price() {
         Product product = ProductDataProvider.getSimpleProduct();
-        when(searchService.getProductsByPrice(BigDecimal.valueOf(11))).thenReturn(Flux.just(product));
+        when(searchService.getProductsByPrice(BigDecimal.valueOf(11), SearchOptions.DEFAULT)).thenReturn(Mono.just(SearchPage.of(Flux.just(product))));
 
         webTestClient.get().uri(uriBuilder ->
                         uriBuilder.path("/search/products/price")
@@ -124,6 +152,57 @@ class SearchControllerTest {
                 .expectBodyList(Product.class).hasSize(1);
     }
 
+    @Test
+    void should_return_all_products_by_price_range() {
+        Product product = ProductDataProvider.getSimpleProduct();
+        when(searchService.getProductsByPriceRange(BigDecimal.valueOf(5), BigDecimal.valueOf(11), SearchOptions.DEFAULT)).thenReturn(Mono.just(SearchPage.of(Flux.just(product))));
+
+        webTestClient.get().uri(uriBuilder ->
+                        uriBuilder.path("/search/products/price")
+                                .queryParam("minPrice", 5)
+                                .queryParam("maxPrice", 11)
+                                .build())
+                .exchange()
+                .expectStatus().isOk()
+                .expectBodyList(Product.class).hasSize(1);
+    }
+
+    @Test
+    void should_treat_price_bounds_beyond_minor_unit_range_as_open_ends() {
+        Product product = ProductDataProvider.getSimpleProduct();
+        ShopMockServiceClient shopMockServiceClient = Mockito.mock(ShopMockServiceClient.class);
+        when(shopMockServiceClient.isCircuitClosed()).thenReturn(true);
+        when(shopMockServiceClient.getAllProducts()).thenReturn(Flux.just(product));
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        ProductCatalog productCatalog = new ProductCatalog(shopMockServiceClient, new CatalogConfig(), meterRegistry);
+        productCatalog.snapshot().block();
+        SearchService realSearchService = new SearchService(productCatalog, shopMockServiceClient,
+                new SearchMetrics(meterRegistry), new ExternalMergeConfig(),
+                new ResultCache(new ResultCacheConfig(), meterRegistry));
+        WebTestClient client = WebTestClient.bindToController(new SearchController(realSearchService))
+                .controllerAdvice(new GlobalExceptionHandler())
+                .build();
+
+        client.get().uri("/search/products/price?maxPrice=1e20")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBodyList(Product.class).hasSize(1);
+        client.get().uri("/search/products/price?minPrice=-1e20&maxPrice=1e-30")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBodyList(Product.class).hasSize(0);
+        client.get().uri("/search/products/price?minPrice=1e20")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBodyList(Product.class).hasSize(0);
+        client.post().uri("/search/products")
+                .bodyValue(new AdvancedSearchRequestBody(null, null, null, null, BigDecimal.ONE.negate(),
+                        new BigDecimal("1e999999999"), null, null, null, null))
+                .exchange()
+                .expectStatus().isOk()
+                .expectBodyList(Product.class).hasSize(1);
+    }
+
     @Test
     void should_return_bad_request_for_wrong_query_type() {
         webTestClient.get().uri(uriBuilder ->
@@ -147,7 +226,7 @@ class SearchControllerTest {
     @Test
     void should_return_all_products_by_manufacturer() {
         Product product = ProductDataProvider.getSimpleProduct();
-        when(searchService.getProductsByManufacturer("Manufacturer 1")).thenReturn(Flux.just(product));
+        when(searchService.getProductsByManufacturer("Manufacturer 1", NameMatch.EXACT, SearchOptions.DEFAULT)).thenReturn(Mono.just(SearchPage.of(Flux.just(product))));
 
         webTestClient.get().uri(uriBuilder ->
                         uriBuilder.path("/search/products/manufacturer")
@@ -158,6 +237,51 @@ class SearchControllerTest {
                 .expectBodyList(Product.class).hasSize(1);
     }
 
+    @Test
+    void should_return_all_products_by_manufacturer_prefix_ignoring_case() {
+        Product product = ProductDataProvider.getSimpleProduct();
+        when(searchService.getProductsByManufacturer("manu", new NameMatch(true, true), SearchOptions.DEFAULT))
+                .thenReturn(Mono.just(SearchPage.of(Flux.just(product))));
+
+        webTestClient.get().uri(uriBuilder ->
+                        uriBuilder.path("/search/products/manufacturer")
+                                .queryParam("manufacturer", "manu")
+                                .queryParam("ignoreCase", true)
+                                .queryParam("prefix", true)
+                                .build())
+                .exchange()
+                .expectStatus().isOk()
+                .expectBodyList(Product.class).hasSize(1);
+    }
+
+    @Test
+    void should_return_products_by_misspelled_manufacturer_when_fuzzy() {
+        Product product = ProductDataProvider.getSimpleProduct();
+        when(searchService.getProductsByManufacturer("Manufaturer 1", new NameMatch(false, false, true), SearchOptions.DEFAULT))
+                .thenReturn(Mono.just(SearchPage.of(Flux.just(product))));
+
+        webTestClient.get().uri(uriBuilder ->
+                        uriBuilder.path("/search/products/manufacturer")
+                                .queryParam("manufacturer", "Manufaturer 1")
+                                .queryParam("fuzzy", true)
+                                .build())
+                .exchange()
+                .expectStatus().isOk()
+                .expectBodyList(Product.class).hasSize(1);
+    }
+
+    @Test
+    void should_reject_fuzzy_manufacturer_prefix() {
+        webTestClient.get().uri(uriBuilder ->
+                        uriBuilder.path("/search/products/manufacturer")
+                                .queryParam("manufacturer", "manu")
+                                .queryParam("prefix", true)
+                                .queryParam("fuzzy", true)
+                                .build())
+                .exchange()
+                .expectStatus().isBadRequest();
+    }
+
     @Test
     void should_return_bad_request_if_wrong_manufacturer_query_param() {
         webTestClient.get().uri(uriBuilder ->
@@ -171,11 +295,44 @@ class SearchControllerTest {
     @Test
     void should_return_all_products_by_review() {
         Product product = ProductDataProvider.getSimpleProduct();
-        when(searchService.getProductsByReviews(4.0)).thenReturn(Flux.just(product));
+        when(searchService.getProductsByReviews(4.0, SearchOptions.DEFAULT)).thenReturn(Mono.just(SearchPage.of(Flux.just(product))));
+
+        webTestClient.get().uri(uriBuilder ->
+                        uriBuilder.path("/search/products/reviews")
+                                .queryParam("avgReview", 4.0)
+                                .build())
+                .exchange()
+                .expectStatus().isOk()
+                .expectBodyList(Product.class).hasSize(1);
+    }
+
+    @Test
+    void should_reject_review_threshold_that_is_not_a_number() {
+        webTestClient.get().uri(uriBuilder ->
+                        uriBuilder.path("/search/products/reviews")
+                                .queryParam("avgReview", "NaN")
+                                .build())
+                .exchange()
+                .expectStatus().isBadRequest();
+
+        webTestClient.post()
+                .uri("/search/products")
+                .bodyValue(new AdvancedSearchRequestBody(null, null, List.of(), Double.POSITIVE_INFINITY))
+                .exchange()
+                .expectStatus().isBadRequest();
+
+        Mockito.verifyNoInteractions(searchService);
+    }
+
+    @Test
+    void should_pass_review_view_to_service() {
+        Product product = ProductDataProvider.getSimpleProduct();
+        when(searchService.getProductsByReviews(4.0, SearchOptions.of(ReviewView.STATS_ONLY))).thenReturn(Mono.just(SearchPage.of(Flux.just(product))));
 
         webTestClient.get().uri(uriBuilder ->
                         uriBuilder.path("/search/products/reviews")
                                 .queryParam("avgReview", 4.0)
+                                .queryParam("reviewView", "STATS_ONLY")
                                 .build())
                 .exchange()
                 .expectStatus().isOk()
@@ -202,10 +359,35 @@ class SearchControllerTest {
                 .expectStatus().isBadRequest();
     }
 
+    @Test
+    void should_return_products_by_text_query() {
+        Product product = ProductDataProvider.getSimpleProduct();
+        when(searchService.searchText("product", false, new SearchOptions(null, 5, null, null, null))).thenReturn(Mono.just(SearchPage.of(Flux.just(product))));
+
+        webTestClient.get().uri(uriBuilder ->
+                        uriBuilder.path("/search/products/text")
+                                .queryParam("q", "product")
+                                .queryParam("limit", 5)
+                                .build())
+                .exchange()
+                .expectStatus().isOk()
+                .expectBodyList(Product.class).hasSize(1);
+    }
+
+    @Test
+    void should_return_bad_request_for_blank_text_query() {
+        webTestClient.get().uri(uriBuilder ->
+                        uriBuilder.path("/search/products/text")
+                                .queryParam("q", " ")
+                                .build())
+                .exchange()
+                .expectStatus().isBadRequest();
+    }
+
     @Test
     void should_return_all_products_by_advanced_search() {
         Product product = ProductDataProvider.getSimpleProduct();
-        when(searchService.getProductsAdvancedSearch(any())).thenReturn(Flux.just(product));
+        when(searchService.getProductsAdvancedSearch(any(), any())).thenReturn(Mono.just(SearchPage.of(Flux.just(product))));
 
         webTestClient.post()
                 .uri("/search/products")
@@ -222,4 +404,170 @@ class SearchControllerTest {
                 .exchange()
                 .expectStatus().isBadRequest();
     }
+
+    @Test
+    void should_return_next_cursor_header_for_paged_search() {
+        Product product = ProductDataProvider.getSimpleProduct();
+        SearchOptions options = new SearchOptions(null, 1, SortField.PRICE, SortDirection.DESC, null);
+        when(searchService.getAllProducts(options)).thenReturn(Mono.just(new SearchPage(Flux.just(product), "next")));
+
+        webTestClient.get().uri(uriBuilder ->
+                        uriBuilder.path("/search/products")
+                                .queryParam("limit", 1)
+                                .queryParam("sort", "PRICE")
+                                .queryParam("direction", "DESC")
+                                .build())
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().valueEquals(SearchController.NEXT_CURSOR_HEADER, "next")
+                .expectBodyList(Product.class).hasSize(1);
+    }
+
+    @Test
+    void should_return_staleness_header_for_stale_results() {
+        Product product = ProductDataProvider.getSimpleProduct();
+        when(searchService.getAllProductsWithExternalOnes(SearchOptions.DEFAULT))
+                .thenReturn(Mono.just(SearchPage.of(Flux.just(product)).withStaleness(Duration.ofSeconds(90))));
+
+        webTestClient.get().uri("/search/products/external")
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().valueEquals(SearchController.STALENESS_HEADER, "90")
+                .expectBodyList(Product.class).hasSize(1);
+    }
+
+    @Test
+    void should_return_bad_request_for_limit_out_of_range() {
+        webTestClient.get().uri(uriBuilder ->
+                        uriBuilder.path("/search/products")
+                                .queryParam("limit", 0)
+                                .build())
+                .exchange()
+                .expectStatus().isBadRequest();
+    }
+
+    @Test
+    void should_return_advanced_search_plan() {
+        QueryPlan plan = new QueryPlan(1, 10, List.of(new QueryPlan.Step("price", "<= 11", QueryPlan.Access.INDEX, 0.5, 5, 4)), 5, 4);
+        when(searchService.explainAdvancedSearch(any())).thenReturn(Mono.just(plan));
+
+        webTestClient.post()
+                .uri("/search/products/explain")
+                .bodyValue(new AdvancedSearchRequestBody(null, BigDecimal.valueOf(11), List.of(), null))
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody(QueryPlan.class).isEqualTo(plan);
+    }
+
+    @Test
+    void should_return_advanced_search_facets() {
+        Facets facets = new Facets(1, 1, Map.of(Category.BABY_PRODUCTS, 1),
+                List.of(new Facets.ManufacturerCount("Manufacturer 1", 1)),
+                List.of(new Facets.PriceBucket(null, new BigDecimal("20.00"), 1),
+                        new Facets.PriceBucket(new BigDecimal("20.00"), null, 0)));
+        when(searchService.facetAdvancedSearch(any(), eq(List.of(BigDecimal.valueOf(20))), eq(5)))
+                .thenReturn(Mono.just(facets));
+
+        webTestClient.post()
+                .uri("/search/products/facets?priceBuckets=20&manufacturers=5")
+                .bodyValue(new AdvancedSearchRequestBody(null, null, List.of(Category.BABY_PRODUCTS), null))
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody(Facets.class).isEqualTo(facets);
+    }
+
+    @Test
+    void should_reject_facets_without_manufacturer_room() {
+        webTestClient.post()
+                .uri("/search/products/facets?manufacturers=0")
+                .bodyValue(new AdvancedSearchRequestBody(null, null, List.of(), null))
+                .exchange()
+                .expectStatus().isBadRequest();
+    }
+
+    @Test
+    void should_return_batch_results_by_query_id() {
+        Product product = ProductDataProvider.getSimpleProduct();
+        BatchSearchResult result = new BatchSearchResult(3, List.of(
+                new BatchSearchResult.QueryResult("baby", List.of(product), null),
+                new BatchSearchResult.QueryResult("books", List.of(), null)));
+        when(searchService.batchAdvancedSearch(any(), eq(SearchOptions.DEFAULT))).thenReturn(Mono.just(result));
+
+        webTestClient.post()
+                .uri("/search/products/batch")
+                .bodyValue(new BatchSearchRequest(List.of(
+                        new BatchSearchRequest.Query("baby", new AdvancedSearchRequestBody(null, null, List.of(Category.BABY_PRODUCTS), null)),
+                        new BatchSearchRequest.Query("books", new AdvancedSearchRequestBody(null, null, List.of(Category.BOOKS), null)))))
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody(BatchSearchResult.class).isEqualTo(result);
+    }
+
+    @Test
+    void should_reject_batch_with_duplicate_query_ids() {
+        AdvancedSearchRequestBody body = new AdvancedSearchRequestBody(null, null, List.of(), null);
+
+        webTestClient.post()
+                .uri("/search/products/batch")
+                .bodyValue(new BatchSearchRequest(List.of(
+                        new BatchSearchRequest.Query("same", body),
+                        new BatchSearchRequest.Query("same", body))))
+                .exchange()
+                .expectStatus().isBadRequest();
+    }
+
+    @Test
+    void should_reject_empty_batch() {
+        webTestClient.post()
+                .uri("/search/products/batch")
+                .bodyValue(new BatchSearchRequest(List.of()))
+                .exchange()
+                .expectStatus().isBadRequest();
+    }
+
+    @Test
+    void should_return_suggestions_for_prefix() {
+        List<Suggestion> suggestions = List.of(new Suggestion("Product 1", Suggestion.Kind.PRODUCT, 1, 5.0));
+        when(searchService.suggest("prod", 3)).thenReturn(Mono.just(suggestions));
+
+        webTestClient.get()
+                .uri("/search/products/suggest?prefix=prod&limit=3")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBodyList(Suggestion.class).isEqualTo(suggestions);
+    }
+
+    @Test
+    void should_reject_blank_suggest_prefix() {
+        webTestClient.get()
+                .uri("/search/products/suggest?prefix= ")
+                .exchange()
+                .expectStatus().isBadRequest();
+    }
+
+    @Test
+    void should_tag_catalog_results_and_answer_matching_if_none_match_without_body() {
+        Product product = ProductDataProvider.getSimpleProduct();
+        AtomicBoolean subscribed = new AtomicBoolean();
+        when(searchService.getProductsByCategory(List.of(Category.BABY_PRODUCTS), SearchOptions.DEFAULT))
+                .thenReturn(Mono.just(new SearchPage(Flux.just(product).doOnSubscribe(s -> subscribed.set(true)),
+                        null, null, "abc-1-2f")));
+
+        String etag = webTestClient.get().uri("/search/products/categories?categories=BABY_PRODUCTS")
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().exists(HttpHeaders.ETAG)
+                .expectHeader().valueEquals(HttpHeaders.VARY, HttpHeaders.ACCEPT)
+                .returnResult(Product.class)
+                .getResponseHeaders().getETag();
+        subscribed.set(false);
+
+        webTestClient.get().uri("/search/products/categories?categories=BABY_PRODUCTS")
+                .ifNoneMatch(etag)
+                .exchange()
+                .expectStatus().isNotModified()
+                .expectHeader().valueEquals(HttpHeaders.VARY, HttpHeaders.ACCEPT)
+                .expectBody().isEmpty();
+        Assertions.assertFalse(subscribed.get());
+    }
 }
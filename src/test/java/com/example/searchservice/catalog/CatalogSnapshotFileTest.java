@@ -0,0 +1,105 @@
+package com.example.searchservice.catalog;
+
+import com.example.searchservice.ProductDataProvider;
+import com.example.searchservice.model.Product;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.IntStream;
+
+class CatalogSnapshotFileTest {
+
+    @TempDir
+    private Path directory;
+
+    @Test
+    void should_read_back_products_indexes_and_sync_state() throws IOException {
+        Product product = ProductDataProvider.getSimpleProduct();
+        Product sparse = Product.builder()
+                .id(UUID.randomUUID())
+                .name("Wireless Mouse")
+                .price(new BigDecimal("-1234.5678"))
+                .build();
+        CatalogSnapshot snapshot = CatalogSnapshot.build(7, Instant.parse("2023-10-20T10:15:30.123456789Z"),
+                List.of(product, sparse));
+        LocalDateTime watermark = product.getUpdatedAt();
+        Instant lastFullSync = Instant.parse("2023-10-20T10:15:00Z");
+        CatalogSnapshotFile file = new CatalogSnapshotFile(directory.resolve("catalog.snapshot"));
+
+        file.write(new CatalogSnapshotFile.Contents(snapshot, watermark, lastFullSync));
+        CatalogSnapshotFile.Contents contents = file.read().orElseThrow();
+
+        CatalogSnapshot restored = contents.snapshot();
+        Assertions.assertEquals(watermark, contents.watermark());
+        Assertions.assertEquals(lastFullSync, contents.lastFullSync());
+        Assertions.assertEquals(snapshot.version(), restored.version());
+        Assertions.assertEquals(snapshot.loadedAt(), restored.loadedAt());
+        Assertions.assertEquals(snapshot.products(), restored.products());
+        Assertions.assertArrayEquals(snapshot.textIndex().document(0), restored.textIndex().document(0));
+        Assertions.assertEquals(snapshot.textIndex().termCount(), restored.textIndex().termCount());
+        Assertions.assertEquals(List.of(1), restored.textIndex().search("mouse", 10).stream()
+                .map(TextIndex.TextHit::ordinal)
+                .toList());
+        Assertions.assertEquals(1, restored.ordinal(sparse.getId()));
+    }
+
+    @Test
+    void should_read_across_mapped_windows() throws IOException {
+        Product product = ProductDataProvider.getSimpleProduct();
+        List<Product> products = IntStream.range(0, 200)
+                .mapToObj(i -> product.toBuilder()
+                        .id(new UUID(0, i))
+                        .name("Wireless Mouse " + i)
+                        .description("Ergonomic mouse number " + i + " with a long description")
+                        .build())
+                .toList();
+        CatalogSnapshot snapshot = CatalogSnapshot.build(3, Instant.EPOCH, products);
+        Path path = directory.resolve("catalog.snapshot");
+        new CatalogSnapshotFile(path).write(new CatalogSnapshotFile.Contents(snapshot, null, null));
+
+        // an odd window size puts most values across a window boundary
+        CatalogSnapshot restored = new CatalogSnapshotFile(path, 61).read().orElseThrow().snapshot();
+
+        Assertions.assertTrue(Files.size(path) > 100 * 61);
+        Assertions.assertEquals(snapshot.products(), restored.products());
+        Assertions.assertEquals(snapshot.textIndex().search("mouse 42", 5), restored.textIndex().search("mouse 42", 5));
+    }
+
+    @Test
+    void should_reject_truncated_file() throws IOException {
+        Path path = directory.resolve("catalog.snapshot");
+        CatalogSnapshot snapshot = CatalogSnapshot.build(1, Instant.EPOCH, List.of(ProductDataProvider.getSimpleProduct()));
+        new CatalogSnapshotFile(path).write(new CatalogSnapshotFile.Contents(snapshot, null, null));
+        byte[] bytes = Files.readAllBytes(path);
+        Files.write(path, Arrays.copyOf(bytes, bytes.length - 5));
+
+        Assertions.assertThrows(IOException.class, () -> new CatalogSnapshotFile(path, 16).read());
+    }
+
+    @Test
+    void should_return_empty_without_file() throws IOException {
+        Assertions.assertTrue(new CatalogSnapshotFile(directory.resolve("missing.snapshot")).read().isEmpty());
+    }
+
+    @Test
+    void should_reject_other_format_version() throws IOException {
+        Path path = directory.resolve("catalog.snapshot");
+        Files.write(path, ByteBuffer.allocate(8)
+                .putInt(CatalogSnapshotFile.MAGIC)
+                .putInt(CatalogSnapshotFile.FORMAT_VERSION + 1)
+                .array());
+
+        Assertions.assertThrows(IOException.class, () -> new CatalogSnapshotFile(path).read());
+    }
+}
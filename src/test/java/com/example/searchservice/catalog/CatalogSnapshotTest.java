@@ -0,0 +1,160 @@
+package com.example.searchservice.catalog;
+
+import com.example.searchservice.model.Category;
+import com.example.searchservice.model.Manufacturer;
+import com.example.searchservice.model.NameMatch;
+import com.example.searchservice.model.Product;
+import com.example.searchservice.model.Review;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.UUID;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+class CatalogSnapshotTest {
+
+    private static final String[] WORDS = {"wireless", "mouse", "keyboard", "gaming", "office", "compact", "lamp",
+            "desk", "chair", "cable"};
+    private static final String[] MANUFACTURERS = {"Acme", "Globex", "Initech", "Umbrella", "Hooli"};
+    private static final Category[] CATEGORIES = Category.values();
+
+    @Test
+    void should_patch_products_in_place_and_leave_deleted_ordinals_unused() {
+        Product first = product(new Random(1), "wireless mouse", "Acme", 10);
+        Product second = product(new Random(2), "office chair", "Globex", 20);
+        Product third = product(new Random(3), "desk lamp", "Initech", 30);
+        CatalogSnapshot built = CatalogSnapshot.build(1, Instant.now(), List.of(first, second, third));
+        Product updated = second.toBuilder().price(BigDecimal.valueOf(25)).build();
+        Product added = product(new Random(4), "gaming keyboard", "Hooli", 40);
+
+        CatalogSnapshot patched = built.patch(2, Instant.now(), List.of(updated, added), List.of(first.getId()));
+
+        Assertions.assertTrue(built.isFullBuild());
+        Assertions.assertFalse(patched.isFullBuild());
+        Assertions.assertEquals(List.of(updated, third, added), patched.products());
+        Assertions.assertArrayEquals(new int[]{1, 2, 3}, patched.ordinals().toArray());
+        Assertions.assertEquals(3, patched.size());
+        Assertions.assertEquals(3, patched.changedSinceBuild());
+        Assertions.assertEquals(-1, patched.ordinal(first.getId()));
+        Assertions.assertEquals(1, patched.ordinal(updated.getId()));
+        Assertions.assertEquals(3, patched.ordinal(added.getId()));
+        Assertions.assertArrayEquals(new int[]{1},
+                patched.priceIndex().range(PriceRange.of(null, BigDecimal.valueOf(25))));
+        Assertions.assertEquals(List.of(first, second, third), built.products());
+        Assertions.assertNull(built.delta());
+        Assertions.assertEquals(1, patched.delta().fromVersion());
+        Assertions.assertEquals(Set.of(first, second, updated, added), Set.copyOf(patched.delta().products()));
+    }
+
+    @Test
+    void should_answer_patched_queries_like_a_full_build() {
+        Random random = new Random(42);
+        List<Product> products = new ArrayList<>();
+        for (int i = 0; i < 400; i++) {
+            products.add(product(random));
+        }
+        CatalogSnapshot snapshot = CatalogSnapshot.build(1, Instant.now(), products);
+        for (int delta = 0; delta < 5; delta++) {
+            List<Product> live = snapshot.products();
+            List<Product> upserts = new ArrayList<>();
+            List<UUID> deletes = new ArrayList<>();
+            for (int i = 0; i < 20; i++) {
+                Product existing = live.get(random.nextInt(live.size()));
+                switch (random.nextInt(3)) {
+                    case 0 -> upserts.add(product(random).toBuilder().id(existing.getId()).build());
+                    case 1 -> deletes.add(existing.getId());
+                    default -> upserts.add(product(random));
+                }
+            }
+            snapshot = snapshot.patch(delta + 2, Instant.now(), upserts, deletes);
+            assertSameAnswers(CatalogSnapshot.build(delta + 2, Instant.now(), snapshot.products()), snapshot);
+        }
+        Assertions.assertFalse(snapshot.isFullBuild());
+    }
+
+    private static void assertSameAnswers(CatalogSnapshot expected, CatalogSnapshot patched) {
+        Assertions.assertEquals(expected.size(), patched.size());
+        Assertions.assertEquals(expected.products(), patched.products());
+        Assertions.assertEquals(ids(expected, expected.ordinals().toArray()), ids(patched, patched.ordinals().toArray()));
+        for (Product product : expected.products()) {
+            Assertions.assertEquals(product, patched.product(patched.ordinal(product.getId())));
+        }
+        for (Category category : CATEGORIES) {
+            Assertions.assertEquals(expected.categoryIndex().count(category), patched.categoryIndex().count(category));
+            Assertions.assertEquals(ids(expected, expected.categoryIndex().matchingAll(List.of(category)).stream().toArray()),
+                    ids(patched, patched.categoryIndex().matchingAll(List.of(category)).stream().toArray()));
+        }
+        for (int min = 0; min <= 100; min += 25) {
+            PriceRange range = PriceRange.of(BigDecimal.valueOf(min), BigDecimal.valueOf(min + 30));
+            Assertions.assertEquals(expected.priceIndex().count(range), patched.priceIndex().count(range));
+            Assertions.assertEquals(ids(expected, expected.priceIndex().range(range)),
+                    ids(patched, patched.priceIndex().range(range)));
+        }
+        for (double minAverage = 1; minAverage <= 5; minAverage += 0.75) {
+            Assertions.assertEquals(expected.ratingIndex().estimateAtLeast(minAverage),
+                    patched.ratingIndex().estimateAtLeast(minAverage));
+            Assertions.assertEquals(ids(expected, expected.ratingIndex().atLeast(minAverage)),
+                    ids(patched, patched.ratingIndex().atLeast(minAverage)));
+        }
+        for (String manufacturer : List.of("Acme", "globex", "Initek", "New Co", "Nobody")) {
+            for (NameMatch match : List.of(NameMatch.EXACT, new NameMatch(true, true), new NameMatch(true, false, true))) {
+                Assertions.assertEquals(
+                        ids(expected, expected.manufacturerIndex().ordinals(expected.manufacturerIndex().ids(manufacturer, match))),
+                        ids(patched, patched.manufacturerIndex().ordinals(patched.manufacturerIndex().ids(manufacturer, match))));
+            }
+        }
+        for (String query : List.of("wireless", "gaming chair", "\"desk lamp\"", "keybord")) {
+            Assertions.assertEquals(textMatches(expected, query), textMatches(patched, query), query);
+        }
+        for (String prefix : List.of("", "a", "w", "gaming", "new")) {
+            Assertions.assertEquals(expected.suggestIndex().complete(prefix, 50),
+                    patched.suggestIndex().complete(prefix, 50), prefix);
+        }
+        Assertions.assertEquals(expected.suggestIndex().size(), patched.suggestIndex().size());
+    }
+
+    private static Set<UUID> textMatches(CatalogSnapshot snapshot, String query) {
+        return ids(snapshot, snapshot.textIndex().search(query, 1000, true).stream()
+                .mapToInt(TextIndex.TextHit::ordinal)
+                .toArray());
+    }
+
+    private static Set<UUID> ids(CatalogSnapshot snapshot, int[] ordinals) {
+        return Arrays.stream(ordinals).mapToObj(ordinal -> snapshot.product(ordinal).getId())
+                .collect(Collectors.toSet());
+    }
+
+    private static Product product(Random random) {
+        String name = WORDS[random.nextInt(WORDS.length)] + " " + WORDS[random.nextInt(WORDS.length)];
+        String manufacturer = random.nextInt(20) == 0 ? "New Co" : MANUFACTURERS[random.nextInt(MANUFACTURERS.length)];
+        Product product = product(random, name, manufacturer, random.nextInt(120));
+        return random.nextInt(20) == 0 ? product.toBuilder().price(null).build() : product;
+    }
+
+    private static Product product(Random random, String name, String manufacturer, int price) {
+        EnumSet<Category> categories = EnumSet.noneOf(Category.class);
+        for (int i = 0; i < 1 + random.nextInt(3); i++) {
+            categories.add(CATEGORIES[random.nextInt(CATEGORIES.length)]);
+        }
+        return Product.builder()
+                .id(UUID.randomUUID())
+                .name(name)
+                .description(WORDS[random.nextInt(WORDS.length)] + " for home and office")
+                .price(BigDecimal.valueOf(price))
+                .manufacturer(Manufacturer.builder().name(manufacturer).build())
+                .categories(List.copyOf(categories))
+                .reviews(IntStream.range(0, random.nextInt(4))
+                        .mapToObj(i -> Review.builder().rating(1 + random.nextInt(5)).build())
+                        .toList())
+                .build();
+    }
+}
@@ -0,0 +1,57 @@
+package com.example.searchservice.catalog;
+
+import com.example.searchservice.model.Category;
+import com.example.searchservice.model.Product;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.BitSet;
+import java.util.List;
+
+class CategoryIndexTest {
+
+    private final CategoryIndex categoryIndex = CategoryIndex.build(List.of(
+            product(Category.BABY_PRODUCTS, Category.AUTOMOTIVE),
+            product(Category.AUTOMOTIVE),
+            product(Category.BABY_PRODUCTS, Category.AUTOMOTIVE, Category.BIKES_ACCESSORIES),
+            product()
+    ));
+
+    @Test
+    void should_match_products_containing_all_categories() {
+        BitSet result = categoryIndex.matchingAll(List.of(Category.AUTOMOTIVE, Category.BABY_PRODUCTS));
+
+        Assertions.assertEquals(bits(0, 2), result);
+    }
+
+    @Test
+    void should_match_all_products_if_no_category_requested() {
+        Assertions.assertEquals(bits(0, 1, 2, 3), categoryIndex.matchingAll(List.of()));
+    }
+
+    @Test
+    void should_return_empty_if_no_product_has_category() {
+        Assertions.assertTrue(categoryIndex.matchingAll(List.of(Category.AUTOMOTIVE, Category.ARTS_CRAFTS)).isEmpty());
+    }
+
+    @Test
+    void should_check_containment_against_precomputed_mask() {
+        long required = CategoryIndex.mask(List.of(Category.BIKES_ACCESSORIES));
+
+        Assertions.assertTrue(categoryIndex.containsAll(2, required));
+        Assertions.assertFalse(categoryIndex.containsAll(0, required));
+        Assertions.assertEquals(3, categoryIndex.count(Category.AUTOMOTIVE));
+    }
+
+    private static Product product(Category... categories) {
+        return Product.builder().categories(List.of(categories)).build();
+    }
+
+    private static BitSet bits(int... ordinals) {
+        BitSet bitSet = new BitSet();
+        for (int ordinal : ordinals) {
+            bitSet.set(ordinal);
+        }
+        return bitSet;
+    }
+}
@@ -0,0 +1,66 @@
+package com.example.searchservice.catalog;
+
+import com.example.searchservice.model.Manufacturer;
+import com.example.searchservice.model.NameMatch;
+import com.example.searchservice.model.Product;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+class ManufacturerIndexTest {
+
+    private final ManufacturerIndex manufacturerIndex = ManufacturerIndex.build(List.of(
+            product("Samsung"),
+            product("Sony"),
+            product("samsung"),
+            product("Samsung"),
+            product("Apple")
+    ));
+
+    @Test
+    void should_intern_names_to_ids() {
+        Assertions.assertEquals(4, manufacturerIndex.size());
+        Assertions.assertEquals(manufacturerIndex.manufacturerId(0), manufacturerIndex.manufacturerId(3));
+        Assertions.assertEquals("Sony", manufacturerIndex.name(manufacturerIndex.id("Sony")));
+    }
+
+    @Test
+    void should_match_exact_name() {
+        int[] ids = manufacturerIndex.ids("Samsung", NameMatch.EXACT);
+
+        Assertions.assertArrayEquals(new int[]{0, 3}, manufacturerIndex.ordinals(ids));
+    }
+
+    @Test
+    void should_match_name_ignoring_case() {
+        int[] ids = manufacturerIndex.ids("SAMSUNG", new NameMatch(true, false));
+
+        Assertions.assertArrayEquals(new int[]{0, 2, 3}, manufacturerIndex.ordinals(ids));
+    }
+
+    @Test
+    void should_match_name_prefix() {
+        Assertions.assertArrayEquals(new int[]{0, 3}, manufacturerIndex.ordinals(manufacturerIndex.ids("Sa", new NameMatch(false, true))));
+        Assertions.assertArrayEquals(new int[]{0, 1, 2, 3}, manufacturerIndex.ordinals(manufacturerIndex.ids("s", new NameMatch(true, true))));
+    }
+
+    @Test
+    void should_match_misspelled_name_when_fuzzy() {
+        NameMatch fuzzy = new NameMatch(false, false, true);
+
+        Assertions.assertArrayEquals(new int[]{0, 2, 3}, manufacturerIndex.ordinals(manufacturerIndex.ids("Samsnug", fuzzy)));
+        Assertions.assertArrayEquals(new int[]{4}, manufacturerIndex.ordinals(manufacturerIndex.ids("aple", fuzzy)));
+        Assertions.assertEquals(0, manufacturerIndex.ids("Sansnug", fuzzy).length);
+    }
+
+    @Test
+    void should_reject_unknown_name() {
+        Assertions.assertEquals(0, manufacturerIndex.ids("Samsnug", new NameMatch(true, false)).length);
+        Assertions.assertEquals(ManufacturerIndex.UNKNOWN, manufacturerIndex.id("samsunG"));
+    }
+
+    private static Product product(String manufacturer) {
+        return Product.builder().manufacturer(Manufacturer.builder().name(manufacturer).build()).build();
+    }
+}
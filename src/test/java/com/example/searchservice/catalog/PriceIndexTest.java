@@ -0,0 +1,65 @@
+package com.example.searchservice.catalog;
+
+import com.example.searchservice.model.Product;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+class PriceIndexTest {
+
+    private final PriceIndex priceIndex = PriceIndex.build(List.of(
+            product("10.00"),
+            product("5.50"),
+            product("20"),
+            product("10.004"),
+            product("7.25")
+    ));
+
+    @Test
+    void should_store_prices_as_minor_units() {
+        Assertions.assertEquals(1000, priceIndex.price(0));
+        Assertions.assertEquals(550, priceIndex.price(1));
+        Assertions.assertEquals(1000, priceIndex.price(3));
+    }
+
+    @Test
+    void should_return_ordinals_within_range_in_catalog_order() {
+        PriceRange range = PriceRange.of(new BigDecimal("6"), new BigDecimal("10"));
+
+        Assertions.assertArrayEquals(new int[]{0, 3, 4}, priceIndex.range(range));
+        Assertions.assertEquals(3, priceIndex.count(range));
+    }
+
+    @Test
+    void should_support_open_ended_ranges() {
+        Assertions.assertArrayEquals(new int[]{0, 1, 3, 4}, priceIndex.range(PriceRange.of(null, new BigDecimal("10.009"))));
+        Assertions.assertArrayEquals(new int[]{2}, priceIndex.range(PriceRange.of(new BigDecimal("10.001"), null)));
+        Assertions.assertArrayEquals(new int[]{0, 1, 2, 3, 4}, priceIndex.range(PriceRange.UNBOUNDED));
+    }
+
+    @Test
+    void should_return_empty_for_inverted_range() {
+        PriceRange range = PriceRange.of(new BigDecimal("15"), new BigDecimal("6"));
+
+        Assertions.assertEquals(0, priceIndex.range(range).length);
+        Assertions.assertEquals(0, priceIndex.count(range));
+    }
+
+    @Test
+    void should_leave_products_without_price_out_of_every_range() {
+        PriceIndex withUnpriced = PriceIndex.build(List.of(product("10.00"), Product.builder().build(), product("5.50")));
+
+        Assertions.assertFalse(withUnpriced.hasPrice(1));
+        Assertions.assertEquals(PriceIndex.NO_PRICE, withUnpriced.price(1));
+        Assertions.assertArrayEquals(new int[]{0, 2}, withUnpriced.range(PriceRange.UNBOUNDED));
+        Assertions.assertEquals(2, withUnpriced.count(PriceRange.of(null, null)));
+        Assertions.assertFalse(withUnpriced.matches(1, PriceRange.of(null, new BigDecimal("20"))));
+        Assertions.assertTrue(withUnpriced.matches(2, PriceRange.of(null, new BigDecimal("20"))));
+    }
+
+    private static Product product(String price) {
+        return Product.builder().price(new BigDecimal(price)).build();
+    }
+}
@@ -0,0 +1,274 @@
+package com.example.searchservice.catalog;
+
+import com.example.searchservice.ProductDataProvider;
+import com.example.searchservice.client.ProductChanges;
+import com.example.searchservice.client.ShopMockServiceClient;
+import com.example.searchservice.error.ChangeLogGapException;
+import com.example.searchservice.model.Product;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import java.util.stream.IntStream;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class ProductCatalogTest {
+
+    @Mock
+    private ShopMockServiceClient shopMockServiceClient;
+
+    private MeterRegistry meterRegistry;
+
+    private ProductCatalog productCatalog;
+
+    @BeforeEach
+    public void setUp() {
+        MockitoAnnotations.openMocks(this);
+        meterRegistry = new SimpleMeterRegistry();
+        productCatalog = new ProductCatalog(shopMockServiceClient, new CatalogConfig(), meterRegistry);
+    }
+
+    @Test
+    void should_load_catalog_once_for_subsequent_snapshots() {
+        Product product = ProductDataProvider.getSimpleProduct();
+
+        when(shopMockServiceClient.getAllProducts()).thenReturn(Flux.just(product));
+
+        StepVerifier.create(productCatalog.snapshot())
+                .expectNextMatches(snapshot -> snapshot.products().equals(List.of(product)))
+                .verifyComplete();
+        StepVerifier.create(productCatalog.snapshot())
+                .expectNextMatches(snapshot -> snapshot.version() == 1)
+                .verifyComplete();
+
+        verify(shopMockServiceClient, times(1)).getAllProducts();
+    }
+
+    @Test
+    void should_swap_snapshot_on_refresh() {
+        Product product = ProductDataProvider.getSimpleProduct();
+        Product updated = product.toBuilder().price(BigDecimal.valueOf(99)).build();
+
+        when(shopMockServiceClient.getAllProducts()).thenReturn(Flux.just(product), Flux.just(updated));
+
+        StepVerifier.create(productCatalog.snapshot().then(productCatalog.refresh()))
+                .expectNextMatches(snapshot -> snapshot.version() == 2)
+                .verifyComplete();
+        StepVerifier.create(productCatalog.snapshot())
+                .expectNextMatches(snapshot -> snapshot.version() == 2)
+                .verifyComplete();
+    }
+
+    @Test
+    void should_keep_snapshot_if_upstream_is_unchanged() {
+        Product product = ProductDataProvider.getSimpleProduct();
+
+        when(shopMockServiceClient.getAllProducts()).thenReturn(Flux.just(product));
+
+        CatalogSnapshot loaded = productCatalog.snapshot().block();
+        productCatalog.scheduledRefresh();
+
+        Assertions.assertSame(loaded, productCatalog.snapshot().block());
+        Assertions.assertEquals(1, meterRegistry.get("catalog.load.phase").tag("phase", "index").timer().count());
+        Assertions.assertEquals(2, meterRegistry.get("catalog.load.phase").tag("phase", "fetch").timer().count());
+    }
+
+    @Test
+    void should_keep_previous_snapshot_if_refresh_fails() {
+        Product product = ProductDataProvider.getSimpleProduct();
+
+        when(shopMockServiceClient.getAllProducts())
+                .thenReturn(Flux.just(product))
+                .thenReturn(Flux.error(new RuntimeException("Some error")));
+
+        CatalogSnapshot loaded = productCatalog.snapshot().block();
+        Assertions.assertNull(productCatalog.staleness(loaded));
+        productCatalog.scheduledRefresh();
+
+        StepVerifier.create(productCatalog.snapshot())
+                .expectNextMatches(snapshot -> snapshot.version() == 1 && snapshot.size() == 1)
+                .verifyComplete();
+        Assertions.assertNotNull(productCatalog.staleness(loaded));
+    }
+
+    @Test
+    void should_apply_delta_as_upserts_and_deletes() {
+        CatalogConfig config = new CatalogConfig();
+        config.setSyncMode(CatalogConfig.SyncMode.DELTA);
+        productCatalog = new ProductCatalog(shopMockServiceClient, config, meterRegistry);
+        Product kept = ProductDataProvider.getSimpleProduct();
+        Product deleted = kept.toBuilder().id(UUID.randomUUID()).build();
+        Product updated = kept.toBuilder().price(BigDecimal.valueOf(99)).updatedAt(kept.getUpdatedAt().plusHours(1)).build();
+        Product added = kept.toBuilder().id(UUID.randomUUID()).updatedAt(kept.getUpdatedAt().plusHours(1)).build();
+
+        when(shopMockServiceClient.getAllProducts()).thenReturn(Flux.just(kept, deleted));
+        when(shopMockServiceClient.getProductChanges(kept.getUpdatedAt()))
+                .thenReturn(Mono.just(new ProductChanges(null, List.of(updated, added), List.of(deleted.getId()))));
+        when(shopMockServiceClient.getProductChanges(kept.getUpdatedAt().plusHours(1)))
+                .thenReturn(Mono.just(new ProductChanges(null, List.of(), List.of())));
+
+        productCatalog.snapshot().block();
+        productCatalog.scheduledRefresh();
+
+        CatalogSnapshot synced = productCatalog.snapshot().block();
+        Assertions.assertEquals(List.of(updated, added), synced.products());
+        Assertions.assertArrayEquals(new int[]{0}, synced.priceIndex().range(PriceRange.of(BigDecimal.valueOf(50), null)));
+        productCatalog.scheduledRefresh();
+        Assertions.assertSame(synced, productCatalog.snapshot().block());
+        verify(shopMockServiceClient, times(1)).getAllProducts();
+    }
+
+    @Test
+    void should_patch_small_deltas_and_compact_once_changes_pile_up() {
+        CatalogConfig config = new CatalogConfig();
+        config.setSyncMode(CatalogConfig.SyncMode.DELTA);
+        config.setCompactionRatio(0.5);
+        productCatalog = new ProductCatalog(shopMockServiceClient, config, meterRegistry);
+        Product kept = ProductDataProvider.getSimpleProduct();
+        List<Product> others = IntStream.range(0, 3)
+                .mapToObj(i -> kept.toBuilder().id(UUID.randomUUID()).build())
+                .toList();
+        Product updated = kept.toBuilder().price(BigDecimal.valueOf(99)).updatedAt(kept.getUpdatedAt().plusHours(1)).build();
+        Product added = kept.toBuilder().id(UUID.randomUUID()).updatedAt(kept.getUpdatedAt().plusHours(2)).build();
+
+        when(shopMockServiceClient.getAllProducts()).thenReturn(Flux.concat(Flux.just(kept), Flux.fromIterable(others)));
+        when(shopMockServiceClient.getProductChanges(kept.getUpdatedAt()))
+                .thenReturn(Mono.just(new ProductChanges(null, List.of(updated), List.of())));
+        when(shopMockServiceClient.getProductChanges(kept.getUpdatedAt().plusHours(1)))
+                .thenReturn(Mono.just(new ProductChanges(null, List.of(added), List.of(others.get(0).getId()))));
+
+        productCatalog.snapshot().block();
+        productCatalog.scheduledRefresh();
+
+        CatalogSnapshot patched = productCatalog.snapshot().block();
+        Assertions.assertFalse(patched.isFullBuild());
+        Assertions.assertEquals(1, patched.changedSinceBuild());
+        Assertions.assertEquals(updated, patched.product(0));
+
+        productCatalog.scheduledRefresh();
+
+        CatalogSnapshot compacted = productCatalog.snapshot().block();
+        Assertions.assertTrue(compacted.isFullBuild());
+        Assertions.assertEquals(3, compacted.version());
+        Assertions.assertEquals(List.of(updated, others.get(1), others.get(2), added), compacted.products());
+        Assertions.assertEquals(2, meterRegistry.get("catalog.load.phase").tag("phase", "patch").timer().count());
+        Assertions.assertEquals(2, meterRegistry.get("catalog.load.phase").tag("phase", "index").timer().count());
+    }
+
+    @Test
+    void should_resync_whole_catalog_on_change_log_gap() {
+        CatalogConfig config = new CatalogConfig();
+        config.setSyncMode(CatalogConfig.SyncMode.DELTA);
+        productCatalog = new ProductCatalog(shopMockServiceClient, config, meterRegistry);
+        Product product = ProductDataProvider.getSimpleProduct();
+        Product updated = product.toBuilder().price(BigDecimal.valueOf(99)).build();
+
+        when(shopMockServiceClient.getAllProducts()).thenReturn(Flux.just(product), Flux.just(updated));
+        when(shopMockServiceClient.getProductChanges(any()))
+                .thenReturn(Mono.error(new ChangeLogGapException("Gap")));
+
+        productCatalog.snapshot().block();
+        productCatalog.scheduledRefresh();
+
+        StepVerifier.create(productCatalog.snapshot())
+                .expectNextMatches(snapshot -> snapshot.version() == 2)
+                .verifyComplete();
+        verify(shopMockServiceClient, times(2)).getAllProducts();
+    }
+
+    @Test
+    void should_serve_restored_snapshot_until_first_sync(@TempDir Path directory) throws IOException {
+        Product product = ProductDataProvider.getSimpleProduct();
+        CatalogConfig config = new CatalogConfig();
+        config.setSnapshotFile(directory.resolve("catalog.snapshot"));
+        new CatalogSnapshotFile(config.getSnapshotFile()).write(new CatalogSnapshotFile.Contents(
+                CatalogSnapshot.build(5, Instant.now(), List.of(product)), product.getUpdatedAt(), Instant.now()));
+        productCatalog = new ProductCatalog(shopMockServiceClient, config, meterRegistry);
+        Product updated = product.toBuilder().price(BigDecimal.valueOf(99)).build();
+
+        when(shopMockServiceClient.getAllProducts()).thenReturn(Flux.just(updated));
+
+        productCatalog.restore();
+        CatalogSnapshot restored = productCatalog.snapshot().block();
+        Assertions.assertEquals(5, restored.version());
+        Assertions.assertEquals(List.of(product), restored.products());
+        Assertions.assertNotNull(productCatalog.staleness(restored));
+        verify(shopMockServiceClient, times(0)).getAllProducts();
+
+        productCatalog.scheduledRefresh();
+
+        CatalogSnapshot synced = productCatalog.snapshot().block();
+        Assertions.assertEquals(6, synced.version());
+        Assertions.assertNull(productCatalog.staleness(synced));
+        Assertions.assertEquals(6, awaitPersistedVersion(config.getSnapshotFile(), 6));
+    }
+
+    @Test
+    void should_start_cold_if_snapshot_file_is_unreadable(@TempDir Path directory) throws IOException {
+        Product product = ProductDataProvider.getSimpleProduct();
+        CatalogConfig config = new CatalogConfig();
+        config.setSnapshotFile(Files.writeString(directory.resolve("catalog.snapshot"), "not a snapshot"));
+        productCatalog = new ProductCatalog(shopMockServiceClient, config, meterRegistry);
+
+        when(shopMockServiceClient.getAllProducts()).thenReturn(Flux.just(product));
+
+        productCatalog.restore();
+
+        StepVerifier.create(productCatalog.snapshot())
+                .expectNextMatches(snapshot -> snapshot.version() == 1)
+                .verifyComplete();
+        Assertions.assertEquals(1, awaitPersistedVersion(config.getSnapshotFile(), 1));
+    }
+
+    private static long awaitPersistedVersion(Path path, long version) {
+        CatalogSnapshotFile file = new CatalogSnapshotFile(path);
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        long persisted = persistedVersion(file);
+        while (persisted != version && System.nanoTime() < deadline) {
+            LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(10));
+            persisted = persistedVersion(file);
+        }
+        return persisted;
+    }
+
+    private static long persistedVersion(CatalogSnapshotFile file) {
+        try {
+            return file.read().map(contents -> contents.snapshot().version()).orElse(-1L);
+        } catch (IOException e) {
+            return -1;
+        }
+    }
+
+    @Test
+    void should_expose_snapshot_gauges() {
+        Product product = ProductDataProvider.getSimpleProduct();
+
+        when(shopMockServiceClient.getAllProducts()).thenReturn(Flux.just(product, product));
+
+        productCatalog.snapshot().block();
+
+        Assertions.assertEquals(2.0, meterRegistry.get("catalog.snapshot.size").gauge().value());
+        Assertions.assertTrue(meterRegistry.get("catalog.snapshot.age").gauge().value() >= 0);
+    }
+}
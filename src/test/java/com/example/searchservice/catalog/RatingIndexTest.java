@@ -0,0 +1,44 @@
+package com.example.searchservice.catalog;
+
+import com.example.searchservice.model.Product;
+import com.example.searchservice.model.Review;
+import com.example.searchservice.model.ReviewStats;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.List;
+
+class RatingIndexTest {
+
+    private final RatingIndex ratingIndex = RatingIndex.build(List.of(
+            product(5, 4),
+            product(),
+            product(3),
+            product(4, 4, 5),
+            product(5)
+    ));
+
+    @Test
+    void should_precompute_review_stats() {
+        Assertions.assertEquals(new ReviewStats(2, 9, 4.5), ratingIndex.stats(0));
+        Assertions.assertEquals(ReviewStats.EMPTY, ratingIndex.stats(1));
+        Assertions.assertEquals(13.0 / 3, ratingIndex.average(3));
+    }
+
+    @Test
+    void should_return_ordinals_with_average_at_least_threshold() {
+        Assertions.assertArrayEquals(new int[]{0, 3, 4}, ratingIndex.atLeast(4.3));
+        Assertions.assertArrayEquals(new int[]{0, 4}, ratingIndex.atLeast(4.34));
+        Assertions.assertArrayEquals(new int[]{0, 1, 2, 3, 4}, ratingIndex.atLeast(0.0));
+        Assertions.assertEquals(0, ratingIndex.atLeast(6.0).length);
+    }
+
+    private static Product product(int... ratings) {
+        return Product.builder()
+                .reviews(Arrays.stream(ratings)
+                        .mapToObj(rating -> Review.builder().rating(rating).build())
+                        .toList())
+                .build();
+    }
+}
@@ -0,0 +1,83 @@
+package com.example.searchservice.catalog;
+
+import com.example.searchservice.model.Manufacturer;
+import com.example.searchservice.model.Product;
+import com.example.searchservice.model.Review;
+import com.example.searchservice.model.Suggestion;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.stream.IntStream;
+
+class SuggestIndexTest {
+
+    @Test
+    void should_complete_names_by_review_count_then_rating() {
+        List<Product> products = List.of(
+                product("Apple Watch", "Apple", 5),
+                product("Applesauce", "Mott's", 4, 4),
+                product("apple watch", "Apple", 3),
+                product("Banana", "Chiquita", 5, 5, 5),
+                product("Äpfel", "Obsthof", 2)
+        );
+        SuggestIndex suggestIndex = SuggestIndex.build(products, RatingIndex.build(products));
+
+        Assertions.assertEquals(List.of(
+                new Suggestion("Apple", Suggestion.Kind.MANUFACTURER, 2, 4.0),
+                new Suggestion("Apple Watch", Suggestion.Kind.PRODUCT, 2, 4.0),
+                new Suggestion("Applesauce", Suggestion.Kind.PRODUCT, 2, 4.0)
+        ), suggestIndex.complete("  APP", 10));
+        Assertions.assertEquals(List.of(new Suggestion("Apple Watch", Suggestion.Kind.PRODUCT, 2, 4.0)),
+                suggestIndex.complete("apple ", 10));
+        Assertions.assertEquals(List.of(new Suggestion("Apple", Suggestion.Kind.MANUFACTURER, 2, 4.0)),
+                suggestIndex.complete("app", 1));
+        Assertions.assertEquals(List.of(new Suggestion("Äpfel", Suggestion.Kind.PRODUCT, 1, 2.0)),
+                suggestIndex.complete("äp", 10));
+        Assertions.assertTrue(suggestIndex.complete("cherry", 10).isEmpty());
+        Assertions.assertEquals(8, suggestIndex.size());
+    }
+
+    @Test
+    void should_match_brute_force_top_completions() {
+        Random random = new Random(7);
+        List<Product> products = IntStream.range(0, 2000)
+                .mapToObj(i -> product(randomName(random), null, random.ints(random.nextInt(4), 1, 6).toArray()))
+                .toList();
+        SuggestIndex suggestIndex = SuggestIndex.build(products, RatingIndex.build(products));
+        List<Suggestion> all = suggestIndex.complete("", Integer.MAX_VALUE);
+
+        for (String prefix : List.of("a", "b", "ab", "cab", "abc", "d")) {
+            List<Suggestion> expected = new ArrayList<>(all.stream()
+                    .filter(suggestion -> suggestion.text().toLowerCase(Locale.ROOT).startsWith(prefix))
+                    .toList());
+            expected.sort(Comparator.comparingInt(Suggestion::reviews).thenComparingDouble(Suggestion::rating)
+                    .reversed()
+                    .thenComparing(suggestion -> suggestion.text().toLowerCase(Locale.ROOT)));
+            Assertions.assertEquals(expected.subList(0, Math.min(5, expected.size())),
+                    suggestIndex.complete(prefix, 5), prefix);
+        }
+    }
+
+    private static String randomName(Random random) {
+        char[] name = new char[1 + random.nextInt(5)];
+        for (int i = 0; i < name.length; i++) {
+            name[i] = (char) ('a' + random.nextInt(4));
+        }
+        return new String(name);
+    }
+
+    private static Product product(String name, String manufacturer, int... ratings) {
+        return Product.builder()
+                .name(name)
+                .manufacturer(manufacturer == null ? null : Manufacturer.builder().name(manufacturer).build())
+                .reviews(IntStream.of(ratings)
+                        .mapToObj(rating -> Review.builder().rating(rating).build())
+                        .toList())
+                .build();
+    }
+}
@@ -0,0 +1,83 @@
+package com.example.searchservice.catalog;
+
+import com.example.searchservice.model.Product;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.List;
+import java.util.UUID;
+
+class TextIndexTest {
+
+    private final List<Product> products = List.of(
+            product(1, "Wireless Mouse", "A compact wireless mouse for the office"),
+            product(2, "Gaming Keyboard", "Mechanical keyboard with wireless receiver"),
+            product(3, "Mouse Pad", "Large pad for any mouse"),
+            product(4, "USB Cable", "Braided cable")
+    );
+
+    private final TextIndex textIndex = TextIndex.build(products, null);
+
+    @Test
+    void should_rank_products_by_bm25() {
+        List<TextIndex.TextHit> hits = textIndex.search("wireless mouse", 10);
+
+        Assertions.assertEquals(List.of(0, 2, 1), hits.stream().map(TextIndex.TextHit::ordinal).toList());
+        Assertions.assertTrue(hits.get(0).score() > hits.get(1).score());
+    }
+
+    @Test
+    void should_return_top_k_only() {
+        Assertions.assertEquals(List.of(0), textIndex.search("wireless mouse", 1).stream()
+                .map(TextIndex.TextHit::ordinal)
+                .toList());
+    }
+
+    @Test
+    void should_ignore_case_and_stop_words() {
+        Assertions.assertEquals(1, textIndex.search("THE cable", 10).size());
+        Assertions.assertTrue(textIndex.search("the with for", 10).isEmpty());
+    }
+
+    @Test
+    void should_match_misspelled_terms_when_fuzzy() {
+        Assertions.assertTrue(textIndex.search("wirelss keybaord", 10).isEmpty());
+        Assertions.assertEquals(List.of(1, 0), textIndex.search("wirelss keybaord", 10, true).stream()
+                .map(TextIndex.TextHit::ordinal)
+                .toList());
+    }
+
+    @Test
+    void should_require_quoted_phrases_to_match_consecutively() {
+        Assertions.assertEquals(List.of(0), textIndex.search("\"wireless mouse\"", 10).stream()
+                .map(TextIndex.TextHit::ordinal)
+                .toList());
+        Assertions.assertTrue(textIndex.search("\"mouse wireless\"", 10).isEmpty());
+    }
+
+    @Test
+    void should_reuse_analysis_of_unchanged_products_on_refresh() {
+        CatalogSnapshot previous = CatalogSnapshot.build(1, Instant.now(), products);
+        Product changed = product(2, "Gaming Keyboard", "Optical keyboard");
+        CatalogSnapshot next = CatalogSnapshot.build(2, Instant.now(),
+                List.of(products.get(0), changed, products.get(2), products.get(3)), previous);
+
+        Assertions.assertSame(previous.textIndex().document(0), next.textIndex().document(0));
+        Assertions.assertNotSame(previous.textIndex().document(1), next.textIndex().document(1));
+        Assertions.assertEquals(List.of(1), next.textIndex().search("optical", 10).stream()
+                .map(TextIndex.TextHit::ordinal)
+                .toList());
+        Assertions.assertTrue(next.textIndex().search("mechanical", 10).isEmpty());
+    }
+
+    private static Product product(long id, String name, String description) {
+        return Product.builder()
+                .id(new UUID(0, id))
+                .name(name)
+                .description(description)
+                .price(BigDecimal.TEN)
+                .build();
+    }
+}
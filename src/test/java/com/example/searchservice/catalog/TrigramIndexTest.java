@@ -0,0 +1,50 @@
+package com.example.searchservice.catalog;
+
+import com.example.searchservice.model.NameMatch;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.stream.IntStream;
+
+class TrigramIndexTest {
+
+    @Test
+    void should_return_terms_within_edits_closest_first() {
+        TrigramIndex trigramIndex = new TrigramIndex(new String[]{"samsung", "samsong", "sony", "samsnug", "apple"});
+
+        Assertions.assertArrayEquals(new int[]{0, 1, 3}, trigramIndex.within("samsung", 2));
+        Assertions.assertArrayEquals(new int[]{2}, trigramIndex.within("sny", 1));
+        Assertions.assertArrayEquals(new int[]{4}, trigramIndex.within("apple", 0));
+        Assertions.assertEquals(0, trigramIndex.within("microsoft", 2).length);
+    }
+
+    @Test
+    void should_find_every_term_brute_force_finds() {
+        Random random = new Random(11);
+        String[] terms = IntStream.range(0, 3000).mapToObj(i -> randomTerm(random)).distinct().toArray(String[]::new);
+        TrigramIndex trigramIndex = new TrigramIndex(terms);
+
+        for (int query = 0; query < 200; query++) {
+            String term = randomTerm(random);
+            for (int maxEdits = 0; maxEdits <= 2; maxEdits++) {
+                int edits = maxEdits;
+                int[] expected = IntStream.range(0, terms.length)
+                        .filter(id -> NameMatch.withinEdits(term, terms[id], edits))
+                        .toArray();
+                int[] actual = trigramIndex.within(term, maxEdits).clone();
+                Arrays.sort(actual);
+                Assertions.assertArrayEquals(expected, actual, term + " within " + maxEdits);
+            }
+        }
+    }
+
+    private static String randomTerm(Random random) {
+        char[] term = new char[1 + random.nextInt(7)];
+        for (int i = 0; i < term.length; i++) {
+            term[i] = (char) ('a' + random.nextInt(3));
+        }
+        return new String(term);
+    }
+}
@@ -0,0 +1,34 @@
+package com.example.searchservice.client;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Flux;
+import reactor.test.StepVerifier;
+
+class ShopClientMetricsTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final ShopClientMetrics metrics = new ShopClientMetrics(meterRegistry);
+
+    @Test
+    void should_record_latency_and_product_count_of_successful_exchange() {
+        StepVerifier.create(metrics.instrument("games", Flux.just("a", "b", "c")))
+                .expectNextCount(3)
+                .verifyComplete();
+
+        Assertions.assertEquals(1, meterRegistry.get("shop.client.requests")
+                .tags("endpoint", "games", "outcome", "SUCCESS").timer().count());
+        Assertions.assertEquals(3, meterRegistry.get("shop.client.response.products")
+                .tag("endpoint", "games").summary().totalAmount());
+    }
+
+    @Test
+    void should_tag_failed_exchange_with_exception_class() {
+        StepVerifier.create(metrics.instrument("games", Flux.error(new IllegalStateException("boom"))))
+                .verifyError(IllegalStateException.class);
+
+        Assertions.assertEquals(1, meterRegistry.get("shop.client.requests")
+                .tags("endpoint", "games", "outcome", "ERROR", "exception", "IllegalStateException").timer().count());
+    }
+}
@@ -0,0 +1,168 @@
+package com.example.searchservice.client;
+
+import com.example.searchservice.ProductDataProvider;
+import com.example.searchservice.error.ChangeLogGapException;
+import com.example.searchservice.error.ExternalServiceUnavailableException;
+import com.example.searchservice.model.Product;
+import io.github.resilience4j.circuitbreaker.CallNotPermittedException;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerConfig;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.net.URI;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+class ShopMockServiceClientTest {
+
+    private final AtomicInteger exchanges = new AtomicInteger();
+
+    private ShopMockServiceClient client;
+
+    @BeforeEach
+    public void setUp() {
+        WebClient.Builder webClientBuilder = WebClient.builder()
+                .exchangeFunction(request -> {
+                    exchanges.incrementAndGet();
+                    return Mono.just(ClientResponse.create(HttpStatus.SERVICE_UNAVAILABLE).build());
+                });
+        ShopMockServiceClientConfig config = new ShopMockServiceClientConfig();
+        config.setUrl("http://shop-mock-service");
+        CircuitBreakerRegistry circuitBreakerRegistry = CircuitBreakerRegistry.of(CircuitBreakerConfig.custom()
+                .slidingWindowSize(4)
+                .minimumNumberOfCalls(4)
+                .build());
+        client = new ShopMockServiceClient(webClientBuilder, config, circuitBreakerRegistry, new SimpleMeterRegistry());
+    }
+
+    @Test
+    void should_decode_upstream_payload_straight_into_products() {
+        String body = """
+                [{"id":"f70ca4ca-f88a-4316-8cf1-25313931b2ec","name":"Product 1","description":"description 1",
+                  "price":10.0,"manufacturer":{"id":"4fb221e8-0c1f-4e6c-9624-706853fbb4af","name":"Manufacturer 1",
+                  "address":"Address 1","contact":"test@address.com"},"categories":["BABY_PRODUCTS","AUTOMOTIVE"],
+                  "createdAt":"2023-10-19T19:00:00","updatedAt":"2023-10-19T19:00:00",
+                  "reviews":[{"reviewerName":"Reviewer 1","comment":"Comment 1","rating":5,
+                  "reviewDate":"2023-10-19T19:00:00"}]}]
+                """;
+        WebClient.Builder webClientBuilder = WebClient.builder()
+                .exchangeFunction(request -> Mono.just(ClientResponse.create(HttpStatus.OK)
+                        .header(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+                        .body(body)
+                        .build()));
+        ShopMockServiceClientConfig config = new ShopMockServiceClientConfig();
+        config.setUrl("http://shop-mock-service");
+        ShopMockServiceClient client = new ShopMockServiceClient(webClientBuilder, config,
+                CircuitBreakerRegistry.ofDefaults(), new SimpleMeterRegistry());
+
+        StepVerifier.create(client.getAllProducts())
+                .expectNext(ProductDataProvider.getSimpleProduct())
+                .verifyComplete();
+    }
+
+    @Test
+    void should_not_decode_review_stats_sent_by_upstream() {
+        String body = """
+                [{"id":"f70ca4ca-f88a-4316-8cf1-25313931b2ec","name":"Product 1","price":10.0,
+                  "reviewStats":{"count":1000,"ratingSum":5000,"average":5.0}}]
+                """;
+        WebClient.Builder webClientBuilder = WebClient.builder()
+                .exchangeFunction(request -> Mono.just(ClientResponse.create(HttpStatus.OK)
+                        .header(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+                        .body(body)
+                        .build()));
+        ShopMockServiceClientConfig config = new ShopMockServiceClientConfig();
+        config.setUrl("http://shop-mock-service");
+        ShopMockServiceClient client = new ShopMockServiceClient(webClientBuilder, config,
+                CircuitBreakerRegistry.ofDefaults(), new SimpleMeterRegistry());
+
+        StepVerifier.create(client.getAllProducts())
+                .assertNext(product -> Assertions.assertNull(product.getReviewStats()))
+                .verifyComplete();
+    }
+
+    @Test
+    void should_revalidate_feeds_and_reuse_decoded_products_when_not_modified() {
+        String body = """
+                [{"id":"f70ca4ca-f88a-4316-8cf1-25313931b2ec","name":"Product 1","price":10.0}]
+                """;
+        String lastModified = "Thu, 19 Oct 2023 19:00:00 GMT";
+        List<HttpHeaders> requestHeaders = new ArrayList<>();
+        WebClient.Builder webClientBuilder = WebClient.builder()
+                .exchangeFunction(request -> {
+                    requestHeaders.add(request.headers());
+                    if ("\"v1\"".equals(request.headers().getFirst(HttpHeaders.IF_NONE_MATCH))) {
+                        return Mono.just(ClientResponse.create(HttpStatus.NOT_MODIFIED).build());
+                    }
+                    return Mono.just(ClientResponse.create(HttpStatus.OK)
+                            .header(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+                            .header(HttpHeaders.ETAG, "\"v1\"")
+                            .header(HttpHeaders.LAST_MODIFIED, lastModified)
+                            .body(body)
+                            .build());
+                });
+        ShopMockServiceClientConfig config = new ShopMockServiceClientConfig();
+        config.setUrl("http://shop-mock-service");
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        ShopMockServiceClient client = new ShopMockServiceClient(webClientBuilder, config,
+                CircuitBreakerRegistry.ofDefaults(), meterRegistry);
+
+        List<Product> first = client.getAllProducts().collectList().block();
+        List<Product> second = client.getAllProducts().collectList().block();
+
+        Assertions.assertFalse(requestHeaders.get(0).containsKey(HttpHeaders.IF_NONE_MATCH));
+        Assertions.assertEquals("\"v1\"", requestHeaders.get(1).getFirst(HttpHeaders.IF_NONE_MATCH));
+        Assertions.assertEquals(lastModified, requestHeaders.get(1).getFirst(HttpHeaders.IF_MODIFIED_SINCE));
+        Assertions.assertEquals(1, second.size());
+        Assertions.assertSame(first.get(0), second.get(0));
+        Assertions.assertEquals(1, meterRegistry.get("shop.client.not.modified").tag("endpoint", "products")
+                .counter().count());
+
+        client.getAllGameProducts().blockLast();
+        Assertions.assertFalse(requestHeaders.get(2).containsKey(HttpHeaders.IF_NONE_MATCH));
+    }
+
+    @Test
+    void should_request_changes_since_watermark_and_report_gaps() {
+        List<URI> requested = new ArrayList<>();
+        WebClient.Builder webClientBuilder = WebClient.builder()
+                .exchangeFunction(request -> {
+                    requested.add(request.url());
+                    return Mono.just(ClientResponse.create(HttpStatus.GONE).build());
+                });
+        ShopMockServiceClientConfig config = new ShopMockServiceClientConfig();
+        config.setUrl("http://shop-mock-service/products");
+        ShopMockServiceClient client = new ShopMockServiceClient(webClientBuilder, config,
+                CircuitBreakerRegistry.ofDefaults(), new SimpleMeterRegistry());
+
+        StepVerifier.create(client.getProductChanges(LocalDateTime.of(2023, 10, 19, 19, 0)))
+                .verifyError(ChangeLogGapException.class);
+        Assertions.assertEquals(URI.create("http://shop-mock-service/products/changes?since=2023-10-19T19:00"),
+                requested.get(0));
+    }
+
+    @Test
+    void should_fail_fast_once_circuit_is_open() {
+        for (int i = 0; i < 4; i++) {
+            StepVerifier.create(client.getAllProducts())
+                    .verifyError(ExternalServiceUnavailableException.class);
+        }
+
+        StepVerifier.create(client.getAllGameProducts())
+                .verifyError(CallNotPermittedException.class);
+        Assertions.assertFalse(client.isCircuitClosed());
+        Assertions.assertEquals(4, exchanges.get());
+    }
+}
@@ -0,0 +1,82 @@
+package com.example.searchservice.client;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Sinks;
+import reactor.test.StepVerifier;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+class SingleFlightTest {
+
+    private MeterRegistry meterRegistry;
+    private SingleFlight singleFlight;
+
+    @BeforeEach
+    public void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        singleFlight = new SingleFlight(meterRegistry);
+    }
+
+    @Test
+    void should_share_in_flight_exchange_between_concurrent_callers() {
+        AtomicInteger calls = new AtomicInteger();
+        Sinks.Many<Integer> upstream = Sinks.many().replay().all();
+        Flux<Integer> first = singleFlight.execute("products", () -> {
+            calls.incrementAndGet();
+            return upstream.asFlux();
+        });
+        Flux<Integer> second = singleFlight.execute("products", () -> {
+            calls.incrementAndGet();
+            return upstream.asFlux();
+        });
+
+        List<Integer> firstReceived = new ArrayList<>();
+        List<Integer> secondReceived = new ArrayList<>();
+        first.subscribe(firstReceived::add);
+        upstream.tryEmitNext(1);
+        second.subscribe(secondReceived::add);
+        upstream.tryEmitNext(2);
+        upstream.tryEmitComplete();
+
+        Assertions.assertEquals(List.of(1, 2), firstReceived);
+        Assertions.assertEquals(List.of(1, 2), secondReceived);
+        Assertions.assertEquals(1, calls.get());
+    }
+
+    @Test
+    void should_start_new_exchange_after_previous_completed() {
+        AtomicInteger calls = new AtomicInteger();
+
+        for (int i = 0; i < 2; i++) {
+            StepVerifier.create(singleFlight.execute("products", () -> {
+                        calls.incrementAndGet();
+                        return Flux.just(1);
+                    }))
+                    .expectNext(1)
+                    .verifyComplete();
+        }
+
+        Assertions.assertEquals(2, calls.get());
+    }
+
+    @Test
+    void should_record_coalesced_calls_and_fan_out() {
+        Sinks.Many<Integer> upstream = Sinks.many().unicast().onBackpressureBuffer();
+        Flux<Integer> call = singleFlight.execute("games", upstream::asFlux);
+
+        call.subscribe();
+        call.subscribe();
+        call.subscribe();
+        upstream.tryEmitComplete();
+
+        Assertions.assertEquals(2.0, meterRegistry.get("shop.client.coalesced.calls").tag("endpoint", "games").counter().count());
+        Assertions.assertEquals(3.0, meterRegistry.get("shop.client.exchange.fanout").tag("endpoint", "games").summary().max());
+    }
+}
@@ -0,0 +1,77 @@
+package com.example.searchservice.config;
+
+import com.example.searchservice.client.ShopMockServiceHttpConfig;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Mono;
+import reactor.netty.DisposableServer;
+import reactor.netty.http.server.HttpServer;
+import reactor.netty.resources.ConnectionProvider;
+import reactor.test.StepVerifier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class AppConfigTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private DisposableServer server;
+    private ConnectionProvider connectionProvider;
+
+    @BeforeEach
+    void setUp() {
+        Metrics.addRegistry(meterRegistry);
+        server = HttpServer.create()
+                .port(0)
+                .compress(true)
+                .route(routes -> routes.get("/encoding", (request, response) -> response
+                        .sendString(Mono.just(String.valueOf(request.requestHeaders().get("Accept-Encoding"))))))
+                .bindNow();
+        connectionProvider = new AppConfig().shopMockServiceConnectionProvider(new ShopMockServiceHttpConfig());
+    }
+
+    @AfterEach
+    void tearDown() {
+        connectionProvider.disposeLater().block();
+        server.disposeNow();
+        Metrics.removeRegistry(meterRegistry);
+    }
+
+    @Test
+    void shouldRequestGzipAndDecompressTransparently() {
+        String url = "http://localhost:" + server.port();
+
+        StepVerifier.create(AppConfig.webClientBuilder(connectionProvider, new ShopMockServiceHttpConfig(), url)
+                        .baseUrl(url)
+                        .build()
+                        .get()
+                        .uri("/encoding")
+                        .retrieve()
+                        .bodyToMono(String.class))
+                .assertNext(encoding -> assertThat(encoding).contains("gzip"))
+                .verifyComplete();
+    }
+
+    @Test
+    void shouldExportPoolMetrics() {
+        String url = "http://localhost:" + server.port();
+
+        AppConfig.webClientBuilder(connectionProvider, new ShopMockServiceHttpConfig(), url)
+                .baseUrl(url)
+                .build()
+                .get()
+                .uri("/encoding")
+                .retrieve()
+                .bodyToMono(String.class)
+                .block();
+
+        assertThat(meterRegistry.find("reactor.netty.connection.provider.active.connections")
+                .tag("name", AppConfig.CONNECTION_POOL).gauge()).isNotNull();
+        assertThat(meterRegistry.find("reactor.netty.connection.provider.idle.connections")
+                .tag("name", AppConfig.CONNECTION_POOL).gauge()).isNotNull();
+        assertThat(meterRegistry.find("reactor.netty.connection.provider.pending.connections")
+                .tag("name", AppConfig.CONNECTION_POOL).gauge()).isNotNull();
+    }
+}
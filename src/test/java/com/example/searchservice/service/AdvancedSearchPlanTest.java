@@ -0,0 +1,103 @@
+package com.example.searchservice.service;
+
+import com.example.searchservice.catalog.CatalogSnapshot;
+import com.example.searchservice.model.AdvancedSearchRequestBody;
+import com.example.searchservice.model.Category;
+import com.example.searchservice.model.Manufacturer;
+import com.example.searchservice.model.Product;
+import com.example.searchservice.model.QueryPlan;
+import com.example.searchservice.model.Review;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+class AdvancedSearchPlanTest {
+
+    private final CatalogSnapshot snapshot = CatalogSnapshot.build(1, Instant.EPOCH, catalog());
+
+    @Test
+    void should_drive_scan_from_most_selective_index() {
+        QueryPlan plan = AdvancedSearchPlan.plan(snapshot, new AdvancedSearchRequestBody(
+                "Rare", BigDecimal.valueOf(100), List.of(Category.ELECTRONICS), 1.0)).explain();
+
+        Assertions.assertEquals("manufacturer", plan.steps().get(0).predicate());
+        Assertions.assertEquals(QueryPlan.Access.INDEX, plan.steps().get(0).access());
+        Assertions.assertEquals(List.of("categories", "price", "reviewRate"),
+                plan.steps().stream().skip(1).map(QueryPlan.Step::predicate).toList());
+        Assertions.assertEquals(5, plan.steps().get(0).estimatedRows());
+        Assertions.assertEquals(5, plan.steps().get(0).actualRows());
+        Assertions.assertEquals(5, plan.actualRows());
+    }
+
+    @Test
+    void should_return_same_rows_as_explained() {
+        AdvancedSearchRequestBody body = new AdvancedSearchRequestBody(null, null, List.of(Category.ELECTRONICS), 4.0,
+                BigDecimal.valueOf(10), BigDecimal.valueOf(60), null, null, null, null);
+        AdvancedSearchPlan plan = AdvancedSearchPlan.plan(snapshot, body);
+
+        int[] ordinals = plan.ordinals().toArray();
+
+        Assertions.assertEquals(plan.explain().actualRows(), ordinals.length);
+        for (int ordinal : ordinals) {
+            Product product = snapshot.product(ordinal);
+            Assertions.assertTrue(product.getCategories().contains(Category.ELECTRONICS));
+            Assertions.assertTrue(product.getPrice().compareTo(BigDecimal.valueOf(10)) >= 0);
+            Assertions.assertTrue(product.getPrice().compareTo(BigDecimal.valueOf(60)) <= 0);
+        }
+    }
+
+    @Test
+    void should_plan_empty_result_for_unknown_manufacturer() {
+        QueryPlan plan = AdvancedSearchPlan.plan(snapshot, new AdvancedSearchRequestBody(
+                "Unknown", null, List.of(), null)).explain();
+
+        Assertions.assertEquals(1, plan.steps().size());
+        Assertions.assertEquals(0, plan.estimatedRows());
+        Assertions.assertEquals(0, plan.actualRows());
+    }
+
+    @Test
+    void should_scan_everything_without_predicates() {
+        QueryPlan plan = AdvancedSearchPlan.plan(snapshot, new AdvancedSearchRequestBody(null, null, null, null)).explain();
+
+        Assertions.assertEquals(QueryPlan.Access.FULL_SCAN, plan.steps().get(0).access());
+        Assertions.assertEquals(snapshot.size(), plan.actualRows());
+    }
+
+    @Test
+    void should_scan_several_plans_together_like_each_alone() {
+        List<AdvancedSearchPlan> plans = List.of(
+                AdvancedSearchPlan.plan(snapshot, new AdvancedSearchRequestBody("Rare", null, null, null)),
+                AdvancedSearchPlan.plan(snapshot, new AdvancedSearchRequestBody(null, BigDecimal.valueOf(40),
+                        List.of(Category.BOOKS), null)),
+                AdvancedSearchPlan.plan(snapshot, new AdvancedSearchRequestBody(null, null, null, null)));
+        int[] scanned = new int[1];
+
+        int[][] matches = AdvancedSearchPlan.scanTogether(snapshot, plans, ordinal -> scanned[0]++);
+
+        Assertions.assertEquals(snapshot.size(), scanned[0]);
+        for (int i = 0; i < plans.size(); i++) {
+            Assertions.assertArrayEquals(plans.get(i).ordinals().toArray(), matches[i]);
+        }
+    }
+
+    private static List<Product> catalog() {
+        List<Product> products = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            products.add(Product.builder()
+                    .id(new UUID(0, i))
+                    .name("Product " + i)
+                    .price(BigDecimal.valueOf(i))
+                    .manufacturer(Manufacturer.builder().name(i % 20 == 0 ? "Rare" : "Common").build())
+                    .categories(i % 2 == 0 ? List.of(Category.ELECTRONICS) : List.of(Category.BOOKS))
+                    .reviews(List.of(Review.builder().rating(1 + i % 5).build()))
+                    .build());
+        }
+        return products;
+    }
+}
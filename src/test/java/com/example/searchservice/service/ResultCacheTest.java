@@ -0,0 +1,139 @@
+package com.example.searchservice.service;
+
+import com.example.searchservice.ProductDataProvider;
+import com.example.searchservice.catalog.CatalogSnapshot;
+import com.example.searchservice.catalog.PriceRange;
+import com.example.searchservice.model.Product;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.util.unit.DataSize;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Predicate;
+
+class ResultCacheTest {
+
+    private final ResultCacheConfig config = new ResultCacheConfig();
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final AtomicInteger selections = new AtomicInteger();
+
+    private ResultCache resultCache;
+
+    @BeforeEach
+    public void setUp() {
+        config.setMaxEntries(2);
+        resultCache = new ResultCache(config, meterRegistry);
+    }
+
+    @Test
+    void should_evict_least_recently_used_page_beyond_max_entries() {
+        get(1, "a");
+        get(1, "b");
+        get(1, "a");
+        get(1, "c");
+        get(1, "a");
+        get(1, "b");
+
+        Assertions.assertEquals(4, selections.get());
+        Assertions.assertEquals(2, resultCache.size());
+        Assertions.assertEquals(2.0, meterRegistry.get("search.cache.evictions").tag("cause", "size").counter().count());
+    }
+
+    @Test
+    void should_evict_by_weight_and_skip_pages_heavier_than_the_cache() {
+        config.setMaxEntries(100);
+        config.setMaxWeight(DataSize.ofBytes(500));
+
+        CatalogSnapshot snapshot = snapshot(1);
+        resultCache.get(snapshot, "small", ProductMatch.any(), () -> page(10));
+        resultCache.get(snapshot, "medium", ProductMatch.any(), () -> page(60));
+        resultCache.get(snapshot, "huge", ProductMatch.any(), () -> page(1000));
+
+        Assertions.assertEquals(1, resultCache.size());
+        Assertions.assertTrue(resultCache.weight() <= 500);
+        Assertions.assertEquals(1.0, meterRegistry.get("search.cache.evictions").tag("cause", "weight").counter().count());
+    }
+
+    @Test
+    void should_drop_all_pages_when_catalog_version_changes() {
+        get(1, "a");
+        get(2, "a");
+        get(1, "a");
+        get(2, "a");
+
+        Assertions.assertEquals(3, selections.get());
+        Assertions.assertEquals(1.0, meterRegistry.get("search.cache.evictions").tag("cause", "catalog-change").counter().count());
+        Assertions.assertEquals(1.0, meterRegistry.get("search.cache.requests").tag("result", "hit").counter().count());
+    }
+
+    @Test
+    void should_keep_pages_a_patch_cannot_change() {
+        Product product = ProductDataProvider.getSimpleProduct();
+        Product cheaper = product.toBuilder().price(BigDecimal.valueOf(5)).build();
+        CatalogSnapshot built = CatalogSnapshot.build(1, Instant.now(), List.of(product));
+        CatalogSnapshot patched = built.patch(2, Instant.now(), List.of(cheaper), List.of());
+        CatalogSnapshot compacted = CatalogSnapshot.build(3, Instant.now(), patched.products(), patched);
+        Predicate<Product> expensive = ProductMatch.price(PriceRange.of(BigDecimal.valueOf(50), null));
+        Predicate<Product> cheap = ProductMatch.price(PriceRange.of(null, BigDecimal.valueOf(20)));
+
+        get(built, "expensive", expensive);
+        get(built, "cheap", cheap);
+        get(patched, "expensive", expensive);
+        get(patched, "cheap", cheap);
+        get(compacted, "expensive", expensive);
+
+        Assertions.assertEquals(4, selections.get());
+        Assertions.assertEquals(1.0, meterRegistry.get("search.cache.requests").tag("result", "hit").counter().count());
+        Assertions.assertEquals(3.0, meterRegistry.get("search.cache.evictions").tag("cause", "catalog-change").counter().count());
+    }
+
+    @Test
+    void should_stay_within_bounds_under_concurrent_lookups_and_stores() throws InterruptedException {
+        config.setMaxEntries(50);
+        CatalogSnapshot snapshot = snapshot(1);
+        Thread[] threads = new Thread[4];
+        for (int t = 0; t < threads.length; t++) {
+            int seed = t;
+            threads[t] = new Thread(() -> {
+                for (int i = 0; i < 10_000; i++) {
+                    String key = Integer.toString((i * 31 + seed) % 200);
+                    resultCache.get(snapshot, key, ProductMatch.any(), () -> page(key.length()));
+                }
+            });
+            threads[t].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        Assertions.assertEquals(50, resultCache.size());
+        double hits = meterRegistry.get("search.cache.requests").tag("result", "hit").counter().count();
+        double misses = meterRegistry.get("search.cache.requests").tag("result", "miss").counter().count();
+        Assertions.assertEquals(40_000.0, hits + misses);
+        Assertions.assertTrue(hits > 0);
+    }
+
+    private void get(long version, String key) {
+        get(snapshot(version), key, ProductMatch.any());
+    }
+
+    private void get(CatalogSnapshot snapshot, String key, Predicate<Product> matches) {
+        resultCache.get(snapshot, key, matches, () -> {
+            selections.incrementAndGet();
+            return page(1);
+        });
+    }
+
+    private static CatalogSnapshot snapshot(long version) {
+        return CatalogSnapshot.build(version, Instant.now(), List.of());
+    }
+
+    private static ResultPager.Page page(int size) {
+        return new ResultPager.Page(new int[size], null);
+    }
+}
@@ -0,0 +1,96 @@
+package com.example.searchservice.service;
+
+import com.example.searchservice.catalog.CatalogSnapshot;
+import com.example.searchservice.error.InvalidCursorException;
+import com.example.searchservice.model.Product;
+import com.example.searchservice.model.SearchOptions;
+import com.example.searchservice.model.SortDirection;
+import com.example.searchservice.model.SortField;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.IntStream;
+
+class ResultPagerTest {
+
+    private final CatalogSnapshot snapshot = CatalogSnapshot.build(1, Instant.EPOCH, List.of(
+            product(1, "Delta", "30"),
+            product(2, "Alpha", "10"),
+            product(3, "Echo", "20"),
+            product(4, "Bravo", "10"),
+            product(5, "Charlie", "50")
+    ));
+
+    @Test
+    void should_page_through_catalog_order_with_cursor() {
+        ResultPager.Page first = page(new SearchOptions(null, 2, null, null, null));
+        ResultPager.Page second = page(new SearchOptions(null, 2, null, null, first.nextCursor()));
+        ResultPager.Page third = page(new SearchOptions(null, 2, null, null, second.nextCursor()));
+
+        Assertions.assertArrayEquals(new int[]{0, 1}, first.ordinals());
+        Assertions.assertArrayEquals(new int[]{2, 3}, second.ordinals());
+        Assertions.assertArrayEquals(new int[]{4}, third.ordinals());
+        Assertions.assertNull(third.nextCursor());
+    }
+
+    @Test
+    void should_return_sorted_top_k_and_continue_after_ties() {
+        ResultPager.Page first = page(new SearchOptions(null, 2, SortField.PRICE, SortDirection.ASC, null));
+        ResultPager.Page second = page(new SearchOptions(null, 2, SortField.PRICE, SortDirection.ASC, first.nextCursor()));
+
+        Assertions.assertArrayEquals(new int[]{1, 3}, first.ordinals());
+        Assertions.assertArrayEquals(new int[]{2, 0}, second.ordinals());
+        Assertions.assertNotNull(second.nextCursor());
+    }
+
+    @Test
+    void should_sort_descending_by_name() {
+        ResultPager.Page page = page(new SearchOptions(null, 3, SortField.NAME, SortDirection.DESC, null));
+
+        Assertions.assertArrayEquals(new int[]{2, 0, 4}, page.ordinals());
+    }
+
+    @Test
+    void should_resume_after_same_product_when_catalog_changed() {
+        String cursor = page(new SearchOptions(null, 2, null, null, null)).nextCursor();
+        CatalogSnapshot refreshed = CatalogSnapshot.build(2, Instant.EPOCH, List.of(
+                product(9, "New", "1"),
+                product(1, "Delta", "30"),
+                product(2, "Alpha", "10"),
+                product(3, "Echo", "20")
+        ));
+
+        ResultPager.Page page = ResultPager.page(OrdinalSource.of(refreshed), IntStream.range(0, refreshed.size()),
+                new SearchOptions(null, 2, null, null, cursor));
+
+        Assertions.assertArrayEquals(new int[]{3}, page.ordinals());
+    }
+
+    @Test
+    void should_reject_malformed_or_mismatched_cursor() {
+        String sortedCursor = page(new SearchOptions(null, 1, SortField.PRICE, null, null)).nextCursor();
+
+        Assertions.assertThrows(InvalidCursorException.class,
+                () -> page(new SearchOptions(null, 1, null, null, "not-a-cursor")));
+        Assertions.assertThrows(InvalidCursorException.class,
+                () -> page(new SearchOptions(null, 1, SortField.NAME, null, sortedCursor)));
+        Assertions.assertThrows(InvalidCursorException.class,
+                () -> page(new SearchOptions(null, 1, null, null, sortedCursor)));
+    }
+
+    private ResultPager.Page page(SearchOptions options) {
+        return ResultPager.page(OrdinalSource.of(snapshot), IntStream.range(0, snapshot.size()), options);
+    }
+
+    private static Product product(long id, String name, String price) {
+        return Product.builder()
+                .id(new UUID(0, id))
+                .name(name)
+                .price(new BigDecimal(price))
+                .build();
+    }
+}
@@ -1,23 +1,43 @@
 package com.example.searchservice.service;
 
 import com.example.searchservice.ProductDataProvider;
+import com.example.searchservice.catalog.CatalogConfig;
+import com.example.searchservice.catalog.ProductCatalog;
 import com.example.searchservice.client.ShopMockServiceClient;
-import com.example.searchservice.dto.ProductDTO;
-import com.example.searchservice.mapper.ProductAdapter;
 import com.example.searchservice.model.AdvancedSearchRequestBody;
+import com.example.searchservice.model.BatchSearchRequest;
+import com.example.searchservice.model.BatchSearchResult;
 import com.example.searchservice.model.Category;
+import com.example.searchservice.model.Facets;
+import com.example.searchservice.model.NameMatch;
 import com.example.searchservice.model.Product;
+import com.example.searchservice.model.ReviewStats;
+import com.example.searchservice.model.ReviewView;
+import com.example.searchservice.model.SearchOptions;
+import com.example.searchservice.model.SearchPage;
+import com.example.searchservice.model.SortDirection;
+import com.example.searchservice.model.SortField;
+import com.example.searchservice.model.Suggestion;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
-import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
 import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
 import reactor.test.StepVerifier;
 
 import java.math.BigDecimal;
+import java.time.Duration;
 import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicBoolean;
 
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 class SearchServiceTest {
@@ -25,55 +45,90 @@ class SearchServiceTest {
     @Mock
     private ShopMockServiceClient shopMockServiceClient;
 
-    @Mock
-    private ProductAdapter productAdapter;
+    private SimpleMeterRegistry meterRegistry;
+
+    private ProductCatalog productCatalog;
+
+    private ExternalMergeConfig externalMergeConfig;
 
-    @InjectMocks
     private SearchService searchService;
 
     @BeforeEach
     public void setUp() {
         MockitoAnnotations.openMocks(this);
+        meterRegistry = new SimpleMeterRegistry();
+        when(shopMockServiceClient.isCircuitClosed()).thenReturn(true);
+        productCatalog = new ProductCatalog(shopMockServiceClient, new CatalogConfig(), meterRegistry);
+        externalMergeConfig = new ExternalMergeConfig();
+        searchService = new SearchService(productCatalog, shopMockServiceClient, new SearchMetrics(meterRegistry),
+                externalMergeConfig, new ResultCache(new ResultCacheConfig(), meterRegistry));
     }
 
     @Test
     void should_get_all_products_including_external() {
-        ProductDTO productDTO = ProductDataProvider.getSimpleProductDTO();
         Product product = ProductDataProvider.getSimpleProduct();
 
-        when(shopMockServiceClient.getAllProducts()).thenReturn(Flux.just(productDTO));
-        when(shopMockServiceClient.getAllGameProducts()).thenReturn(Flux.just(productDTO));
-        when(shopMockServiceClient.getAllSoftwareToolProducts()).thenReturn(Flux.just(productDTO));
-        when(shopMockServiceClient.getAllHardwareProducts()).thenReturn(Flux.just(productDTO));
-        when(productAdapter.adaptToEntity(productDTO)).thenReturn(product);
+        when(shopMockServiceClient.getAllProducts()).thenReturn(Flux.just(product));
+        when(shopMockServiceClient.getAllGameProducts()).thenReturn(Flux.just(product));
+        when(shopMockServiceClient.getAllSoftwareToolProducts()).thenReturn(Flux.just(product));
+        when(shopMockServiceClient.getAllHardwareProducts()).thenReturn(Flux.just(product));
 
-        StepVerifier.create(searchService.getAllProductsWithExternalOnes())
+        StepVerifier.create(searchService.getAllProductsWithExternalOnes(SearchOptions.DEFAULT).flatMapMany(SearchPage::products))
                 .expectNext(product)
                 .verifyComplete();
     }
 
+    @Test
+    void should_deduplicate_external_products_by_id() {
+        Product product = ProductDataProvider.getSimpleProduct();
+        Product updatedCopy = product.toBuilder().description("updated description").build();
+
+        when(shopMockServiceClient.getAllProducts()).thenReturn(Flux.just(product));
+        when(shopMockServiceClient.getAllGameProducts()).thenReturn(Flux.just(updatedCopy));
+        when(shopMockServiceClient.getAllSoftwareToolProducts()).thenReturn(Flux.empty());
+        when(shopMockServiceClient.getAllHardwareProducts()).thenReturn(Flux.empty());
+
+        StepVerifier.create(searchService.getAllProductsWithExternalOnes(SearchOptions.DEFAULT).flatMapMany(SearchPage::products))
+                .expectNextCount(1)
+                .verifyComplete();
+        Assertions.assertEquals(1, meterRegistry.get("search.dedup.memory").summary().count());
+    }
+
+    @Test
+    void should_keep_copy_from_highest_priority_source() {
+        Product product = ProductDataProvider.getSimpleProduct();
+        Product gameCopy = product.toBuilder().description("game copy").build();
+        externalMergeConfig.setDedup(ExternalMergeConfig.DedupPolicy.SOURCE_PRIORITY);
+        externalMergeConfig.setSources(List.of(ExternalSource.GAMES, ExternalSource.PRODUCTS));
+
+        when(shopMockServiceClient.getAllProducts()).thenReturn(Flux.just(product));
+        when(shopMockServiceClient.getAllGameProducts()).thenReturn(Flux.just(gameCopy).delayElements(Duration.ofMillis(50)));
+
+        StepVerifier.create(searchService.getAllProductsWithExternalOnes(SearchOptions.DEFAULT).flatMapMany(SearchPage::products))
+                .expectNext(gameCopy)
+                .verifyComplete();
+    }
+
     @Test
     void should_return_error_if_one_of_subsequent_products_return_error() {
-        ProductDTO productDTO = ProductDataProvider.getSimpleProductDTO();
+        Product product = ProductDataProvider.getSimpleProduct();
         when(shopMockServiceClient.getAllProducts()).thenReturn(Flux.error(new RuntimeException("Some error")));
-        when(shopMockServiceClient.getAllGameProducts()).thenReturn(Flux.just(productDTO));
-        when(shopMockServiceClient.getAllSoftwareToolProducts()).thenReturn(Flux.just(productDTO));
-        when(shopMockServiceClient.getAllHardwareProducts()).thenReturn(Flux.just(productDTO));
+        when(shopMockServiceClient.getAllGameProducts()).thenReturn(Flux.just(product));
+        when(shopMockServiceClient.getAllSoftwareToolProducts()).thenReturn(Flux.just(product));
+        when(shopMockServiceClient.getAllHardwareProducts()).thenReturn(Flux.just(product));
 
-        StepVerifier.create(searchService.getAllProductsWithExternalOnes())
+        StepVerifier.create(searchService.getAllProductsWithExternalOnes(SearchOptions.DEFAULT).flatMapMany(SearchPage::products))
                 .expectErrorMatches(err -> "Some error".equals(err.getMessage()))
                 .verify();
     }
 
     @Test
     void should_get_all_products() {
-        ProductDTO productDTO = ProductDataProvider.getSimpleProductDTO();
         Product product = ProductDataProvider.getSimpleProduct();
 
-        when(shopMockServiceClient.getAllProducts()).thenReturn(Flux.just(productDTO));
-        when(productAdapter.adaptToEntity(productDTO)).thenReturn(product);
+        when(shopMockServiceClient.getAllProducts()).thenReturn(Flux.just(product));
 
-        StepVerifier.create(searchService.getAllProducts())
+        StepVerifier.create(searchService.getAllProducts(SearchOptions.DEFAULT).flatMapMany(SearchPage::products))
                 .expectNext(product)
                 .verifyComplete();
     }
@@ -82,7 +137,7 @@ class SearchServiceTest {
     void should_return_empty_if_no_data_retrieved() {
         when(shopMockServiceClient.getAllProducts()).thenReturn(Flux.empty());
 
-        StepVerifier.create(searchService.getAllProducts())
+        StepVerifier.create(searchService.getAllProducts(SearchOptions.DEFAULT).flatMapMany(SearchPage::products))
                 .verifyComplete();
     }
 
@@ -90,147 +145,455 @@ class SearchServiceTest {
     void should_return_error_if_all_products_return_error() {
         when(shopMockServiceClient.getAllProducts()).thenReturn(Flux.error(new RuntimeException("Some error")));
 
-        StepVerifier.create(searchService.getAllProducts())
+        StepVerifier.create(searchService.getAllProducts(SearchOptions.DEFAULT).flatMapMany(SearchPage::products))
                 .expectErrorMatches(err -> "Some error".equals(err.getMessage()))
                 .verify();
     }
 
-    @Test
-    void should_return_error_if_mapping_returned_error() {
-        ProductDTO productDTO = ProductDataProvider.getSimpleProductDTO();
-
-        when(shopMockServiceClient.getAllProducts()).thenReturn(Flux.just(productDTO));
-        when(productAdapter.adaptToEntity(productDTO)).thenThrow(new RuntimeException("Some error"));
-
-        StepVerifier.create(searchService.getAllProducts())
-                .expectErrorMatches(err -> "Some error".equals(err.getMessage()))
-                .verify();
-    }
 
     @Test
     void should_get_all_products_by_category() {
-        ProductDTO productDTO = ProductDataProvider.getSimpleProductDTO();
         Product product = ProductDataProvider.getSimpleProduct();
 
-        when(shopMockServiceClient.getAllProducts()).thenReturn(Flux.just(productDTO));
-        when(productAdapter.adaptToEntity(productDTO)).thenReturn(product);
+        when(shopMockServiceClient.getAllProducts()).thenReturn(Flux.just(product));
 
-        StepVerifier.create(searchService.getProductsByCategory(List.of(Category.BABY_PRODUCTS)))
+        StepVerifier.create(searchService.getProductsByCategory(List.of(Category.BABY_PRODUCTS), SearchOptions.DEFAULT).flatMapMany(SearchPage::products))
                 .expectNext(product)
                 .verifyComplete();
     }
 
     @Test
     void should_return_empty_if_category_does_not_match() {
-        ProductDTO productDTO = ProductDataProvider.getSimpleProductDTO();
         Product product = ProductDataProvider.getSimpleProduct();
 
-        when(shopMockServiceClient.getAllProducts()).thenReturn(Flux.just(productDTO));
-        when(productAdapter.adaptToEntity(productDTO)).thenReturn(product);
+        when(shopMockServiceClient.getAllProducts()).thenReturn(Flux.just(product));
 
-        StepVerifier.create(searchService.getProductsByCategory(List.of(Category.ARTS_CRAFTS)))
+        StepVerifier.create(searchService.getProductsByCategory(List.of(Category.ARTS_CRAFTS), SearchOptions.DEFAULT).flatMapMany(SearchPage::products))
                 .verifyComplete();
     }
 
     @Test
     void should_get_all_products_by_price() {
-        ProductDTO productDTO = ProductDataProvider.getSimpleProductDTO();
         Product product = ProductDataProvider.getSimpleProduct();
 
-        when(shopMockServiceClient.getAllProducts()).thenReturn(Flux.just(productDTO));
-        when(productAdapter.adaptToEntity(productDTO)).thenReturn(product);
+        when(shopMockServiceClient.getAllProducts()).thenReturn(Flux.just(product));
 
-        StepVerifier.create(searchService.getProductsByPrice(BigDecimal.valueOf(11)))
+        StepVerifier.create(searchService.getProductsByPrice(BigDecimal.valueOf(11), SearchOptions.DEFAULT).flatMapMany(SearchPage::products))
                 .expectNext(product)
                 .verifyComplete();
     }
 
     @Test
     void should_return_empty_if_price_is_higher() {
-        ProductDTO productDTO = ProductDataProvider.getSimpleProductDTO();
         Product product = ProductDataProvider.getSimpleProduct();
 
-        when(shopMockServiceClient.getAllProducts()).thenReturn(Flux.just(productDTO));
-        when(productAdapter.adaptToEntity(productDTO)).thenReturn(product);
+        when(shopMockServiceClient.getAllProducts()).thenReturn(Flux.just(product));
+
+        StepVerifier.create(searchService.getProductsByPrice(BigDecimal.ONE, SearchOptions.DEFAULT).flatMapMany(SearchPage::products))
+                .verifyComplete();
+    }
+
+    @Test
+    void should_get_all_products_by_price_range() {
+        Product product = ProductDataProvider.getSimpleProduct();
+
+        when(shopMockServiceClient.getAllProducts()).thenReturn(Flux.just(product));
+
+        StepVerifier.create(searchService.getProductsByPriceRange(BigDecimal.valueOf(10), BigDecimal.valueOf(11), SearchOptions.DEFAULT).flatMapMany(SearchPage::products))
+                .expectNext(product)
+                .verifyComplete();
+    }
+
+    @Test
+    void should_load_products_without_price_and_leave_them_out_of_price_filters() {
+        Product product = ProductDataProvider.getSimpleProduct();
+        Product unpriced = product.toBuilder().id(UUID.randomUUID()).price(null).build();
+
+        when(shopMockServiceClient.getAllProducts()).thenReturn(Flux.just(unpriced, product));
 
-        StepVerifier.create(searchService.getProductsByPrice(BigDecimal.ONE))
+        StepVerifier.create(searchService.getProductsByPriceRange(null, BigDecimal.valueOf(20), SearchOptions.DEFAULT)
+                        .flatMapMany(SearchPage::products))
+                .expectNext(product)
+                .verifyComplete();
+        StepVerifier.create(searchService.getProductsByCategory(List.of(Category.AUTOMOTIVE), SearchOptions.DEFAULT)
+                        .flatMapMany(SearchPage::products))
+                .expectNext(unpriced, product)
+                .verifyComplete();
+        AdvancedSearchRequestBody byPrice = new AdvancedSearchRequestBody(null, null, null, null, null, null, null,
+                SortField.PRICE, SortDirection.ASC, null);
+        StepVerifier.create(searchService.getProductsAdvancedSearch(byPrice, byPrice.searchOptions(SearchOptions.DEFAULT))
+                        .flatMapMany(SearchPage::products))
+                .expectNext(product, unpriced)
+                .verifyComplete();
+    }
+
+    @Test
+    void should_return_empty_if_price_is_below_min_price() {
+        Product product = ProductDataProvider.getSimpleProduct();
+
+        when(shopMockServiceClient.getAllProducts()).thenReturn(Flux.just(product));
+
+        StepVerifier.create(searchService.getProductsByPriceRange(BigDecimal.valueOf(10.01), null, SearchOptions.DEFAULT).flatMapMany(SearchPage::products))
                 .verifyComplete();
     }
 
+    @Test
+    void should_wait_for_the_first_catalog_load_instead_of_scanning_upstream() {
+        Product product = ProductDataProvider.getSimpleProduct();
+        Sinks.One<Product> upstream = Sinks.one();
+
+        when(shopMockServiceClient.getAllProducts()).thenReturn(upstream.asMono().flux());
+        productCatalog.refresh().subscribe();
+
+        Mono<List<Product>> byPrice = searchService.getProductsByPrice(BigDecimal.valueOf(11), SearchOptions.DEFAULT)
+                .flatMap(page -> page.products().collectList());
+        Mono<List<Product>> byManufacturer = searchService.getProductsByManufacturer("Manufacturer 1", NameMatch.EXACT,
+                SearchOptions.DEFAULT).flatMap(page -> page.products().collectList());
+        StepVerifier.create(Mono.zip(byPrice, byManufacturer))
+                .then(() -> upstream.tryEmitValue(product))
+                .assertNext(results -> {
+                    Assertions.assertEquals(List.of(product), results.getT1());
+                    Assertions.assertEquals(List.of(product), results.getT2());
+                })
+                .verifyComplete();
+        verify(shopMockServiceClient, times(1)).getAllProducts();
+    }
+
     @Test
     void should_get_all_products_by_manufacturer() {
-        ProductDTO productDTO = ProductDataProvider.getSimpleProductDTO();
         Product product = ProductDataProvider.getSimpleProduct();
 
-        when(shopMockServiceClient.getAllProducts()).thenReturn(Flux.just(productDTO));
-        when(productAdapter.adaptToEntity(productDTO)).thenReturn(product);
+        when(shopMockServiceClient.getAllProducts()).thenReturn(Flux.just(product));
 
-        StepVerifier.create(searchService.getProductsByManufacturer("Manufacturer 1"))
+        StepVerifier.create(searchService.getProductsByManufacturer("Manufacturer 1", NameMatch.EXACT, SearchOptions.DEFAULT).flatMapMany(SearchPage::products))
                 .expectNext(product)
                 .verifyComplete();
     }
 
     @Test
     void should_return_empty_if_manufacturer_does_not_match() {
-        ProductDTO productDTO = ProductDataProvider.getSimpleProductDTO();
         Product product = ProductDataProvider.getSimpleProduct();
 
-        when(shopMockServiceClient.getAllProducts()).thenReturn(Flux.just(productDTO));
-        when(productAdapter.adaptToEntity(productDTO)).thenReturn(product);
+        when(shopMockServiceClient.getAllProducts()).thenReturn(Flux.just(product));
 
-        StepVerifier.create(searchService.getProductsByManufacturer("Manufacturer 2"))
+        StepVerifier.create(searchService.getProductsByManufacturer("Manufacturer 2", NameMatch.EXACT, SearchOptions.DEFAULT).flatMapMany(SearchPage::products))
+                .verifyComplete();
+    }
+
+    @Test
+    void should_get_all_products_by_manufacturer_prefix_ignoring_case() {
+        Product product = ProductDataProvider.getSimpleProduct();
+
+        when(shopMockServiceClient.getAllProducts()).thenReturn(Flux.just(product));
+
+        StepVerifier.create(searchService.getProductsByManufacturer("manufacturer", new NameMatch(true, true), SearchOptions.DEFAULT).flatMapMany(SearchPage::products))
+                .expectNext(product)
                 .verifyComplete();
     }
 
     @Test
     void should_get_all_products_by_reviews() {
-        ProductDTO productDTO = ProductDataProvider.getSimpleProductDTO();
         Product product = ProductDataProvider.getSimpleProduct();
 
-        when(shopMockServiceClient.getAllProducts()).thenReturn(Flux.just(productDTO));
-        when(productAdapter.adaptToEntity(productDTO)).thenReturn(product);
+        when(shopMockServiceClient.getAllProducts()).thenReturn(Flux.just(product));
 
-        StepVerifier.create(searchService.getProductsByReviews(4.0))
+        StepVerifier.create(searchService.getProductsByReviews(4.0, SearchOptions.DEFAULT).flatMapMany(SearchPage::products))
                 .expectNext(product)
                 .verifyComplete();
     }
 
+    @Test
+    void should_include_review_stats_instead_of_reviews() {
+        Product product = ProductDataProvider.getSimpleProduct();
+
+        when(shopMockServiceClient.getAllProducts()).thenReturn(Flux.just(product));
+
+        StepVerifier.create(searchService.getProductsByReviews(4.0, SearchOptions.of(ReviewView.STATS_ONLY)).flatMapMany(SearchPage::products))
+                .expectNextMatches(result -> result.getReviews() == null &&
+                        new ReviewStats(1, 5, 5.0).equals(result.getReviewStats()))
+                .verifyComplete();
+    }
+
     @Test
     void should_return_empty_if_review_does_not_match() {
-        ProductDTO productDTO = ProductDataProvider.getSimpleProductDTO();
         Product product = ProductDataProvider.getSimpleProduct();
 
-        when(shopMockServiceClient.getAllProducts()).thenReturn(Flux.just(productDTO));
-        when(productAdapter.adaptToEntity(productDTO)).thenReturn(product);
+        when(shopMockServiceClient.getAllProducts()).thenReturn(Flux.just(product));
 
-        StepVerifier.create(searchService.getProductsByReviews(6.0))
+        StepVerifier.create(searchService.getProductsByReviews(6.0, SearchOptions.DEFAULT).flatMapMany(SearchPage::products))
+                .verifyComplete();
+    }
+
+    @Test
+    void should_get_products_by_text_query() {
+        Product product = ProductDataProvider.getSimpleProduct();
+
+        when(shopMockServiceClient.getAllProducts()).thenReturn(Flux.just(product));
+
+        StepVerifier.create(searchService.searchText("Description", false, SearchOptions.DEFAULT).flatMapMany(SearchPage::products))
+                .expectNext(product)
                 .verifyComplete();
     }
 
     @Test
     void should_get_all_products_by_advanced_details() {
-        ProductDTO productDTO = ProductDataProvider.getSimpleProductDTO();
         Product product = ProductDataProvider.getSimpleProduct();
 
-        when(shopMockServiceClient.getAllProducts()).thenReturn(Flux.just(productDTO));
-        when(productAdapter.adaptToEntity(productDTO)).thenReturn(product);
+        when(shopMockServiceClient.getAllProducts()).thenReturn(Flux.just(product));
 
         StepVerifier.create(searchService.getProductsAdvancedSearch(
-                        new AdvancedSearchRequestBody("Manufacturer 1", BigDecimal.valueOf(11), List.of(Category.BABY_PRODUCTS), 4.0)))
+                        new AdvancedSearchRequestBody("Manufacturer 1", BigDecimal.valueOf(11), List.of(Category.BABY_PRODUCTS), 4.0), SearchOptions.DEFAULT).flatMapMany(SearchPage::products))
                 .expectNext(product)
                 .verifyComplete();
     }
 
+    @Test
+    void should_return_empty_if_advanced_search_price_range_does_not_match() {
+        Product product = ProductDataProvider.getSimpleProduct();
+
+        when(shopMockServiceClient.getAllProducts()).thenReturn(Flux.just(product));
+
+        StepVerifier.create(searchService.getProductsAdvancedSearch(new AdvancedSearchRequestBody(
+                        null, null, List.of(), null, BigDecimal.valueOf(11), BigDecimal.valueOf(20), null, null, null, null), SearchOptions.DEFAULT).flatMapMany(SearchPage::products))
+                .verifyComplete();
+    }
+
     @Test
     void should_return_empty_if_any_of_advanced_search_does_not_match() {
-        ProductDTO productDTO = ProductDataProvider.getSimpleProductDTO();
         Product product = ProductDataProvider.getSimpleProduct();
 
-        when(shopMockServiceClient.getAllProducts()).thenReturn(Flux.just(productDTO));
-        when(productAdapter.adaptToEntity(productDTO)).thenReturn(product);
+        when(shopMockServiceClient.getAllProducts()).thenReturn(Flux.just(product));
 
         StepVerifier.create(searchService.getProductsAdvancedSearch(
-                        new AdvancedSearchRequestBody("Manufacturer 2", BigDecimal.ONE, List.of(Category.BABY_PRODUCTS), 4.0)))
+                        new AdvancedSearchRequestBody("Manufacturer 2", BigDecimal.ONE, List.of(Category.BABY_PRODUCTS), 4.0), SearchOptions.DEFAULT).flatMapMany(SearchPage::products))
+                .verifyComplete();
+    }
+
+    @Test
+    void should_count_advanced_search_facets_without_other_matches() {
+        Product product = ProductDataProvider.getSimpleProduct();
+        Product cheaper = product.toBuilder().id(UUID.randomUUID()).price(BigDecimal.valueOf(5))
+                .categories(List.of(Category.BABY_PRODUCTS)).build();
+        Product otherCategory = product.toBuilder().id(UUID.randomUUID()).categories(List.of(Category.BOOKS)).build();
+
+        when(shopMockServiceClient.getAllProducts()).thenReturn(Flux.just(product, cheaper, otherCategory));
+
+        StepVerifier.create(searchService.facetAdvancedSearch(
+                        new AdvancedSearchRequestBody(null, null, List.of(Category.BABY_PRODUCTS), null),
+                        List.of(BigDecimal.valueOf(100), BigDecimal.TEN), 10))
+                .assertNext(facets -> {
+                    Assertions.assertEquals(2, facets.matches());
+                    Assertions.assertEquals(List.of(Category.BABY_PRODUCTS, Category.AUTOMOTIVE),
+                            List.copyOf(facets.categories().keySet()));
+                    Assertions.assertEquals(List.of(2, 1), List.copyOf(facets.categories().values()));
+                    Assertions.assertEquals(List.of(new Facets.ManufacturerCount("Manufacturer 1", 2)),
+                            facets.manufacturers());
+                    Assertions.assertEquals(List.of(
+                            new Facets.PriceBucket(null, new BigDecimal("10.00"), 1),
+                            new Facets.PriceBucket(new BigDecimal("10.00"), new BigDecimal("100.00"), 1),
+                            new Facets.PriceBucket(new BigDecimal("100.00"), null, 0)), facets.prices());
+                })
+                .verifyComplete();
+    }
+
+    @Test
+    void should_merge_price_boundaries_equal_in_minor_units() {
+        Product product = ProductDataProvider.getSimpleProduct();
+        Product cheaper = product.toBuilder().id(UUID.randomUUID()).price(BigDecimal.valueOf(5)).build();
+        Product aCentMore = product.toBuilder().id(UUID.randomUUID()).price(new BigDecimal("10.01")).build();
+
+        when(shopMockServiceClient.getAllProducts()).thenReturn(Flux.just(product, cheaper, aCentMore));
+
+        StepVerifier.create(searchService.facetAdvancedSearch(new AdvancedSearchRequestBody(null, null, null, null),
+                        List.of(new BigDecimal("10.002"), BigDecimal.TEN, new BigDecimal("10.00"), new BigDecimal("10.001")), 10))
+                .assertNext(facets -> Assertions.assertEquals(List.of(
+                        new Facets.PriceBucket(null, new BigDecimal("10.00"), 1),
+                        new Facets.PriceBucket(new BigDecimal("10.00"), new BigDecimal("10.01"), 1),
+                        new Facets.PriceBucket(new BigDecimal("10.01"), null, 1)), facets.prices()))
+                .verifyComplete();
+    }
+
+    @Test
+    void should_answer_batch_queries_like_individual_ones_from_one_snapshot() {
+        Product product = ProductDataProvider.getSimpleProduct();
+        Product cheaper = product.toBuilder().id(UUID.randomUUID()).price(BigDecimal.valueOf(5))
+                .categories(List.of(Category.BABY_PRODUCTS)).build();
+        Product otherCategory = product.toBuilder().id(UUID.randomUUID()).categories(List.of(Category.BOOKS)).build();
+        AdvancedSearchRequestBody byPrice = new AdvancedSearchRequestBody(null, null, null, null, null, null,
+                null, SortField.PRICE, SortDirection.DESC, null);
+        AdvancedSearchRequestBody books = new AdvancedSearchRequestBody(null, null, List.of(Category.BOOKS), null);
+        AdvancedSearchRequestBody firstBaby = new AdvancedSearchRequestBody(null, null, List.of(Category.BABY_PRODUCTS),
+                null, null, null, 1, null, null, null);
+        List<BatchSearchRequest.Query> queries = List.of(
+                new BatchSearchRequest.Query("byPrice", byPrice),
+                new BatchSearchRequest.Query("books", books),
+                new BatchSearchRequest.Query("firstBaby", firstBaby));
+
+        when(shopMockServiceClient.getAllProducts()).thenReturn(Flux.just(product, cheaper, otherCategory));
+
+        BatchSearchResult result = searchService.batchAdvancedSearch(queries, SearchOptions.DEFAULT).block();
+
+        Assertions.assertEquals(productCatalog.snapshot().block().version(), result.catalogVersion());
+        Assertions.assertEquals(List.of("byPrice", "books", "firstBaby"),
+                result.results().stream().map(BatchSearchResult.QueryResult::id).toList());
+        for (int i = 0; i < queries.size(); i++) {
+            AdvancedSearchRequestBody body = queries.get(i).query();
+            SearchPage page = searchService.getProductsAdvancedSearch(body, body.searchOptions(SearchOptions.DEFAULT))
+                    .block();
+            Assertions.assertEquals(page.products().collectList().block(), result.results().get(i).products());
+            Assertions.assertEquals(page.nextCursor(), result.results().get(i).nextCursor());
+        }
+        Assertions.assertNotNull(result.results().get(2).nextCursor());
+        Assertions.assertEquals(3.0, meterRegistry.get("search.cache.requests").tag("result", "hit").counter().count());
+        // one shared pass for the two queries needing every match, two index rows for the limited one
+        Assertions.assertEquals(5, meterRegistry.get("search.rows.scanned").tag("query", "batch").summary().totalAmount());
+    }
+
+    @Test
+    void should_suggest_product_and_manufacturer_names() {
+        Product product = ProductDataProvider.getSimpleProduct();
+        Product unreviewed = product.toBuilder().id(UUID.randomUUID()).name("Manual").reviews(List.of()).build();
+
+        when(shopMockServiceClient.getAllProducts()).thenReturn(Flux.just(product, unreviewed));
+
+        StepVerifier.create(searchService.suggest("ma", 10))
+                .expectNext(List.of(
+                        new Suggestion("Manufacturer 1", Suggestion.Kind.MANUFACTURER, 1, 5.0),
+                        new Suggestion("Manual", Suggestion.Kind.PRODUCT, 0, 0.0)))
+                .verifyComplete();
+    }
+
+    @Test
+    void should_serve_equivalent_queries_from_result_cache_until_catalog_changes() {
+        Product product = ProductDataProvider.getSimpleProduct();
+        Product updated = product.toBuilder().price(BigDecimal.valueOf(99)).build();
+
+        when(shopMockServiceClient.getAllProducts()).thenReturn(Flux.just(product), Flux.just(updated));
+
+        SearchPage first = searchService.getProductsByCategory(List.of(Category.BABY_PRODUCTS, Category.AUTOMOTIVE),
+                SearchOptions.DEFAULT).block();
+        // unpaged matches stream straight from the index and are cached once fully emitted
+        StepVerifier.create(first.products()).expectNext(product).verifyComplete();
+        SearchPage second = searchService.getProductsByCategory(List.of(Category.AUTOMOTIVE, Category.BABY_PRODUCTS,
+                Category.AUTOMOTIVE), SearchOptions.DEFAULT).block();
+        productCatalog.refresh().block();
+        SearchPage refreshed = searchService.getProductsByCategory(List.of(Category.BABY_PRODUCTS, Category.AUTOMOTIVE),
+                SearchOptions.DEFAULT).block();
+
+        StepVerifier.create(second.products()).expectNext(product).verifyComplete();
+        Assertions.assertEquals(first.entityTag(), second.entityTag());
+        Assertions.assertNotEquals(first.entityTag(), refreshed.entityTag());
+        Assertions.assertEquals(1.0, meterRegistry.get("search.cache.requests").tag("result", "hit").counter().count());
+        Assertions.assertEquals(2.0, meterRegistry.get("search.cache.requests").tag("result", "miss").counter().count());
+    }
+
+    @Test
+    void should_keep_cached_pages_and_entity_tags_when_every_feed_is_not_modified() {
+        Product product = ProductDataProvider.getSimpleProduct();
+
+        // a 304 replays the products decoded from the previous response
+        when(shopMockServiceClient.getAllProducts()).thenReturn(Flux.just(product));
+
+        SearchPage first = searchService.getProductsByPriceRange(null, BigDecimal.valueOf(20),
+                SearchOptions.DEFAULT).block();
+        StepVerifier.create(first.products()).expectNext(product).verifyComplete();
+        long version = productCatalog.snapshot().block().version();
+        productCatalog.refresh().block();
+        SearchPage refreshed = searchService.getProductsByPriceRange(null, BigDecimal.valueOf(20),
+                SearchOptions.DEFAULT).block();
+
+        StepVerifier.create(refreshed.products()).expectNext(product).verifyComplete();
+        Assertions.assertEquals(version, productCatalog.snapshot().block().version());
+        Assertions.assertEquals(first.entityTag(), refreshed.entityTag());
+        Assertions.assertEquals(1.0, meterRegistry.get("search.cache.requests").tag("result", "hit").counter().count());
+        Assertions.assertEquals(1, meterRegistry.get("search.cache.size").gauge().value());
+    }
+
+    @Test
+    void should_emit_unpaged_matches_before_the_filters_finish() {
+        Product product = ProductDataProvider.getSimpleProduct();
+        Product other = product.toBuilder().id(UUID.randomUUID()).build();
+
+        when(shopMockServiceClient.getAllProducts()).thenReturn(Flux.just(product, other));
+
+        SearchPage page = searchService.getAllProducts(SearchOptions.DEFAULT).block();
+        StepVerifier.create(page.products().take(1)).expectNext(product).verifyComplete();
+        Assertions.assertEquals(1, meterRegistry.get("search.rows.scanned").tag("query", "all").summary().totalAmount());
+        Assertions.assertEquals(0, meterRegistry.get("search.cache.size").gauge().value());
+
+        StepVerifier.create(searchService.getAllProducts(SearchOptions.DEFAULT).flatMapMany(SearchPage::products))
+                .expectNext(product, other)
+                .verifyComplete();
+        Assertions.assertEquals(1, meterRegistry.get("search.cache.size").gauge().value());
+    }
+
+    @Test
+    void should_stop_consuming_external_products_once_limit_is_reached() {
+        Product product = ProductDataProvider.getSimpleProduct();
+        Product other = product.toBuilder().id(UUID.randomUUID()).build();
+        AtomicBoolean cancelled = new AtomicBoolean();
+
+        when(shopMockServiceClient.getAllProducts()).thenReturn(Flux.just(product, other)
+                .concatWith(Flux.never())
+                .doOnCancel(() -> cancelled.set(true)));
+        when(shopMockServiceClient.getAllGameProducts()).thenReturn(Flux.never());
+        when(shopMockServiceClient.getAllSoftwareToolProducts()).thenReturn(Flux.never());
+        when(shopMockServiceClient.getAllHardwareProducts()).thenReturn(Flux.never());
+
+        StepVerifier.create(searchService.getAllProductsWithExternalOnes(new SearchOptions(null, 1, null, null, null)))
+                .assertNext(page -> Assertions.assertNotNull(page.nextCursor()))
+                .verifyComplete();
+        Assertions.assertTrue(cancelled.get());
+    }
+
+    @Test
+    void should_return_next_cursor_for_paged_text_search() {
+        Product product = ProductDataProvider.getSimpleProduct();
+        Product other = product.toBuilder().id(UUID.randomUUID()).build();
+
+        when(shopMockServiceClient.getAllProducts()).thenReturn(Flux.just(product, other));
+
+        SearchPage first = searchService.searchText("Description", false, new SearchOptions(null, 1, null, null, null)).block();
+        Assertions.assertNotNull(first.nextCursor());
+        StepVerifier.create(searchService.searchText("Description", false, new SearchOptions(null, 1, null, null, first.nextCursor()))
+                        .flatMapMany(SearchPage::products))
+                .expectNextCount(1)
+                .verifyComplete();
+    }
+
+    @Test
+    void should_record_phase_timings_and_selectivity_per_query_type() {
+        Product product = ProductDataProvider.getSimpleProduct();
+
+        when(shopMockServiceClient.getAllProducts()).thenReturn(Flux.just(product));
+
+        StepVerifier.create(searchService.getProductsByReviews(6.0, SearchOptions.DEFAULT).flatMapMany(SearchPage::products))
+                .verifyComplete();
+        StepVerifier.create(searchService.getAllProducts(SearchOptions.DEFAULT).flatMapMany(SearchPage::products))
+                .expectNext(product)
+                .verifyComplete();
+
+        Assertions.assertEquals(1, meterRegistry.get("search.phase").tags("query", "all", "phase", "filter").timer().count());
+        Assertions.assertEquals(1, meterRegistry.get("search.phase").tags("query", "all", "phase", "map").timer().count());
+        Assertions.assertEquals(1, meterRegistry.get("search.rows.scanned").tag("query", "all").summary().totalAmount());
+        Assertions.assertEquals(0, meterRegistry.get("search.rows.returned").tag("query", "reviews").summary().totalAmount());
+        Assertions.assertEquals(1, meterRegistry.get("catalog.load.phase").tag("phase", "index").timer().count());
+    }
+
+    @Test
+    void should_serve_catalog_snapshot_with_staleness_while_circuit_is_open() {
+        Product product = ProductDataProvider.getSimpleProduct();
+
+        when(shopMockServiceClient.getAllProducts()).thenReturn(Flux.just(product));
+        searchService.getAllProducts(SearchOptions.DEFAULT).block();
+        when(shopMockServiceClient.isCircuitClosed()).thenReturn(false);
+
+        SearchPage page = searchService.getAllProductsWithExternalOnes(SearchOptions.DEFAULT).block();
+
+        Assertions.assertNotNull(page.staleness());
+        StepVerifier.create(page.products())
+                .expectNext(product)
                 .verifyComplete();
+        verify(shopMockServiceClient, never()).getAllGameProducts();
     }
 }
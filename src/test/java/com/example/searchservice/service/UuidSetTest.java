@@ -0,0 +1,52 @@
+package com.example.searchservice.service;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+import java.util.UUID;
+
+class UuidSetTest {
+
+    @Test
+    void should_report_only_first_occurrence_of_each_id_while_growing() {
+        UuidSet set = new UuidSet(100_000);
+        Set<UUID> expected = new HashSet<>();
+        Random random = new Random(7);
+        UUID[] ids = new UUID[20_000];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = new UUID(random.nextLong(), random.nextLong());
+        }
+        for (int round = 0; round < 2; round++) {
+            for (UUID id : ids) {
+                Assertions.assertEquals(expected.add(id), set.add(id));
+            }
+        }
+        Assertions.assertEquals(ids.length, set.size());
+        Assertions.assertFalse(set.overflowed());
+    }
+
+    @Test
+    void should_track_nil_uuid() {
+        UuidSet set = new UuidSet(10);
+        UUID nil = new UUID(0, 0);
+
+        Assertions.assertTrue(set.add(nil));
+        Assertions.assertFalse(set.add(nil));
+    }
+
+    @Test
+    void should_stop_growing_at_max_entries() {
+        UuidSet set = new UuidSet(1_000);
+        for (int i = 1; i <= 5_000; i++) {
+            Assertions.assertTrue(set.add(new UUID(i, i)));
+        }
+
+        Assertions.assertTrue(set.overflowed());
+        Assertions.assertEquals(1_000, set.size());
+        Assertions.assertFalse(set.add(new UUID(1, 1)));
+        Assertions.assertEquals(2048L * UuidSet.BYTES_PER_SLOT, set.footprintBytes());
+    }
+}